@@ -0,0 +1,13 @@
+package backend.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Scheduling Configuration
+ * Enables @Scheduled background tasks (history retention, upload session expiry)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+}
@@ -0,0 +1,153 @@
+package backend.controllers;
+
+import backend.dto.ApiResponse;
+import backend.dto.HistoryEntry;
+import backend.dto.HistoryPage;
+import backend.dto.RetentionStatus;
+import backend.services.BlobDownloads;
+import backend.services.HistoryExportService;
+import backend.services.HistoryService;
+import backend.services.RetentionService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * REST Controller for the processing history (metadata only)
+ * - GET /api/history?limit=50&before={cursor}&filename=..  - Newest first, keyset paginated
+ *   Other filters (one kind per request): hash=.., format=.., min_width/max_width/min_height/max_height=..
+ * - GET /api/history/latest                                - Most recent record
+ * - GET /api/history/retention                             - Stored records/bytes, limits, last compaction
+ * - GET /api/history/export?format=ndjson|zip&after={id}   - Streamed bulk export (oldest first)
+ * - GET /api/history/{id}                                  - One record
+ * - GET /api/history/{id}/original                         - Uploaded image bytes (Range supported)
+ * - GET /api/history/{id}/result                           - Inverted image bytes (Range supported)
+ */
+@RestController
+@RequestMapping("/api/history")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class HistoryController {
+
+    private final HistoryService historyService;
+    private final RetentionService retentionService;
+    private final BlobDownloads blobDownloads;
+    private final HistoryExportService exportService;
+
+    public HistoryController(HistoryService historyService, RetentionService retentionService,
+                             BlobDownloads blobDownloads, HistoryExportService exportService) {
+        this.historyService = historyService;
+        this.retentionService = retentionService;
+        this.blobDownloads = blobDownloads;
+        this.exportService = exportService;
+    }
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<HistoryPage>> list(
+            @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "filename", required = false) String filename,
+            @RequestParam(value = "hash", required = false) String hash,
+            @RequestParam(value = "format", required = false) String format,
+            @RequestParam(value = "min_width", required = false) Integer minWidth,
+            @RequestParam(value = "max_width", required = false) Integer maxWidth,
+            @RequestParam(value = "min_height", required = false) Integer minHeight,
+            @RequestParam(value = "max_height", required = false) Integer maxHeight) {
+        boolean bySize = minWidth != null || maxWidth != null || minHeight != null || maxHeight != null;
+        int filters = (filename != null ? 1 : 0) + (hash != null ? 1 : 0) + (format != null ? 1 : 0) + (bySize ? 1 : 0);
+        if (filters > 1) {
+            throw new IllegalArgumentException("Use only one of filename, hash, format or a size range");
+        }
+
+        HistoryPage page;
+        if (hash != null) {
+            page = historyService.byContentHash(hash, before, limit);
+        } else if (format != null) {
+            page = historyService.byFormat(format, before, limit);
+        } else if (bySize) {
+            page = historyService.bySize(minWidth, maxWidth, minHeight, maxHeight, before, limit);
+        } else {
+            page = historyService.page(filename, before, limit);
+        }
+        return ResponseEntity.ok(new ApiResponse<>(true, page.getItems().size() + " records", page));
+    }
+
+    @GetMapping("/latest")
+    public ResponseEntity<ApiResponse<HistoryEntry>> latest() {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(true, "Latest record", historyService.latest()));
+        } catch (NoSuchElementException e) {
+            return notFound(e);
+        }
+    }
+
+    @GetMapping("/retention")
+    public ResponseEntity<ApiResponse<RetentionStatus>> retention() {
+        return ResponseEntity.ok(new ApiResponse<>(true, "Retention status", retentionService.status()));
+    }
+
+    /**
+     * Streams the whole history (or the records after a given id, to resume
+     * an interrupted export). NDJSON holds metadata only; ZIP adds the images.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "after", defaultValue = "0") long after) {
+        HistoryExportService.Format exportFormat = HistoryExportService.Format.fromId(format);
+        StreamingResponseBody body = out -> exportService.export(out, exportFormat, after);
+        MediaType contentType = exportFormat == HistoryExportService.Format.ZIP
+                ? MediaType.parseMediaType("application/zip")
+                : MediaType.parseMediaType("application/x-ndjson");
+        String fileName = "history-export." + exportFormat.name().toLowerCase(Locale.ROOT);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<HistoryEntry>> get(@PathVariable long id) {
+        try {
+            return ResponseEntity.ok(new ApiResponse<>(true, "History record", historyService.get(id)));
+        } catch (NoSuchElementException e) {
+            return notFound(e);
+        }
+    }
+
+    @GetMapping("/{id}/original")
+    public ResponseEntity<StreamingResponseBody> original(@PathVariable long id, @RequestHeader HttpHeaders headers,
+                                      HttpServletRequest request) throws IOException {
+        return download(id, true, headers, request);
+    }
+
+    @GetMapping("/{id}/result")
+    public ResponseEntity<StreamingResponseBody> result(@PathVariable long id, @RequestHeader HttpHeaders headers,
+                                    HttpServletRequest request) throws IOException {
+        return download(id, false, headers, request);
+    }
+
+    private ResponseEntity<StreamingResponseBody> download(long id, boolean original, HttpHeaders headers,
+                                       HttpServletRequest request) throws IOException {
+        try {
+            HistoryService.StoredImage image = historyService.content(id, original);
+            MediaType contentType = MediaTypeFactory.getMediaType("image." + image.format())
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM);
+            return blobDownloads.serve(image.hash(), contentType, image.fileName(), headers, request);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private static <T> ResponseEntity<ApiResponse<T>> notFound(NoSuchElementException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiResponse<>(false, e.getMessage()));
+    }
+}
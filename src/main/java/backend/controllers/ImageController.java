@@ -2,6 +2,7 @@ package backend.controllers;
 
 import backend.dto.ApiResponse;
 import backend.dto.ImageInvertResponse;
+import backend.services.ImageETags;
 import backend.services.ImageService;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -15,6 +16,11 @@ import org.springframework.web.multipart.MultipartFile;
  * - /api/images/invert/json - JSON response with base64 encoded image
  * - /api/images/invert/xml - XML response format
  * - /api/images/health - Health check endpoint
+ *
+ * Inversion endpoints send an ETag derived from the uploaded bytes; a matching
+ * If-None-Match is answered with 412 (these are POSTs, see ImageETags) before
+ * the image is decoded. Identical uploads in flight at the same time are
+ * inverted once (see ImageService).
  */
 @RestController
 @RequestMapping("/api/images")
@@ -32,14 +38,24 @@ public class ImageController {
      * Similar to helloworld-rs /rest/xml - returns binary data
      */
     @PostMapping("/invert")
-    public ResponseEntity<byte[]> invertImage(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<byte[]> invertImage(
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            String hash = ImageETags.hashContent(file);
+            String etag = ImageETags.strong(hash, "invert", "png");
+            if (ImageETags.matches(ifNoneMatch, etag)) {
+                return ImageETags.preconditionFailed(etag);
+            }
+
             long startTime = System.currentTimeMillis();
-            byte[] processedImage = imageService.processAndSave(file);
+            byte[] processedImage = imageService.processAndSave(file, hash);
             long processingTime = System.currentTimeMillis() - startTime;
             
             return ResponseEntity.ok()
                     .header("X-Processing-Time-Ms", String.valueOf(processingTime))
+                    .eTag(etag)
+                    .cacheControl(ImageETags.cacheControl())
                     .contentType(MediaType.IMAGE_PNG)
                     .body(processedImage);
         } catch (Exception e) {
@@ -54,10 +70,17 @@ public class ImageController {
      */
     @PostMapping(value = "/invert/json", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<ApiResponse<ImageInvertResponse>> invertImageAsJson(
-            @RequestParam("file") MultipartFile file) {
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            String hash = ImageETags.hashContent(file);
+            String etag = ImageETags.weak(hash, "invert", "json");
+            if (ImageETags.matches(ifNoneMatch, etag)) {
+                return ImageETags.preconditionFailed(etag);
+            }
+
             long startTime = System.currentTimeMillis();
-            byte[] processedImage = imageService.processAndSave(file);
+            byte[] processedImage = imageService.processAndSave(file, hash);
             long processingTime = System.currentTimeMillis() - startTime;
             
             ImageInvertResponse response = new ImageInvertResponse(
@@ -68,9 +91,10 @@ public class ImageController {
                     processingTime
             );
             
-            return ResponseEntity.ok(
-                    new ApiResponse<>(true, "Image processed successfully", response)
-            );
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(ImageETags.cacheControl())
+                    .body(new ApiResponse<>(true, "Image processed successfully", response));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError()
@@ -84,10 +108,17 @@ public class ImageController {
      */
     @PostMapping(value = "/invert/xml", produces = MediaType.APPLICATION_XML_VALUE)
     public ResponseEntity<ApiResponse<ImageInvertResponse>> invertImageAsXml(
-            @RequestParam("file") MultipartFile file) {
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
         try {
+            String hash = ImageETags.hashContent(file);
+            String etag = ImageETags.weak(hash, "invert", "xml");
+            if (ImageETags.matches(ifNoneMatch, etag)) {
+                return ImageETags.preconditionFailed(etag);
+            }
+
             long startTime = System.currentTimeMillis();
-            byte[] processedImage = imageService.processAndSave(file);
+            byte[] processedImage = imageService.processAndSave(file, hash);
             long processingTime = System.currentTimeMillis() - startTime;
             
             ImageInvertResponse response = new ImageInvertResponse(
@@ -98,9 +129,10 @@ public class ImageController {
                     processingTime
             );
             
-            return ResponseEntity.ok(
-                    new ApiResponse<>(true, "Image processed successfully", response)
-            );
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(ImageETags.cacheControl())
+                    .body(new ApiResponse<>(true, "Image processed successfully", response));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError()
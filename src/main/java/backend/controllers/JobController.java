@@ -0,0 +1,178 @@
+package backend.controllers;
+
+import backend.dto.ApiResponse;
+import backend.dto.JobResponse;
+import backend.models.ImageJob;
+import backend.services.JobService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST Controller for asynchronous processing jobs
+ * - POST   /api/jobs              - Submit an image (multipart "file", or raw body) with optional ops; 202 + job id
+ * - GET    /api/jobs/{id}         - Poll status and progress
+ * - GET    /api/jobs/{id}/events  - Server-Sent Events stream of progress until the job finishes
+ * - GET    /api/jobs/{id}/result  - Download the processed image once the job succeeded
+ * - DELETE /api/jobs/{id}         - Cancel a pending job, or delete a finished one
+ *
+ * ops uses the /api/images/pipeline form, e.g. [{"op":"blur","radius":25}];
+ * it defaults to a plain inversion.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@CrossOrigin(origins = "*", allowedHeaders = "*", exposedHeaders = {"Location", "Retry-After"})
+public class JobController {
+
+    private final JobService jobService;
+    private final long sseTimeoutMs;
+
+    public JobController(JobService jobService,
+                         @Value("${image.jobs.sse-timeout-ms:600000}") long sseTimeoutMs) {
+        this.jobService = jobService;
+        this.sseTimeoutMs = sseTimeoutMs;
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ApiResponse<JobResponse>> submit(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "ops", required = false) String ops,
+            @RequestParam(value = "format", defaultValue = "png") String format) {
+        try (InputStream in = file.getInputStream()) {
+            return accepted(jobService.submit(file.getOriginalFilename(), in, ops, format));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    /**
+     * Raw body variant for images above the multipart limit, e.g.
+     * curl --data-binary @huge.tif -H "Content-Type: application/octet-stream" \
+     *   "http://localhost:8080/api/jobs?filename=huge.tif&ops=[{\"op\":\"blur\"}]"
+     */
+    @PostMapping(consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, "image/*"})
+    public ResponseEntity<ApiResponse<JobResponse>> submitRaw(
+            InputStream body,
+            @RequestParam(value = "filename", required = false) String filename,
+            @RequestParam(value = "ops", required = false) String ops,
+            @RequestParam(value = "format", defaultValue = "png") String format) {
+        try {
+            return accepted(jobService.submit(filename, body, ops, format));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<JobResponse>> status(@PathVariable String id) {
+        try {
+            ImageJob job = jobService.get(id);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Job " + job.getStatus(), new JobResponse(job)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    /**
+     * Sends a "progress" event with the job state on every change and
+     * completes the stream once the job reaches a terminal state.
+     */
+    @GetMapping("/{id}/events")
+    public ResponseEntity<SseEmitter> events(@PathVariable String id) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        Runnable unsubscribe;
+        try {
+            unsubscribe = jobService.subscribe(id, job -> {
+                try {
+                    emitter.send(SseEmitter.event().name("progress").data(new JobResponse(job)));
+                    if (job.getStatus().isTerminal()) {
+                        emitter.complete();
+                    }
+                } catch (IOException e) {
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping("/{id}/result")
+    public ResponseEntity<?> result(@PathVariable String id) {
+        try {
+            ImageJob job = jobService.get(id);
+            Path result = jobService.resultFile(id);
+            MediaType contentType = MediaTypeFactory.getMediaType("result." + job.getFormat())
+                    .orElse(MediaType.APPLICATION_OCTET_STREAM);
+            return ResponseEntity.ok()
+                    .contentType(contentType)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                            .filename(resultName(job), StandardCharsets.UTF_8).build().toString())
+                    .body(new FileSystemResource(result));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse<JobResponse>> cancel(@PathVariable String id) {
+        try {
+            ImageJob job = jobService.cancel(id);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Job " + job.getStatus(), new JobResponse(job)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    private static ResponseEntity<ApiResponse<JobResponse>> accepted(ImageJob job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/jobs/" + job.getId()))
+                .body(new ApiResponse<>(true, "Job queued", new JobResponse(job)));
+    }
+
+    private static String resultName(ImageJob job) {
+        String name = job.getFileName();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + "." + job.getFormat();
+    }
+
+    private static <T> ResponseEntity<ApiResponse<T>> error(Exception e) {
+        HttpStatus status;
+        if (e instanceof NoSuchElementException) {
+            status = HttpStatus.NOT_FOUND;
+        } else if (e instanceof IllegalArgumentException) {
+            status = HttpStatus.BAD_REQUEST;
+        } else if (e instanceof IllegalStateException) {
+            status = HttpStatus.CONFLICT;
+        } else if (e instanceof RejectedExecutionException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "30")
+                    .body(new ApiResponse<>(false, "Job queue is full, retry later"));
+        } else {
+            e.printStackTrace();
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+        return ResponseEntity.status(status)
+                .body(new ApiResponse<>(false, "Job error: " + e.getMessage()));
+    }
+}
@@ -0,0 +1,127 @@
+package backend.controllers;
+
+import backend.dto.ApiResponse;
+import backend.dto.UploadSessionResponse;
+import backend.models.UploadSession;
+import backend.services.ImageETags;
+import backend.services.UploadSessionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.NoSuchElementException;
+
+/**
+ * REST Controller for resumable chunked uploads
+ * - POST   /api/uploads?filename=..&size=..   - Create a session
+ * - PUT    /api/uploads/{id}                  - Upload a chunk (Content-Range: bytes start-end/total)
+ * - GET    /api/uploads/{id}                  - Received/missing ranges, to resume after an interruption
+ * - POST   /api/uploads/{id}/commit           - Invert the assembled image, returns PNG
+ * - DELETE /api/uploads/{id}                  - Abort and discard staged data
+ *
+ * Chunk bodies are raw bytes (application/octet-stream) and bypass the
+ * multipart size limit.
+ */
+@RestController
+@RequestMapping("/api/uploads")
+@CrossOrigin(origins = "*", allowedHeaders = "*", exposedHeaders = {"Location", "ETag"})
+public class UploadController {
+
+    private final UploadSessionService uploadService;
+
+    public UploadController(UploadSessionService uploadService) {
+        this.uploadService = uploadService;
+    }
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> createSession(
+            @RequestParam("filename") String filename,
+            @RequestParam("size") long size) {
+        try {
+            UploadSession session = uploadService.create(filename, size);
+            return ResponseEntity.created(URI.create("/api/uploads/" + session.getId()))
+                    .body(new ApiResponse<>(true, "Upload session created", new UploadSessionResponse(session)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @PutMapping(value = "/{id}", consumes = MediaType.ALL_VALUE)
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> uploadChunk(
+            @PathVariable String id,
+            @RequestHeader(value = "Content-Range", required = false) String contentRange,
+            InputStream body) {
+        try {
+            UploadSession session = uploadService.writeChunk(id, contentRange, body);
+            return ResponseEntity.ok(
+                    new ApiResponse<>(true, "Chunk stored", new UploadSessionResponse(session)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> status(@PathVariable String id) {
+        try {
+            UploadSession session = uploadService.get(id);
+            return ResponseEntity.ok(
+                    new ApiResponse<>(true, "Upload status", new UploadSessionResponse(session)));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @PostMapping("/{id}/commit")
+    public ResponseEntity<?> commit(@PathVariable String id) {
+        try {
+            String etag;
+            try (InputStream staged = Files.newInputStream(uploadService.stagedFile(id))) {
+                // Same tag /api/images/invert would produce for these bytes
+                etag = ImageETags.strong(ImageETags.hashContent(staged), "invert", "png");
+            }
+
+            long startTime = System.currentTimeMillis();
+            byte[] processedImage = uploadService.commit(id);
+            long processingTime = System.currentTimeMillis() - startTime;
+
+            return ResponseEntity.ok()
+                    .header("X-Processing-Time-Ms", String.valueOf(processingTime))
+                    .eTag(etag)
+                    .cacheControl(ImageETags.cacheControl())
+                    .contentType(MediaType.IMAGE_PNG)
+                    .body(processedImage);
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse<Void>> abort(@PathVariable String id) {
+        try {
+            uploadService.abort(id);
+            return ResponseEntity.ok(new ApiResponse<>(true, "Upload session discarded"));
+        } catch (Exception e) {
+            return error(e);
+        }
+    }
+
+    private static <T> ResponseEntity<ApiResponse<T>> error(Exception e) {
+        HttpStatus status;
+        if (e instanceof NoSuchElementException) {
+            status = HttpStatus.NOT_FOUND;
+        } else if (e instanceof IllegalArgumentException) {
+            status = HttpStatus.BAD_REQUEST;
+        } else if (e instanceof IllegalStateException) {
+            status = HttpStatus.CONFLICT;
+        } else {
+            e.printStackTrace();
+            status = HttpStatus.INTERNAL_SERVER_ERROR;
+        }
+        return ResponseEntity.status(status)
+                .body(new ApiResponse<>(false, "Upload error: " + e.getMessage()));
+    }
+}
@@ -0,0 +1,179 @@
+package backend.dto;
+
+import backend.models.ImageRecord;
+import backend.models.ImageSummary;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response DTO for one history record (metadata only, no image bytes)
+ */
+public class HistoryEntry {
+
+    @JsonProperty("id")
+    private Long id;
+
+    @JsonProperty("filename")
+    private String filename;
+
+    @JsonProperty("processed_at")
+    private LocalDateTime processedAt;
+
+    @JsonProperty("original_size")
+    private Long originalSize;
+
+    @JsonProperty("original_format")
+    private String originalFormat;
+
+    @JsonProperty("inverted_size")
+    private Long invertedSize;
+
+    @JsonProperty("inverted_format")
+    private String invertedFormat;
+
+    @JsonProperty("content_hash")
+    private String contentHash;
+
+    @JsonProperty("width")
+    private Integer width;
+
+    @JsonProperty("height")
+    private Integer height;
+
+    @JsonProperty("pixel_format")
+    private String pixelFormat;
+
+    @JsonProperty("processing_time_ms")
+    private Long processingTimeMs;
+
+    public HistoryEntry() {
+    }
+
+    public HistoryEntry(ImageSummary summary) {
+        this.id = summary.getId();
+        this.filename = summary.getFileName();
+        this.processedAt = summary.getProcessedAt();
+        this.originalSize = summary.getOriginalSize();
+        this.originalFormat = summary.getOriginalFormat();
+        this.invertedSize = summary.getInvertedSize();
+        this.invertedFormat = summary.getInvertedFormat();
+        this.contentHash = summary.getOriginalHash();
+        this.width = summary.getWidth();
+        this.height = summary.getHeight();
+        this.pixelFormat = summary.getPixelFormat();
+        this.processingTimeMs = summary.getProcessingTimeMs();
+    }
+
+    public HistoryEntry(ImageRecord record) {
+        this.id = record.getId();
+        this.filename = record.getFileName();
+        this.processedAt = record.getProcessedAt();
+        this.originalSize = record.getOriginalSize();
+        this.originalFormat = record.getOriginalFormat();
+        this.invertedSize = record.getInvertedSize();
+        this.invertedFormat = record.getInvertedFormat();
+        this.contentHash = record.getOriginalHash();
+        this.width = record.getWidth();
+        this.height = record.getHeight();
+        this.pixelFormat = record.getPixelFormat();
+        this.processingTimeMs = record.getProcessingTimeMs();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+
+    public Long getOriginalSize() {
+        return originalSize;
+    }
+
+    public void setOriginalSize(Long originalSize) {
+        this.originalSize = originalSize;
+    }
+
+    public String getOriginalFormat() {
+        return originalFormat;
+    }
+
+    public void setOriginalFormat(String originalFormat) {
+        this.originalFormat = originalFormat;
+    }
+
+    public Long getInvertedSize() {
+        return invertedSize;
+    }
+
+    public void setInvertedSize(Long invertedSize) {
+        this.invertedSize = invertedSize;
+    }
+
+    public String getInvertedFormat() {
+        return invertedFormat;
+    }
+
+    public void setInvertedFormat(String invertedFormat) {
+        this.invertedFormat = invertedFormat;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public String getPixelFormat() {
+        return pixelFormat;
+    }
+
+    public void setPixelFormat(String pixelFormat) {
+        this.pixelFormat = pixelFormat;
+    }
+
+    public Long getProcessingTimeMs() {
+        return processingTimeMs;
+    }
+
+    public void setProcessingTimeMs(Long processingTimeMs) {
+        this.processingTimeMs = processingTimeMs;
+    }
+}
@@ -0,0 +1,55 @@
+package backend.dto;
+
+import backend.models.ImageRecord;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One line of a history export: the record metadata plus the hash of the
+ * result and, in ZIP exports, the archive paths of both images.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HistoryExportEntry extends HistoryEntry {
+
+    @JsonProperty("result_hash")
+    private String resultHash;
+
+    @JsonProperty("original_file")
+    private String originalFile;
+
+    @JsonProperty("result_file")
+    private String resultFile;
+
+    public HistoryExportEntry() {
+    }
+
+    public HistoryExportEntry(ImageRecord record) {
+        super(record);
+        this.resultHash = record.getInvertedHash();
+    }
+
+    // Getters and Setters
+    public String getResultHash() {
+        return resultHash;
+    }
+
+    public void setResultHash(String resultHash) {
+        this.resultHash = resultHash;
+    }
+
+    public String getOriginalFile() {
+        return originalFile;
+    }
+
+    public void setOriginalFile(String originalFile) {
+        this.originalFile = originalFile;
+    }
+
+    public String getResultFile() {
+        return resultFile;
+    }
+
+    public void setResultFile(String resultFile) {
+        this.resultFile = resultFile;
+    }
+}
@@ -0,0 +1,43 @@
+package backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * One page of history, newest first. Pass next_cursor as "before" to get the
+ * following page; it is null on the last page.
+ */
+public class HistoryPage {
+
+    @JsonProperty("items")
+    private List<HistoryEntry> items;
+
+    @JsonProperty("next_cursor")
+    private Long nextCursor;
+
+    public HistoryPage() {
+    }
+
+    public HistoryPage(List<HistoryEntry> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<HistoryEntry> getItems() {
+        return items;
+    }
+
+    public void setItems(List<HistoryEntry> items) {
+        this.items = items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,155 @@
+package backend.dto;
+
+import backend.models.ImageJob;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Response DTO describing an asynchronous job
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JobResponse {
+
+    @JsonProperty("job_id")
+    private String jobId;
+
+    @JsonProperty("filename")
+    private String filename;
+
+    @JsonProperty("status")
+    private String status;
+
+    @JsonProperty("progress")
+    private int progress;
+
+    @JsonProperty("stage")
+    private String stage;
+
+    @JsonProperty("error")
+    private String error;
+
+    @JsonProperty("created_at")
+    private String createdAt;
+
+    @JsonProperty("started_at")
+    private String startedAt;
+
+    @JsonProperty("finished_at")
+    private String finishedAt;
+
+    @JsonProperty("result_size")
+    private Long resultSize;
+
+    @JsonProperty("result_url")
+    private String resultUrl;
+
+    public JobResponse() {
+    }
+
+    public JobResponse(ImageJob job) {
+        synchronized (job) {
+            this.jobId = job.getId();
+            this.filename = job.getFileName();
+            this.status = job.getStatus().name();
+            this.progress = (int) Math.round(job.getProgress() * 100);
+            this.stage = job.getStage();
+            this.error = job.getError();
+            this.createdAt = job.getCreatedAt().toString();
+            this.startedAt = job.getStartedAt() == null ? null : job.getStartedAt().toString();
+            this.finishedAt = job.getFinishedAt() == null ? null : job.getFinishedAt().toString();
+            if (job.getStatus() == ImageJob.Status.SUCCEEDED) {
+                this.resultSize = job.getResultSize();
+                this.resultUrl = "/api/jobs/" + job.getId() + "/result";
+            }
+        }
+    }
+
+    // Getters and Setters
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getProgress() {
+        return progress;
+    }
+
+    public void setProgress(int progress) {
+        this.progress = progress;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(String createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(String startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public String getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(String finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public Long getResultSize() {
+        return resultSize;
+    }
+
+    public void setResultSize(Long resultSize) {
+        this.resultSize = resultSize;
+    }
+
+    public String getResultUrl() {
+        return resultUrl;
+    }
+
+    public void setResultUrl(String resultUrl) {
+        this.resultUrl = resultUrl;
+    }
+}
@@ -0,0 +1,103 @@
+package backend.dto;
+
+import backend.services.RetentionService;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Current history footprint, the configured limits (0 = unlimited) and the
+ * result of the last compaction pass (null before the first one).
+ */
+public class RetentionStatus {
+
+    @JsonProperty("records")
+    private long records;
+
+    @JsonProperty("blobs")
+    private long blobs;
+
+    @JsonProperty("stored_bytes")
+    private long storedBytes;
+
+    @JsonProperty("max_records")
+    private long maxRecords;
+
+    @JsonProperty("max_bytes")
+    private long maxBytes;
+
+    @JsonProperty("max_age_days")
+    private long maxAgeDays;
+
+    @JsonProperty("last_compaction")
+    private RetentionService.Report lastCompaction;
+
+    public RetentionStatus() {
+    }
+
+    public RetentionStatus(long records, long blobs, long storedBytes, long maxRecords, long maxBytes,
+                           long maxAgeDays, RetentionService.Report lastCompaction) {
+        this.records = records;
+        this.blobs = blobs;
+        this.storedBytes = storedBytes;
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.maxAgeDays = maxAgeDays;
+        this.lastCompaction = lastCompaction;
+    }
+
+    // Getters and Setters
+    public long getRecords() {
+        return records;
+    }
+
+    public void setRecords(long records) {
+        this.records = records;
+    }
+
+    public long getBlobs() {
+        return blobs;
+    }
+
+    public void setBlobs(long blobs) {
+        this.blobs = blobs;
+    }
+
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public void setStoredBytes(long storedBytes) {
+        this.storedBytes = storedBytes;
+    }
+
+    public long getMaxRecords() {
+        return maxRecords;
+    }
+
+    public void setMaxRecords(long maxRecords) {
+        this.maxRecords = maxRecords;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxAgeDays() {
+        return maxAgeDays;
+    }
+
+    public void setMaxAgeDays(long maxAgeDays) {
+        this.maxAgeDays = maxAgeDays;
+    }
+
+    public RetentionService.Report getLastCompaction() {
+        return lastCompaction;
+    }
+
+    public void setLastCompaction(RetentionService.Report lastCompaction) {
+        this.lastCompaction = lastCompaction;
+    }
+}
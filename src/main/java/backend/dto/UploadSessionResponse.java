@@ -0,0 +1,108 @@
+package backend.dto;
+
+import backend.models.UploadSession;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Response DTO describing the state of a chunked upload session
+ */
+public class UploadSessionResponse {
+
+    @JsonProperty("upload_id")
+    private String uploadId;
+
+    @JsonProperty("filename")
+    private String filename;
+
+    @JsonProperty("total_size")
+    private long totalSize;
+
+    @JsonProperty("received_bytes")
+    private long receivedBytes;
+
+    @JsonProperty("next_offset")
+    private long nextOffset;
+
+    @JsonProperty("missing_ranges")
+    private List<String> missingRanges;
+
+    @JsonProperty("complete")
+    private boolean complete;
+
+    public UploadSessionResponse() {
+    }
+
+    public UploadSessionResponse(UploadSession session) {
+        this.uploadId = session.getId();
+        this.filename = session.getFileName();
+        this.totalSize = session.getTotalSize();
+        this.receivedBytes = session.getReceivedBytes();
+        this.nextOffset = session.getNextOffset();
+        this.complete = session.isComplete();
+        this.missingRanges = new ArrayList<>();
+        // Inclusive bounds, same notation as the Content-Range header
+        for (long[] range : session.getMissingRanges()) {
+            missingRanges.add(range[0] + "-" + (range[1] - 1));
+        }
+    }
+
+    // Getters and Setters
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    public void setReceivedBytes(long receivedBytes) {
+        this.receivedBytes = receivedBytes;
+    }
+
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public void setNextOffset(long nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+
+    public List<String> getMissingRanges() {
+        return missingRanges;
+    }
+
+    public void setMissingRanges(List<String> missingRanges) {
+        this.missingRanges = missingRanges;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+}
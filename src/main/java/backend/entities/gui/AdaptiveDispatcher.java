@@ -0,0 +1,260 @@
+package backend.entities.gui;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+import worker.BandOperation;
+import worker.ImageProcessingWorker;
+
+/**
+ * Decides, per image, whether to invert it locally or on the server, by
+ * predicting which finishes first.
+ *
+ * - local: pixels x local ns/pixel;
+ * - remote: round-trip latency + upload size / bandwidth + pixels x server
+ *   ns/pixel.
+ *
+ * Every run feeds its measurements back: per-pixel costs are exponentially
+ * weighted moving averages, and latency and bandwidth come from a linear
+ * fit of transfer time (total minus the server's X-Processing-Time-Ms)
+ * against upload size, with older samples decaying the same way. Until
+ * there is data the model starts from conservative defaults. Every
+ * PROBE_INTERVAL decisions the other path is taken if it is predicted to
+ * be no more than PROBE_SLACK times slower, so its estimate does not go
+ * stale.
+ *
+ * Callbacks run on the EDT.
+ */
+public class AdaptiveDispatcher {
+
+    public enum Target {
+        LOCAL, REMOTE
+    }
+
+    public record Estimate(Target target, double localMillis, double remoteMillis, boolean probe) {
+        public double predictedMillis() {
+            return target == Target.LOCAL ? localMillis : remoteMillis;
+        }
+    }
+
+    public record Outcome(BufferedImage image, Estimate estimate, double actualMillis) {
+        public Target target() {
+            return estimate.target();
+        }
+
+        /**
+         * One line for the status bar, e.g.
+         * "Local: 42 ms (predicted 38 ms; server ~310 ms)".
+         */
+        public String describe() {
+            boolean local = target() == Target.LOCAL;
+            return String.format(Locale.ROOT, "%s%s: %.0f ms (predicted %.0f ms; %s ~%.0f ms)",
+                    local ? "Local" : "Server", estimate.probe() ? " [probe]" : "",
+                    actualMillis, estimate.predictedMillis(),
+                    local ? "server" : "local", local ? estimate.remoteMillis() : estimate.localMillis());
+        }
+    }
+
+    static final double ALPHA = 0.3;
+    static final int PROBE_INTERVAL = 20;
+    static final double PROBE_SLACK = 3.0;
+
+    // Defaults until measured: the naive per-pixel Color loop, a LAN server
+    private static final double DEFAULT_LOCAL_NS_PER_PIXEL = 30;
+    private static final double DEFAULT_SERVER_NS_PER_PIXEL = 15;
+    private static final double DEFAULT_LATENCY_MS = 50;
+    private static final double DEFAULT_MS_PER_MB = 100; // 10 MB/s
+
+    private final SwingImageClient client;
+
+    // Guarded by this
+    private double localNsPerPixel = DEFAULT_LOCAL_NS_PER_PIXEL;
+    private double serverNsPerPixel = DEFAULT_SERVER_NS_PER_PIXEL;
+    private final LinkFit link = new LinkFit();
+    private long decisions;
+
+    public AdaptiveDispatcher(SwingImageClient client) {
+        this.client = client;
+    }
+
+    public synchronized Estimate estimate(long fileBytes, long pixels) {
+        double local = pixels * localNsPerPixel / 1e6;
+        double remote = link.predictMillis(fileBytes / 1e6) + pixels * serverNsPerPixel / 1e6;
+        Target best = local <= remote ? Target.LOCAL : Target.REMOTE;
+        boolean probe = false;
+        if (++decisions % PROBE_INTERVAL == 0 && Math.max(local, remote) <= PROBE_SLACK * Math.min(local, remote)) {
+            best = best == Target.LOCAL ? Target.REMOTE : Target.LOCAL;
+            probe = true;
+        }
+        return new Estimate(best, local, remote, probe);
+    }
+
+    synchronized void recordLocal(long pixels, long nanos) {
+        if (pixels > 0) {
+            localNsPerPixel = ewma(localNsPerPixel, (double) nanos / pixels);
+        }
+    }
+
+    synchronized void recordRemote(long fileBytes, long pixels, long serverMillis, long elapsedNanos) {
+        double elapsedMillis = elapsedNanos / 1e6;
+        double transferMillis = elapsedMillis;
+        if (serverMillis >= 0) {
+            transferMillis = Math.max(0, elapsedMillis - serverMillis);
+            if (pixels > 0) {
+                serverNsPerPixel = ewma(serverNsPerPixel, serverMillis * 1e6 / pixels);
+            }
+        }
+        link.add(fileBytes / 1e6, transferMillis);
+    }
+
+    public synchronized double getLocalNsPerPixel() {
+        return localNsPerPixel;
+    }
+
+    public synchronized double getServerNsPerPixel() {
+        return serverNsPerPixel;
+    }
+
+    public synchronized double getLatencyMillis() {
+        return link.predictMillis(0);
+    }
+
+    /**
+     * Upload bandwidth in MB/s as currently estimated.
+     */
+    public synchronized double getBandwidthMBps() {
+        double msPerMb = link.slope();
+        return msPerMb <= 0 ? Double.POSITIVE_INFINITY : 1000 / msPerMb;
+    }
+
+    /**
+     * Decides where to invert {@code image} (read from {@code file}); with
+     * {@code forced} not null, that target is used but the estimate still
+     * reports both predictions.
+     */
+    public Estimate plan(File file, BufferedImage image, Target forced) {
+        Estimate estimate = estimate(file.length(), (long) image.getWidth() * image.getHeight());
+        if (forced != null && forced != estimate.target()) {
+            estimate = new Estimate(forced, estimate.localMillis(), estimate.remoteMillis(), false);
+        }
+        return estimate;
+    }
+
+    /**
+     * Inverts {@code image} where {@code estimate} says and records how long
+     * it took. Local runs report partial results through {@code onUpdate}.
+     * Cancelling the returned future stops a local run between bands and
+     * abandons a server request; neither callback runs then.
+     */
+    public Future<?> process(File file, BufferedImage image, Estimate estimate, Consumer<BufferedImage> onUpdate,
+                          Consumer<Outcome> onDone, Consumer<String> onError) {
+        long pixels = (long) image.getWidth() * image.getHeight();
+        long fileBytes = file.length();
+        long start = System.nanoTime();
+
+        if (estimate.target() == Target.LOCAL) {
+            ImageProcessingWorker worker = new ImageProcessingWorker(image, List.of(BandOperation.INVERT), onUpdate,
+                result -> {
+                    long nanos = System.nanoTime() - start;
+                    recordLocal(pixels, nanos);
+                    onDone.accept(new Outcome(result, estimate, nanos / 1e6));
+                },
+                error -> onError.accept("Local Error: " + error.getMessage()));
+            worker.execute();
+            return worker;
+        }
+
+        CompletableFuture<SwingImageClient.RemoteResult> request = client.invert(file);
+        request
+            .thenApply(response -> {
+                recordRemote(fileBytes, pixels, response.serverMillis(), response.elapsedNanos());
+                try {
+                    BufferedImage result = ImageIO.read(new ByteArrayInputStream(response.body()));
+                    if (result == null) {
+                        throw new IOException("Server returned an unreadable image");
+                    }
+                    return result;
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            })
+            .whenComplete((result, error) -> {
+                if (request.isCancelled()) {
+                    return;
+                }
+                double millis = (System.nanoTime() - start) / 1e6;
+                SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        onError.accept("Server Error: " + cause.getMessage());
+                    } else {
+                        onDone.accept(new Outcome(result, estimate, millis));
+                    }
+                });
+            });
+        return request;
+    }
+
+    private static double ewma(double current, double sample) {
+        return current + ALPHA * (sample - current);
+    }
+
+    /**
+     * Least-squares fit of transfer time (ms) against upload size (MB) with
+     * exponentially decaying sample weights: intercept = latency, slope =
+     * ms per MB. With too little spread in sizes the slope stays at its
+     * default and only the latency follows the data.
+     */
+    static final class LinkFit {
+
+        private static final double DECAY = 1 - ALPHA;
+
+        private double weight;
+        private double sumX;
+        private double sumY;
+        private double sumXX;
+        private double sumXY;
+
+        void add(double mb, double millis) {
+            weight = weight * DECAY + 1;
+            sumX = sumX * DECAY + mb;
+            sumY = sumY * DECAY + millis;
+            sumXX = sumXX * DECAY + mb * mb;
+            sumXY = sumXY * DECAY + mb * millis;
+        }
+
+        double slope() {
+            if (weight == 0) {
+                return DEFAULT_MS_PER_MB;
+            }
+            double meanX = sumX / weight;
+            double variance = sumXX / weight - meanX * meanX;
+            // Sizes within ~0.1 MB of each other say nothing about bandwidth
+            if (variance < 0.01) {
+                return DEFAULT_MS_PER_MB;
+            }
+            double covariance = sumXY / weight - meanX * (sumY / weight);
+            return Math.max(0, covariance / variance);
+        }
+
+        double predictMillis(double mb) {
+            if (weight == 0) {
+                return DEFAULT_LATENCY_MS + mb * DEFAULT_MS_PER_MB;
+            }
+            double slope = slope();
+            double latency = Math.max(0, sumY / weight - slope * sumX / weight);
+            return latency + mb * slope;
+        }
+    }
+}
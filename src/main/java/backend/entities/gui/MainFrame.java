@@ -1,22 +1,33 @@
 package backend.entities.gui;
 
 import backend.nodes.ImageNode;
+import worker.ImageProcessingWorker;
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public class MainFrame extends JFrame {
 
     private JLabel imageLabel;
+    private JProgressBar progressBar;
     private ImageNode rootNode; 
     private SwingImageClient apiClient; // Client instance
+    private ImageProcessingWorker previewWorker; // Low-resolution local preview while the server works
+    private AdaptiveDispatcher dispatcher; // Local or server, whichever is predicted faster
+    private JLabel statusLabel;
+    private Future<?> currentJob; // Running inversion, for the Cancel button
 
     public MainFrame() {
         // Init API Client
         apiClient = new SwingImageClient();
+        dispatcher = new AdaptiveDispatcher(apiClient);
 
         setTitle("Image Processor Client");
         setSize(900, 600);
@@ -32,15 +43,33 @@ public class MainFrame extends JFrame {
 
         JPanel buttonPanel = new JPanel();
         JButton loadBtn = new JButton("Load Image");
-        JButton invertBtn = new JButton("Invert via API");
+        JButton invertBtn = new JButton("Invert");
+        JComboBox<String> modeBox = new JComboBox<>(new String[]{"Auto", "Local", "Server"});
+        modeBox.setToolTipText("Auto picks local or server by predicted time");
+        JButton cancelBtn = new JButton("Cancel");
+        cancelBtn.setEnabled(false);
+        JButton batchBtn = new JButton("Batch...");
         
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+
         buttonPanel.add(loadBtn);
         buttonPanel.add(invertBtn);
-        add(buttonPanel, BorderLayout.SOUTH);
+        buttonPanel.add(modeBox);
+        buttonPanel.add(cancelBtn);
+        buttonPanel.add(batchBtn);
+        buttonPanel.add(progressBar);
+        statusLabel = new JLabel(" ");
+        JPanel southPanel = new JPanel(new BorderLayout());
+        southPanel.add(buttonPanel, BorderLayout.CENTER);
+        southPanel.add(statusLabel, BorderLayout.SOUTH);
+        add(southPanel, BorderLayout.SOUTH);
 
         // --- Actions ---
         
         loadBtn.addActionListener(e -> carregarImagem());
+        batchBtn.addActionListener(e -> processarLote());
 
         invertBtn.addActionListener(e -> {
             if (rootNode == null || rootNode.getData() == null) {
@@ -48,28 +77,63 @@ public class MainFrame extends JFrame {
                 return;
             }
 
+            File file = new File(rootNode.getData().getFsPath()); // Ensure ImageNode stores path
+            BufferedImage source = rootNode.getData().getImageBuffer();
+            if (source == null) {
+                // ImageIO.read returns null for formats it has no reader for
+                String errorMsg = "Cannot decode " + file.getName() + ": unsupported image format.";
+                statusLabel.setText(errorMsg);
+                JOptionPane.showMessageDialog(this, errorMsg, "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
             invertBtn.setEnabled(false);
-            File fileToUpload = new File(rootNode.getData().getFsPath()); // Ensure ImageNode stores path
-            
-            // Call API
-            apiClient.sendImage(fileToUpload, 
-                // Success Callback
-                (imageData) -> {
-                    try {
-                        BufferedImage result = ImageIO.read(new ByteArrayInputStream(imageData));
-                        displayImage(result);
-                        JOptionPane.showMessageDialog(this, "Success! Image processed by Server.");
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
-                    }
-                    invertBtn.setEnabled(true);
-                },
-                // Error Callback
-                (errorMsg) -> {
-                    JOptionPane.showMessageDialog(this, errorMsg, "Error", JOptionPane.ERROR_MESSAGE);
-                    invertBtn.setEnabled(true);
+            cancelBtn.setEnabled(true);
+            AdaptiveDispatcher.Target forced = switch (modeBox.getSelectedIndex()) {
+                case 1 -> AdaptiveDispatcher.Target.LOCAL;
+                case 2 -> AdaptiveDispatcher.Target.REMOTE;
+                default -> null;
+            };
+            Consumer<String> onError = errorMsg -> {
+                stopPreview();
+                statusLabel.setText(errorMsg);
+                JOptionPane.showMessageDialog(this, errorMsg, "Error", JOptionPane.ERROR_MESSAGE);
+                invertBtn.setEnabled(true);
+                cancelBtn.setEnabled(false);
+            };
+            try {
+                AdaptiveDispatcher.Estimate estimate = dispatcher.plan(file, source, forced);
+                if (estimate.target() == AdaptiveDispatcher.Target.REMOTE) {
+                    // Something to look at while the server works
+                    startPreview(source);
                 }
-            );
+                statusLabel.setText("Processing...");
+
+                currentJob = dispatcher.process(file, source, estimate, this::displayImage,
+                    outcome -> {
+                        // The final image replaces the preview
+                        stopPreview();
+                        displayImage(outcome.image());
+                        statusLabel.setText(outcome.describe());
+                        invertBtn.setEnabled(true);
+                        cancelBtn.setEnabled(false);
+                    },
+                    onError);
+            } catch (RuntimeException ex) {
+                // Never leave the buttons disabled
+                onError.accept("Client Error: " + ex.getMessage());
+            }
+        });
+
+        cancelBtn.addActionListener(e -> {
+            if (currentJob != null) {
+                currentJob.cancel(true);
+                currentJob = null;
+            }
+            stopPreview();
+            statusLabel.setText("Cancelled");
+            invertBtn.setEnabled(true);
+            cancelBtn.setEnabled(false);
         });
     }
 
@@ -97,8 +161,108 @@ public class MainFrame extends JFrame {
         }
     }
 
+    /**
+     * Sends many images (files and/or whole folders) to the server and saves
+     * the results in a chosen folder, with a progress dialog.
+     */
+    private void processarLote() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Images or folders to invert");
+        chooser.setMultiSelectionEnabled(true);
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        List<File> files = new ArrayList<>();
+        for (File selected : chooser.getSelectedFiles()) {
+            if (selected.isDirectory()) {
+                files.addAll(SwingImageClient.listImages(selected));
+            } else {
+                files.add(selected);
+            }
+        }
+        if (files.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No images selected.");
+            return;
+        }
+
+        JFileChooser outputChooser = new JFileChooser();
+        outputChooser.setDialogTitle("Folder for the inverted images");
+        outputChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (outputChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File outputDir = outputChooser.getSelectedFile();
+
+        JDialog dialog = new JDialog(this, "Batch upload", false);
+        JProgressBar batchProgress = new JProgressBar(0, files.size());
+        batchProgress.setStringPainted(true);
+        batchProgress.setString("0 / " + files.size());
+        JLabel status = new JLabel("Uploading " + files.size() + " images to " + apiClient.getApiUrl());
+        JButton cancelBtn = new JButton("Cancel");
+        JPanel content = new JPanel(new BorderLayout(8, 8));
+        content.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        content.add(status, BorderLayout.NORTH);
+        content.add(batchProgress, BorderLayout.CENTER);
+        content.add(cancelBtn, BorderLayout.SOUTH);
+        dialog.setContentPane(content);
+        dialog.setSize(480, 140);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+
+        CompletableFuture<SwingImageClient.BatchProgress> batch = apiClient.sendBatch(files, outputDir.toPath(),
+                SwingImageClient.DEFAULT_CONCURRENCY, progress -> {
+                    batchProgress.setValue(progress.completed());
+                    batchProgress.setString(progress.completed() + " / " + progress.total()
+                            + (progress.failed() > 0 ? " (" + progress.failed() + " failed)" : ""));
+                    if (progress.lastError() != null) {
+                        status.setText(progress.lastFile().getName() + ": " + progress.lastError());
+                    }
+                    if (progress.isDone()) {
+                        status.setText("Done: " + progress.succeeded() + " saved to " + outputDir
+                                + (progress.failed() > 0 ? ", " + progress.failed() + " failed" : ""));
+                        cancelBtn.setText("Close");
+                    }
+                });
+        cancelBtn.addActionListener(e -> {
+            batch.cancel(false);
+            dialog.dispose();
+        });
+    }
+
+    /**
+     * Shows a low-resolution inverted proxy while the server works. Only the
+     * proxy is computed: inverting the full image here as well would repeat
+     * the server's work on the client.
+     */
+    private void startPreview(BufferedImage source) {
+        stopPreview();
+        if (source == null) {
+            return;
+        }
+        progressBar.setIndeterminate(true);
+        progressBar.setString("Waiting for server...");
+        progressBar.setVisible(true);
+        previewWorker = ImageProcessingWorker.proxyOnly(source, this::displayImage);
+        previewWorker.execute();
+    }
+
+    private void stopPreview() {
+        if (previewWorker != null) {
+            previewWorker.cancel(false);
+            previewWorker = null;
+        }
+        progressBar.setVisible(false);
+        progressBar.setIndeterminate(false);
+    }
+
     private void displayImage(BufferedImage img) {
         if (img != null) {
+            if (imageLabel.getIcon() instanceof ImageIcon current && current.getImage() == img) {
+                // Same image updated in place (progressive preview): just repaint
+                imageLabel.repaint();
+                return;
+            }
             ImageIcon icon = new ImageIcon(img);
             imageLabel.setText("");
             imageLabel.setIcon(icon);
@@ -1,6 +1,7 @@
 package backend.entities.gui;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
@@ -8,34 +9,101 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import javax.swing.SwingUtilities;
 
+/**
+ * Client for the inversion endpoint.
+ *
+ * All instances share one HttpClient, so connections are reused across
+ * uploads (HTTP/2 when the server offers it, keep-alive HTTP/1.1
+ * otherwise). The multipart body streams the file from disk instead of
+ * loading it into memory first.
+ *
+ * The endpoint defaults to DEFAULT_URL; it can be changed with the
+ * image.api.url system property or the IMAGE_API_URL environment variable.
+ */
 public class SwingImageClient {
 
-    private final String API_URL = "http://localhost:8080/api/images/invert";
+    public static final String DEFAULT_URL = "http://localhost:8080/api/images/invert";
+    public static final int DEFAULT_CONCURRENCY = 4;
+
+    private static final List<String> IMAGE_EXTENSIONS = List.of("png", "jpg", "jpeg", "bmp", "gif");
+
+    private static final HttpClient SHARED_CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    /**
+     * Snapshot of a batch; {@code lastFile} and {@code lastError} describe the
+     * upload that just finished (lastError is null when it succeeded).
+     */
+    public record BatchProgress(int total, int succeeded, int failed, File lastFile, String lastError) {
+        public int completed() {
+            return succeeded + failed;
+        }
+
+        public boolean isDone() {
+            return completed() == total;
+        }
+    }
+
+    /**
+     * Inverted image with the server's own processing time (the
+     * X-Processing-Time-Ms header, -1 when absent) and the total time from
+     * sending the request to having the whole response.
+     */
+    public record RemoteResult(byte[] body, long serverMillis, long elapsedNanos) {
+    }
+
+    private final String apiUrl;
     private final HttpClient client;
 
     public SwingImageClient() {
-        this.client = HttpClient.newHttpClient();
+        this(configuredUrl());
+    }
+
+    public SwingImageClient(String apiUrl) {
+        this(apiUrl, SHARED_CLIENT);
+    }
+
+    SwingImageClient(String apiUrl, HttpClient client) {
+        this.apiUrl = apiUrl;
+        this.client = client;
+    }
+
+    private static String configuredUrl() {
+        String url = System.getProperty("image.api.url");
+        if (url == null || url.isBlank()) {
+            url = System.getenv("IMAGE_API_URL");
+        }
+        return url == null || url.isBlank() ? DEFAULT_URL : url;
+    }
+
+    public String getApiUrl() {
+        return apiUrl;
     }
 
     // Accepts a callback (Consumer) to update the UI when done
     public void sendImage(File imageFile, Consumer<byte[]> onSuccess, Consumer<String> onError) {
-        String boundary = "---boundary-" + UUID.randomUUID().toString();
-        
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(API_URL))
-                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
-                .POST(ofMimeMultipartData(imageFile, boundary))
-                .build();
-
-            client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            client.sendAsync(uploadRequest(imageFile), HttpResponse.BodyHandlers.ofByteArray())
                 .thenAccept(response -> {
                     if (response.statusCode() == 200) {
                         SwingUtilities.invokeLater(() -> onSuccess.accept(response.body()));
@@ -53,9 +121,167 @@ public class SwingImageClient {
         }
     }
 
-    // Helper to build Multipart Body manually for Java HttpClient
-    private HttpRequest.BodyPublisher ofMimeMultipartData(File file, String boundary) throws IOException {
-        List<byte[]> byteArrays = new ArrayList<>();
+    /**
+     * Uploads {@code imageFile} and completes with the result and timings,
+     * or exceptionally (IOException) when the server does not answer 200.
+     * Completes on an HttpClient thread, not the EDT.
+     */
+    public CompletableFuture<RemoteResult> invert(File imageFile) {
+        long start = System.nanoTime();
+        try {
+            return client.sendAsync(uploadRequest(imageFile), HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new CompletionException(new IOException("Server Error: " + response.statusCode()));
+                    }
+                    long serverMillis = response.headers().firstValueAsLong("X-Processing-Time-Ms").orElse(-1);
+                    return new RemoteResult(response.body(), serverMillis, System.nanoTime() - start);
+                });
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Uploads every file, at most {@code maxConcurrent} at a time, and writes
+     * each result straight to {@code outputDir} as {name}-inverted.png, so
+     * neither uploads nor results are held in memory. Names that would
+     * collide within the batch (a.png and a.jpg, or two a.png from different
+     * folders) get a numeric suffix, see resultNames.
+     *
+     * {@code onProgress} runs on the EDT after each file. The returned future
+     * completes with the final progress; cancelling it stops starting new
+     * uploads (those in flight still finish).
+     */
+    public CompletableFuture<BatchProgress> sendBatch(List<File> files, Path outputDir, int maxConcurrent,
+                                                      Consumer<BatchProgress> onProgress) {
+        CompletableFuture<BatchProgress> result = new CompletableFuture<>();
+        int total = files.size();
+        if (total == 0) {
+            result.complete(new BatchProgress(0, 0, 0, null, null));
+            return result;
+        }
+        List<String> names = resultNames(files);
+        Semaphore permits = new Semaphore(Math.max(1, maxConcurrent));
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        Thread dispatcher = new Thread(() -> {
+            try {
+                Files.createDirectories(outputDir);
+            } catch (IOException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            for (int i = 0; i < total; i++) {
+                File file = files.get(i);
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.cancel(false);
+                    return;
+                }
+                Path target = outputDir.resolve(names.get(i));
+                CompletableFuture<String> upload;
+                try {
+                    upload = client.sendAsync(uploadRequest(file), HttpResponse.BodyHandlers.ofFile(target,
+                                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+                            .thenApply(response -> response.statusCode() == 200 ? null : "Server Error: " + response.statusCode());
+                } catch (IOException e) {
+                    upload = CompletableFuture.completedFuture("Client Error: " + e.getMessage());
+                }
+                upload.exceptionally(ex -> "Connection Error: " + ex.getMessage())
+                        .thenAccept(error -> {
+                            permits.release();
+                            if (error == null) {
+                                succeeded.incrementAndGet();
+                            } else {
+                                failed.incrementAndGet();
+                                try {
+                                    // Error bodies are not results
+                                    Files.deleteIfExists(target);
+                                } catch (IOException e) {
+                                    e.printStackTrace();
+                                }
+                            }
+                            BatchProgress progress = new BatchProgress(total, succeeded.get(), failed.get(), file, error);
+                            if (onProgress != null) {
+                                SwingUtilities.invokeLater(() -> onProgress.accept(progress));
+                            }
+                            if (progress.isDone()) {
+                                result.complete(progress);
+                            }
+                        });
+            }
+        }, "image-batch-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        return result;
+    }
+
+    /**
+     * The image files in {@code directory} (not recursive), by name.
+     */
+    public static List<File> listImages(File directory) {
+        File[] files = directory.listFiles(file -> file.isFile() && isImage(file));
+        if (files == null) {
+            return List.of();
+        }
+        Arrays.sort(files);
+        return List.of(files);
+    }
+
+    static boolean isImage(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && IMAGE_EXTENSIONS.contains(name.substring(dot + 1));
+    }
+
+    /**
+     * Output name of every file, in order: {name}-inverted.png, or
+     * {name}-inverted-2.png, -3... when an earlier file of the batch already
+     * took that name. Compared ignoring case, for case-insensitive file
+     * systems. Concurrent uploads therefore never share a target file.
+     */
+    static List<String> resultNames(List<File> files) {
+        Set<String> taken = new HashSet<>();
+        List<String> names = new ArrayList<>(files.size());
+        for (File file : files) {
+            String name = resultName(file);
+            String base = name.substring(0, name.length() - ".png".length());
+            for (int n = 2; !taken.add(name.toLowerCase(Locale.ROOT)); n++) {
+                name = base + "-" + n + ".png";
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    static String resultName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + "-inverted.png";
+    }
+
+    private HttpRequest uploadRequest(File imageFile) throws IOException {
+        String boundary = "---boundary-" + UUID.randomUUID().toString();
+        return HttpRequest.newBuilder()
+            .uri(URI.create(apiUrl))
+            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+            .POST(ofMimeMultipartData(imageFile, boundary))
+            .build();
+    }
+
+    // Helper to build Multipart Body manually for Java HttpClient; the file
+    // part is read from disk while the request is sent
+    static HttpRequest.BodyPublisher ofMimeMultipartData(File file, String boundary) throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.getPath());
+        }
         String mimeType = Files.probeContentType(file.toPath());
         if (mimeType == null) mimeType = "application/octet-stream";
 
@@ -63,15 +289,14 @@ public class SwingImageClient {
         String header = "--" + boundary + "\r\n" +
                         "Content-Disposition: form-data; name=\"file\"; filename=\"" + file.getName() + "\"\r\n" +
                         "Content-Type: " + mimeType + "\r\n\r\n";
-        byteArrays.add(header.getBytes(StandardCharsets.UTF_8));
-
-        // 2. File content
-        byteArrays.add(Files.readAllBytes(file.toPath()));
 
         // 3. Footer part
         String footer = "\r\n--" + boundary + "--\r\n";
-        byteArrays.add(footer.getBytes(StandardCharsets.UTF_8));
 
-        return HttpRequest.BodyPublishers.ofByteArrays(byteArrays);
+        return HttpRequest.BodyPublishers.concat(
+                HttpRequest.BodyPublishers.ofByteArray(header.getBytes(StandardCharsets.UTF_8)),
+                // 2. File content
+                HttpRequest.BodyPublishers.ofFile(file.toPath()),
+                HttpRequest.BodyPublishers.ofByteArray(footer.getBytes(StandardCharsets.UTF_8)));
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package backend.models;
 
 import java.awt.image.BufferedImage;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 
 /**
@@ -17,6 +18,13 @@ public class ImageData {
 	private LocalDateTime originDate;
 	private String metaDataCode;
 
+	// Optional memory budget for the buffer, see RasterCache. The fields
+	// below are guarded by this object's monitor and managed by the cache.
+	private RasterCache rasterCache;
+	boolean decoded; // the buffer is exactly what fsPath decodes to
+	boolean evicted; // the buffer was dropped and must be reloaded on access
+	Path spill; // compressed copy of a modified buffer
+
 	public ImageData(String fsPath, String referenceId) {
 		this.fsPath = fsPath;
 		this.referenceId = referenceId;
@@ -28,19 +36,77 @@ public class ImageData {
 
 	// Getters and Setters
 	public BufferedImage getImageBuffer() {
-		return imageBuffer;
+		RasterCache cache = rasterCache;
+		return cache == null ? imageBuffer : cache.get(this);
 	}
 
 	public void setImageBuffer(BufferedImage imageBuffer) {
+		store(imageBuffer, false);
+	}
+
+	/**
+	 * Sets a buffer freshly decoded from fsPath. Unlike setImageBuffer(), a
+	 * cache can drop it without a spill copy and decode the file again.
+	 */
+	public void setDecodedImage(BufferedImage imageBuffer) {
+		store(imageBuffer, true);
+	}
+
+	private void store(BufferedImage imageBuffer, boolean decoded) {
+		RasterCache cache = rasterCache;
+		if (cache == null) {
+			synchronized (this) {
+				this.imageBuffer = imageBuffer;
+				this.decoded = decoded;
+			}
+		} else {
+			cache.put(this, imageBuffer, decoded);
+		}
+	}
+
+	BufferedImage buffer() {
+		return imageBuffer;
+	}
+
+	void buffer(BufferedImage imageBuffer) {
 		this.imageBuffer = imageBuffer;
 	}
 
+	public RasterCache getRasterCache() {
+		return rasterCache;
+	}
+
+	/**
+	 * Puts the buffer under {@code cache}'s budget (null to release it).
+	 */
+	public void setRasterCache(RasterCache rasterCache) {
+		RasterCache previous = this.rasterCache;
+		if (previous == rasterCache) {
+			return;
+		}
+		BufferedImage current = getImageBuffer();
+		boolean wasDecoded = decoded;
+		if (previous != null) {
+			previous.remove(this);
+		}
+		this.rasterCache = rasterCache;
+		store(current, wasDecoded);
+	}
+
 	public String getFsPath() {
 		return fsPath;
 	}
 
 	public void setFsPath(String fsPath) {
-		this.fsPath = fsPath;
+		if (rasterCache != null) {
+			// An evicted buffer must be reloaded from the old file first
+			getImageBuffer();
+		}
+		synchronized (this) {
+			this.fsPath = fsPath;
+			// The buffer no longer matches the file
+			this.decoded = false;
+		}
 	}
 
 	public String getMetaDataCode() {
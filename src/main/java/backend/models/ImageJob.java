@@ -0,0 +1,167 @@
+package backend.models;
+
+import java.time.Instant;
+
+/**
+ * State of an asynchronous processing job.
+ * Transitions: QUEUED -> RUNNING -> SUCCEEDED | FAILED, and QUEUED/RUNNING ->
+ * CANCELLED. Terminal states never change again; every transition method
+ * returns false when it is no longer allowed, so a worker and a cancel
+ * request racing each other cannot both win.
+ */
+public class ImageJob {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isTerminal() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    private final String id;
+    private final String fileName;
+    private final String operations; // JSON array, same form as /api/images/pipeline
+    private final String format;
+    private final Instant createdAt;
+
+    private Status status = Status.QUEUED;
+    private double progress;
+    private String stage;
+    private String error;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long resultSize;
+
+    public ImageJob(String id, String fileName, String operations, String format, Instant createdAt) {
+        this.id = id;
+        this.fileName = fileName;
+        this.operations = operations;
+        this.format = format;
+        this.createdAt = createdAt;
+    }
+
+    public synchronized boolean start() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        status = Status.RUNNING;
+        startedAt = Instant.now();
+        progress = 0;
+        return true;
+    }
+
+    /**
+     * Records progress of a running job; {@code stage} is the step now running.
+     */
+    public synchronized void advance(double progress, String stage) {
+        if (status == Status.RUNNING) {
+            this.progress = Math.max(this.progress, Math.min(1.0, progress));
+            this.stage = stage;
+        }
+    }
+
+    public synchronized boolean succeed(long resultSize) {
+        if (status != Status.RUNNING) {
+            return false;
+        }
+        status = Status.SUCCEEDED;
+        this.resultSize = resultSize;
+        progress = 1.0;
+        stage = null;
+        finishedAt = Instant.now();
+        return true;
+    }
+
+    public synchronized boolean fail(String error) {
+        if (status.isTerminal()) {
+            return false;
+        }
+        status = Status.FAILED;
+        this.error = error;
+        finishedAt = Instant.now();
+        return true;
+    }
+
+    public synchronized boolean cancel() {
+        if (status.isTerminal()) {
+            return false;
+        }
+        status = Status.CANCELLED;
+        finishedAt = Instant.now();
+        return true;
+    }
+
+    /**
+     * A job that was running when the server stopped goes back to the queue.
+     */
+    public synchronized void requeue() {
+        if (!status.isTerminal()) {
+            status = Status.QUEUED;
+            progress = 0;
+            stage = null;
+            startedAt = null;
+        }
+    }
+
+    /**
+     * Restores persisted state (see JobService).
+     */
+    public synchronized void restore(Status status, String error, Instant startedAt, Instant finishedAt,
+                                     long resultSize) {
+        this.status = status;
+        this.error = error;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.resultSize = resultSize;
+        this.progress = status == Status.SUCCEEDED ? 1.0 : 0;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getOperations() {
+        return operations;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized double getProgress() {
+        return progress;
+    }
+
+    public synchronized String getStage() {
+        return stage;
+    }
+
+    public synchronized String getError() {
+        return error;
+    }
+
+    public synchronized Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public synchronized Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public synchronized long getResultSize() {
+        return resultSize;
+    }
+}
@@ -3,28 +3,94 @@ package backend.models;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
+/**
+ * Histórico de processamento. Os bytes das imagens ficam no BlobStore
+ * (endereçado pelo SHA-256 do conteúdo); aqui guardamos apenas as referências.
+ */
 @Entity
-@Table(name = "image_history")
+@Table(name = "image_history", indexes = {
+        // Busca por conteúdo (hash=) e retenção: blob ainda referenciado?
+        @Index(name = "idx_history_original_hash", columnList = "originalHash"),
+        @Index(name = "idx_history_inverted_hash", columnList = "invertedHash"),
+        // Consultas paginadas por keyset (filtro + id)
+        @Index(name = "idx_history_file_name", columnList = "fileName, id"),
+        @Index(name = "idx_history_format", columnList = "invertedFormat, id"),
+        @Index(name = "idx_history_dimensions", columnList = "width, height"),
+        @Index(name = "idx_history_processed_at", columnList = "processedAt"),
+        // Retenção: remove primeiro os menos acessados
+        @Index(name = "idx_history_last_accessed", columnList = "lastAccessedAt, id")
+})
 public class ImageRecord {
 
+    // SEQUENCE (não IDENTITY) para o Hibernate poder agrupar inserts em lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "image_history_seq")
+    @SequenceGenerator(name = "image_history_seq", sequenceName = "image_history_seq", allocationSize = 50)
     private Long id;
 
     private String fileName;
     private LocalDateTime processedAt;
+    private LocalDateTime lastAccessedAt;
 
-    @Lob
-    @Column(length = 10000000) // Aumenta tamanho para imagens grandes
-    private byte[] originalImage;
+    // Imagem original (null quando não foi guardada)
+    @Column(length = 64)
+    private String originalHash;
+    private Long originalSize;
+    @Column(length = 16)
+    private String originalFormat;
 
-    @Lob
-    @Column(length = 10000000)
-    private byte[] invertedImage;
+    // Imagem invertida
+    @Column(length = 64)
+    private String invertedHash;
+    private Long invertedSize;
+    @Column(length = 16)
+    private String invertedFormat;
 
-    // Getters e Setters padrão (omissos para brevidade)
+    // Metadados da imagem (largura/altura em pixels, ex.: "rgb8", "rgba8", "gray16")
+    private Integer width;
+    private Integer height;
+    @Column(length = 16)
+    private String pixelFormat;
+    private Long processingTimeMs;
+
+    public Long getId() { return id; }
+
+    public String getFileName() { return fileName; }
     public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public LocalDateTime getProcessedAt() { return processedAt; }
     public void setProcessedAt(LocalDateTime processedAt) { this.processedAt = processedAt; }
-    public void setOriginalImage(byte[] originalImage) { this.originalImage = originalImage; }
-    public void setInvertedImage(byte[] invertedImage) { this.invertedImage = invertedImage; }
-}
\ No newline at end of file
+
+    public LocalDateTime getLastAccessedAt() { return lastAccessedAt; }
+    public void setLastAccessedAt(LocalDateTime lastAccessedAt) { this.lastAccessedAt = lastAccessedAt; }
+
+    public String getOriginalHash() { return originalHash; }
+    public void setOriginalHash(String originalHash) { this.originalHash = originalHash; }
+
+    public Long getOriginalSize() { return originalSize; }
+    public void setOriginalSize(Long originalSize) { this.originalSize = originalSize; }
+
+    public String getOriginalFormat() { return originalFormat; }
+    public void setOriginalFormat(String originalFormat) { this.originalFormat = originalFormat; }
+
+    public String getInvertedHash() { return invertedHash; }
+    public void setInvertedHash(String invertedHash) { this.invertedHash = invertedHash; }
+
+    public Long getInvertedSize() { return invertedSize; }
+    public void setInvertedSize(Long invertedSize) { this.invertedSize = invertedSize; }
+
+    public String getInvertedFormat() { return invertedFormat; }
+    public void setInvertedFormat(String invertedFormat) { this.invertedFormat = invertedFormat; }
+
+    public Integer getWidth() { return width; }
+    public void setWidth(Integer width) { this.width = width; }
+
+    public Integer getHeight() { return height; }
+    public void setHeight(Integer height) { this.height = height; }
+
+    public String getPixelFormat() { return pixelFormat; }
+    public void setPixelFormat(String pixelFormat) { this.pixelFormat = pixelFormat; }
+
+    public Long getProcessingTimeMs() { return processingTimeMs; }
+    public void setProcessingTimeMs(Long processingTimeMs) { this.processingTimeMs = processingTimeMs; }
+}
@@ -0,0 +1,37 @@
+package backend.models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projeção somente de metadados de ImageRecord, para listagens do histórico.
+ * O Spring Data seleciona apenas estas colunas; os bytes das imagens
+ * continuam no BlobStore e só são lidos quando alguém baixa a imagem.
+ */
+public interface ImageSummary {
+
+    Long getId();
+
+    String getFileName();
+
+    LocalDateTime getProcessedAt();
+
+    Long getOriginalSize();
+
+    String getOriginalFormat();
+
+    Long getInvertedSize();
+
+    String getInvertedFormat();
+
+    String getOriginalHash();
+
+    String getInvertedHash();
+
+    Integer getWidth();
+
+    Integer getHeight();
+
+    String getPixelFormat();
+
+    Long getProcessingTimeMs();
+}
@@ -0,0 +1,246 @@
+package backend.models;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Global byte budget for the decoded buffers of ImageData objects.
+ *
+ * Buffers registered with the cache (ImageData.setRasterCache, or
+ * ImageNode.useRasterCache for a whole tree) are tracked in LRU order. When
+ * their total size exceeds the budget, the least recently used ones are
+ * dropped from their ImageData and transparently reloaded on the next
+ * getImageBuffer():
+ * - a buffer set with setDecodedImage() is decoded again from fsPath;
+ * - any other (e.g. inverted) buffer is first written to a PNG spill file,
+ *   lossless and compressed, and read back from there.
+ *
+ * Spill writes and reloads run on the thread that triggers them, outside
+ * the cache lock. The buffer a caller already holds stays valid after an
+ * eviction; only the ImageData reference is dropped.
+ */
+public class RasterCache implements AutoCloseable {
+
+    /**
+     * Counters since the cache was created. A miss is an access to an
+     * evicted buffer; reloadNanos is the time spent bringing those back.
+     */
+    public record Stats(long hits, long misses, long evictions, long spills, long reloadNanos,
+                        long bytes, long budgetBytes, int entries) {
+
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        public double averageReloadMillis() {
+            return misses == 0 ? 0.0 : reloadNanos / 1_000_000.0 / misses;
+        }
+    }
+
+    private record Entry(BufferedImage image, long bytes) {
+    }
+
+    private final long budgetBytes;
+    private final Path spillDir;
+
+    // Access-ordered: iteration starts with the least recently used buffer
+    private final LinkedHashMap<ImageData, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long spills;
+    private long reloadNanos;
+
+    public RasterCache(long budgetBytes) throws IOException {
+        this(budgetBytes, Files.createTempDirectory("raster-spill"));
+    }
+
+    public RasterCache(long budgetBytes, Path spillDir) throws IOException {
+        if (budgetBytes <= 0) {
+            throw new IllegalArgumentException("Budget must be positive: " + budgetBytes);
+        }
+        this.budgetBytes = budgetBytes;
+        this.spillDir = Files.createDirectories(spillDir);
+    }
+
+    /**
+     * Heap size of a raster's pixel data.
+     */
+    public static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, spills, reloadNanos, bytes, budgetBytes, entries.size());
+    }
+
+    BufferedImage get(ImageData data) {
+        BufferedImage image;
+        long reload = -1;
+        synchronized (data) {
+            image = data.buffer();
+            if (image == null && data.evicted) {
+                long start = System.nanoTime();
+                image = reload(data);
+                reload = System.nanoTime() - start;
+                data.buffer(image);
+                data.evicted = false;
+            }
+        }
+        if (image == null) {
+            return null;
+        }
+        if (reload >= 0) {
+            synchronized (this) {
+                misses++;
+                reloadNanos += reload;
+            }
+            admit(data, image);
+        } else {
+            synchronized (this) {
+                hits++;
+                entries.get(data);
+            }
+        }
+        return image;
+    }
+
+    void put(ImageData data, BufferedImage image, boolean decoded) {
+        Path staleSpill;
+        synchronized (data) {
+            data.buffer(image);
+            data.decoded = decoded;
+            data.evicted = false;
+            staleSpill = data.spill;
+            data.spill = null;
+        }
+        deleteSpill(staleSpill);
+        if (image == null) {
+            forget(data);
+        } else {
+            admit(data, image);
+        }
+    }
+
+    /**
+     * Stops tracking {@code data}; an evicted buffer is reloaded into it
+     * first, so it keeps its image.
+     */
+    void remove(ImageData data) {
+        get(data);
+        Path spill;
+        synchronized (data) {
+            spill = data.spill;
+            data.spill = null;
+        }
+        deleteSpill(spill);
+        forget(data);
+    }
+
+    private synchronized void forget(ImageData data) {
+        Entry old = entries.remove(data);
+        if (old != null) {
+            bytes -= old.bytes;
+        }
+    }
+
+    private void admit(ImageData data, BufferedImage image) {
+        List<Map.Entry<ImageData, Entry>> victims = new ArrayList<>();
+        synchronized (this) {
+            Entry entry = new Entry(image, sizeOf(image));
+            Entry old = entries.put(data, entry);
+            bytes += entry.bytes - (old == null ? 0 : old.bytes);
+            for (Iterator<Map.Entry<ImageData, Entry>> it = entries.entrySet().iterator();
+                 bytes > budgetBytes && it.hasNext(); ) {
+                Map.Entry<ImageData, Entry> eldest = it.next();
+                if (eldest.getKey() == data) {
+                    // A buffer larger than the whole budget still stays while in use
+                    continue;
+                }
+                it.remove();
+                bytes -= eldest.getValue().bytes;
+                evictions++;
+                victims.add(eldest);
+            }
+        }
+        for (Map.Entry<ImageData, Entry> victim : victims) {
+            evict(victim.getKey(), victim.getValue().image);
+        }
+    }
+
+    private void evict(ImageData data, BufferedImage image) {
+        synchronized (data) {
+            if (data.buffer() != image) {
+                // Replaced since it was chosen; the new buffer is tracked on its own
+                return;
+            }
+            if (!data.decoded && data.spill == null) {
+                try {
+                    Path spill = Files.createTempFile(spillDir, "raster", ".png");
+                    ImageIO.write(image, "png", spill.toFile());
+                    data.spill = spill;
+                } catch (IOException e) {
+                    // Keep the buffer rather than lose the only copy
+                    e.printStackTrace();
+                    return;
+                }
+                synchronized (this) {
+                    spills++;
+                }
+            }
+            data.buffer(null);
+            data.evicted = true;
+        }
+    }
+
+    private static BufferedImage reload(ImageData data) {
+        File file = data.spill != null ? data.spill.toFile() : new File(data.getFsPath());
+        try {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                throw new IOException("Not a valid image: " + file);
+            }
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not reload evicted image " + data.getReferenceId(), e);
+        }
+    }
+
+    private static void deleteSpill(Path spill) {
+        if (spill != null) {
+            try {
+                Files.deleteIfExists(spill);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Deletes the spill directory. Evicted buffers that were spilled cannot
+     * be reloaded afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        try (var files = Files.list(spillDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(spillDir);
+    }
+}
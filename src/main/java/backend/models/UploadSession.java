@@ -0,0 +1,119 @@
+package backend.models;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * State of a resumable chunked upload.
+ * Received bytes are tracked as merged [start, end) ranges so chunks may
+ * arrive out of order, be retried, or stop half-way through.
+ */
+public class UploadSession {
+
+    private final String id;
+    private final String fileName;
+    private final long totalSize;
+    private final Instant createdAt;
+
+    // start offset -> end offset (exclusive), never overlapping or adjacent
+    private final TreeMap<Long, Long> received = new TreeMap<>();
+
+    public UploadSession(String id, String fileName, long totalSize, Instant createdAt) {
+        this.id = id;
+        this.fileName = fileName;
+        this.totalSize = totalSize;
+        this.createdAt = createdAt;
+    }
+
+    public synchronized void markReceived(long start, long end) {
+        if (start < 0 || end > totalSize || start > end) {
+            throw new IllegalArgumentException("Range " + start + "-" + end + " is outside 0-" + totalSize);
+        }
+        if (start == end) {
+            return;
+        }
+        long mergedStart = start;
+        long mergedEnd = end;
+
+        Map.Entry<Long, Long> floor = received.floorEntry(start);
+        if (floor != null && floor.getValue() >= start) {
+            mergedStart = floor.getKey();
+            mergedEnd = Math.max(mergedEnd, floor.getValue());
+        }
+        Map.Entry<Long, Long> next = received.ceilingEntry(mergedStart);
+        while (next != null && next.getKey() <= mergedEnd) {
+            mergedEnd = Math.max(mergedEnd, next.getValue());
+            received.remove(next.getKey());
+            next = received.ceilingEntry(mergedStart);
+        }
+        received.put(mergedStart, mergedEnd);
+    }
+
+    public synchronized long getReceivedBytes() {
+        long total = 0;
+        for (Map.Entry<Long, Long> range : received.entrySet()) {
+            total += range.getValue() - range.getKey();
+        }
+        return total;
+    }
+
+    public synchronized boolean isComplete() {
+        return getReceivedBytes() == totalSize;
+    }
+
+    /**
+     * Offset the client should resume from: the start of the first gap.
+     */
+    public synchronized long getNextOffset() {
+        Map.Entry<Long, Long> first = received.firstEntry();
+        if (first == null || first.getKey() > 0) {
+            return 0;
+        }
+        return first.getValue();
+    }
+
+    /**
+     * Gaps as [start, end) pairs.
+     */
+    public synchronized List<long[]> getMissingRanges() {
+        List<long[]> missing = new ArrayList<>();
+        long cursor = 0;
+        for (Map.Entry<Long, Long> range : received.entrySet()) {
+            if (range.getKey() > cursor) {
+                missing.add(new long[]{cursor, range.getKey()});
+            }
+            cursor = range.getValue();
+        }
+        if (cursor < totalSize) {
+            missing.add(new long[]{cursor, totalSize});
+        }
+        return missing;
+    }
+
+    public synchronized List<long[]> getReceivedRanges() {
+        List<long[]> ranges = new ArrayList<>();
+        for (Map.Entry<Long, Long> range : received.entrySet()) {
+            ranges.add(new long[]{range.getKey(), range.getValue()});
+        }
+        return ranges;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,229 @@
+package backend.nodes;
+
+import backend.models.ImageData;
+import backend.processor.ImageProcessor;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ImageProcessor that decodes the upcoming nodes of a tree ahead of time,
+ * so disk reads and decoding overlap with the pixel work instead of
+ * stalling it.
+ *
+ * The tree is walked in pre-order (a node, then its children in order),
+ * which is the order run() processes it in. Each loadImage() for a node of
+ * the tree starts decoding the next nodes on a separate I/O pool, keeping
+ * at most {@code window} decoded-but-unused images around; when the node's
+ * own image was prefetched it is handed over instead of read again.
+ * Derived nodes and nodes that already hold a buffer load nothing and are
+ * not prefetched.
+ *
+ * The processor also works with ImageTreeExecutor, but its traversal order
+ * differs from pre-order, so fewer loads find their image prefetched.
+ */
+public class DecodeAheadProcessor implements ImageProcessor, AutoCloseable {
+
+    /**
+     * hits: loads served by a prefetch; misses: loads decoded on demand;
+     * waitNanos: time loads spent waiting for a prefetch still in flight;
+     * wasted: prefetched images never used.
+     */
+    public record Stats(long hits, long misses, long waitNanos, long wasted) {
+    }
+
+    private final ImageProcessor delegate;
+    private final List<ImageNode> order;
+    private final Map<ImageData, Integer> positions = new IdentityHashMap<>();
+    private final int window;
+    private final ExecutorService ioPool;
+    private final boolean ownsPool;
+
+    // Guarded by this
+    private final Map<ImageData, CompletableFuture<BufferedImage>> prefetched = new IdentityHashMap<>();
+    private int cursor;
+    private long hits;
+    private long misses;
+    private long waitNanos;
+    private long wasted;
+
+    public DecodeAheadProcessor(ImageProcessor delegate, ImageNode root, int window) {
+        this(delegate, root, window, newIoPool(Math.max(1, Math.min(window, Runtime.getRuntime().availableProcessors()))), true);
+    }
+
+    public DecodeAheadProcessor(ImageProcessor delegate, ImageNode root, int window, ExecutorService ioPool) {
+        this(delegate, root, window, ioPool, false);
+    }
+
+    private DecodeAheadProcessor(ImageProcessor delegate, ImageNode root, int window,
+                                 ExecutorService ioPool, boolean ownsPool) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Window must be at least 1: " + window);
+        }
+        this.delegate = delegate;
+        this.window = window;
+        this.ioPool = ioPool;
+        this.ownsPool = ownsPool;
+        this.order = preOrder(root);
+        for (int i = 0; i < order.size(); i++) {
+            positions.put(order.get(i).getData(), i);
+        }
+    }
+
+    private static ExecutorService newIoPool(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "decode-ahead-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static List<ImageNode> preOrder(ImageNode root) {
+        List<ImageNode> nodes = new ArrayList<>();
+        Deque<ImageNode> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            ImageNode node = pending.pop();
+            nodes.add(node);
+            List<ImageNode> children = node.getChildrenView();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.push(children.get(i));
+            }
+        }
+        return nodes;
+    }
+
+    @Override
+    public void loadImage(ImageData data) throws IOException {
+        CompletableFuture<BufferedImage> future;
+        synchronized (this) {
+            future = prefetched.remove(data);
+        }
+        Integer position = positions.get(data);
+        if (position != null) {
+            prefetchAfter(position);
+        }
+
+        if (future != null) {
+            long start = System.nanoTime();
+            try {
+                BufferedImage image = future.get();
+                synchronized (this) {
+                    hits++;
+                    waitNanos += System.nanoTime() - start;
+                }
+                data.setDecodedImage(image);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for " + data.getFsPath(), e);
+            } catch (ExecutionException e) {
+                // Decode again below, so the caller gets the processor's own error
+            }
+        }
+        synchronized (this) {
+            misses++;
+        }
+        delegate.loadImage(data);
+    }
+
+    /**
+     * Schedules decodes of the nodes after {@code position}, up to the
+     * window size.
+     */
+    private synchronized void prefetchAfter(int position) {
+        cursor = Math.max(cursor, position + 1);
+        while (cursor < order.size() && prefetched.size() < window && !ioPool.isShutdown()) {
+            ImageNode node = order.get(cursor++);
+            ImageData data = node.getData();
+            if (data == null || node.isDerivedFromParent() || data.getImageBuffer() != null) {
+                continue;
+            }
+            String path = data.getFsPath();
+            prefetched.put(data, CompletableFuture.supplyAsync(() -> {
+                ImageData scratch = new ImageData(path, data.getReferenceId());
+                try {
+                    delegate.loadImage(scratch);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return scratch.getImageBuffer();
+            }, ioPool));
+        }
+    }
+
+    @Override
+    public void invertColors(ImageData data) {
+        delegate.invertColors(data);
+    }
+
+    @Override
+    public void saveImage(ImageData data, String outputPath) throws IOException {
+        delegate.saveImage(data, outputPath);
+    }
+
+    /**
+     * Processes the whole tree on the calling thread, in pre-order, with the
+     * same rules as ImageTreeExecutor: derived nodes take their parent's
+     * image and are skipped when it did not succeed.
+     */
+    public ImageTreeExecutor.Report run() {
+        List<ImageTreeExecutor.NodeResult> results = new ArrayList<>(order.size());
+        Set<ImageNode> notSucceeded = new HashSet<>();
+        long wallStart = System.nanoTime();
+        for (ImageNode node : order) {
+            if (node.isDerivedFromParent() && notSucceeded.contains(node.getParent())) {
+                notSucceeded.add(node);
+                results.add(new ImageTreeExecutor.NodeResult(node.getNodeId(), ImageTreeExecutor.Status.SKIPPED, 0, null));
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                if (node.isDerivedFromParent() && node.getParent() != null) {
+                    node.getData().setImageBuffer(node.getParent().getData().getImageBuffer());
+                }
+                node.processOrThrow(this);
+                results.add(new ImageTreeExecutor.NodeResult(node.getNodeId(), ImageTreeExecutor.Status.SUCCEEDED,
+                        System.nanoTime() - start, null));
+            } catch (Exception e) {
+                notSucceeded.add(node);
+                results.add(new ImageTreeExecutor.NodeResult(node.getNodeId(), ImageTreeExecutor.Status.FAILED,
+                        System.nanoTime() - start, e));
+            }
+        }
+        return new ImageTreeExecutor.Report(results, System.nanoTime() - wallStart);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, waitNanos, wasted + prefetched.size());
+    }
+
+    /**
+     * Drops unused prefetches and, when the pool was created here, stops it.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            prefetched.values().forEach(future -> future.cancel(false));
+            wasted += prefetched.size();
+            prefetched.clear();
+        }
+        if (ownsPool) {
+            ioPool.shutdownNow();
+        }
+    }
+}
@@ -3,8 +3,13 @@ package backend.nodes;
 import backend.processor.ImageProcessor;
 
 import backend.models.ImageData;
+import backend.models.RasterCache;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.UUID;
 
@@ -17,8 +22,19 @@ public class ImageNode {
     private ImageNode parent;
     private List<ImageNode> children;
 
+    // When true this node works on its parent's processed image instead of
+    // loading its own file, so it can only run after the parent
+    private boolean derivedFromParent;
+
     public ImageNode(ImageData data) {
-        this.nodeId = UUID.randomUUID().toString();
+        this(UUID.randomUUID().toString(), data);
+    }
+
+    /**
+     * Restores a node with a known id (see NodeSnapshot).
+     */
+    public ImageNode(String nodeId, ImageData data) {
+        this.nodeId = nodeId;
         this.data = data;
         this.children = new ArrayList<>();
     }
@@ -39,6 +55,14 @@ public class ImageNode {
         return new ArrayList<>(children);
     }
 
+    /**
+     * Read-only view of the children, without the copy getChildren() makes.
+     * Do not modify the tree while iterating it.
+     */
+    public List<ImageNode> getChildrenView() {
+        return Collections.unmodifiableList(children);
+    }
+
     public ImageNode getParent() {
         return parent;
     }
@@ -61,16 +85,36 @@ public class ImageNode {
         this.data = data;
     }
 
+    public boolean isDerivedFromParent() {
+        return derivedFromParent;
+    }
+
+    public void setDerivedFromParent(boolean derivedFromParent) {
+        this.derivedFromParent = derivedFromParent;
+    }
+
+    /**
+     * Puts the buffers of this node and all its descendants under
+     * {@code cache}'s memory budget (null to release them).
+     */
+    public void useRasterCache(RasterCache cache) {
+        Deque<ImageNode> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            ImageNode node = pending.pop();
+            if (node.data != null) {
+                node.data.setRasterCache(cache);
+            }
+            // Through the getter: snapshot nodes create their children on first use
+            node.getChildrenView().forEach(pending::push);
+        }
+    }
+
     // --- Processing Hook ---
     
     public void process(ImageProcessor processor) {
         try {
-            // 1. Load image if not loaded
-            if (data.getImageBuffer() == null) {
-                processor.loadImage(data);
-            }
-            // 2. Apply inversion
-            processor.invertColors(data);
+            processOrThrow(processor);
             
             System.out.println("Node " + nodeId + " processed successfully.");
             
@@ -79,4 +123,16 @@ public class ImageNode {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Same work as process(), but failures go to the caller (see ImageTreeExecutor).
+     */
+    public void processOrThrow(ImageProcessor processor) throws IOException {
+        // 1. Load image if not loaded
+        if (data.getImageBuffer() == null) {
+            processor.loadImage(data);
+        }
+        // 2. Apply inversion
+        processor.invertColors(data);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package backend.nodes;
+
+import backend.processor.ImageProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Processes an ImageNode tree in parallel on a ForkJoinPool.
+ *
+ * Every node is its own task. Children are independent of their parent and
+ * start right away, except children marked derivedFromParent: those work on
+ * the parent's processed image, so they start once the parent succeeded and
+ * are skipped when it failed.
+ *
+ * Tasks are CountedCompleters: a worker never blocks waiting for children,
+ * and deep trees do not grow the call stack. A failing node does not stop
+ * the run; every node's outcome and processing time ends up in the Report.
+ */
+public class ImageTreeExecutor {
+
+    public enum Status {
+        SUCCEEDED, FAILED, SKIPPED
+    }
+
+    /**
+     * Outcome of one node. {@code error} is set for FAILED nodes only.
+     */
+    public record NodeResult(String nodeId, Status status, long durationNanos, Exception error) {
+    }
+
+    /**
+     * Aggregated outcome of a run.
+     */
+    public static final class Report {
+
+        private final List<NodeResult> results;
+        private final long wallTimeNanos;
+
+        Report(List<NodeResult> results, long wallTimeNanos) {
+            this.results = List.copyOf(results);
+            this.wallTimeNanos = wallTimeNanos;
+        }
+
+        /**
+         * One result per node, in completion order.
+         */
+        public List<NodeResult> getResults() {
+            return results;
+        }
+
+        public List<NodeResult> getFailures() {
+            return results.stream().filter(result -> result.status() == Status.FAILED).toList();
+        }
+
+        public long count(Status status) {
+            return results.stream().filter(result -> result.status() == status).count();
+        }
+
+        public long getWallTimeNanos() {
+            return wallTimeNanos;
+        }
+
+        /**
+         * Sum of the per-node processing times; divided by the wall time this
+         * is the parallelism the run achieved.
+         */
+        public long getTotalNodeTimeNanos() {
+            return results.stream().mapToLong(NodeResult::durationNanos).sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d nodes: %d succeeded, %d failed, %d skipped in %d ms (%.1fx parallel)",
+                    results.size(), count(Status.SUCCEEDED), count(Status.FAILED), count(Status.SKIPPED),
+                    wallTimeNanos / 1_000_000,
+                    wallTimeNanos == 0 ? 0.0 : (double) getTotalNodeTimeNanos() / wallTimeNanos);
+        }
+    }
+
+    private final ImageProcessor processor;
+    private final ForkJoinPool pool;
+
+    public ImageTreeExecutor(ImageProcessor processor) {
+        this(processor, ForkJoinPool.commonPool());
+    }
+
+    public ImageTreeExecutor(ImageProcessor processor, ForkJoinPool pool) {
+        this.processor = processor;
+        this.pool = pool;
+    }
+
+    /**
+     * Processes {@code root} and all its descendants and waits for them.
+     * The tree must not be modified while this runs.
+     */
+    public Report execute(ImageNode root) {
+        Queue<NodeResult> results = new ConcurrentLinkedQueue<>();
+        long start = System.nanoTime();
+        pool.invoke(new NodeTask(null, root, false, results));
+        return new Report(new ArrayList<>(results), System.nanoTime() - start);
+    }
+
+    // ForkJoinTask is Serializable, but tasks only live inside one run and are never serialized
+    @SuppressWarnings("serial")
+    private final class NodeTask extends CountedCompleter<Void> {
+
+        private final ImageNode node;
+        private final boolean skip;
+        private final Queue<NodeResult> results;
+
+        NodeTask(CountedCompleter<?> completer, ImageNode node, boolean skip, Queue<NodeResult> results) {
+            super(completer);
+            this.node = node;
+            this.skip = skip;
+            this.results = results;
+        }
+
+        @Override
+        public void compute() {
+            List<ImageNode> derived = new ArrayList<>();
+            for (ImageNode child : node.getChildrenView()) {
+                if (child.isDerivedFromParent()) {
+                    derived.add(child);
+                } else {
+                    addToPendingCount(1);
+                    new NodeTask(this, child, false, results).fork();
+                }
+            }
+
+            boolean succeeded = false;
+            if (skip) {
+                results.add(new NodeResult(node.getNodeId(), Status.SKIPPED, 0, null));
+            } else {
+                succeeded = processNode();
+            }
+
+            // Forking after processing publishes the parent's image to the derived children
+            for (ImageNode child : derived) {
+                addToPendingCount(1);
+                new NodeTask(this, child, !succeeded, results).fork();
+            }
+            tryComplete();
+        }
+
+        private boolean processNode() {
+            long start = System.nanoTime();
+            try {
+                if (node.isDerivedFromParent() && node.getParent() != null) {
+                    node.getData().setImageBuffer(node.getParent().getData().getImageBuffer());
+                }
+                node.processOrThrow(processor);
+                results.add(new NodeResult(node.getNodeId(), Status.SUCCEEDED, System.nanoTime() - start, null));
+                return true;
+            } catch (Exception e) {
+                results.add(new NodeResult(node.getNodeId(), Status.FAILED, System.nanoTime() - start, e));
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,596 @@
+package backend.nodes;
+
+import backend.models.ImageData;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Compact binary snapshot of a NodeType or ImageNode catalog.
+ *
+ * Opening a snapshot maps the file read-only and checks its header; nothing
+ * is parsed up front, so a catalog of any size is queryable right away.
+ * Lookups by id go through a hash index stored in the file, and node
+ * objects are only created for the nodes that are actually touched:
+ * children of both NodeTypes and ImageNodes are linked on first access.
+ *
+ * Layout (big-endian ints, offsets from the start of the file):
+ * - header: magic, version, kind, node/root/string counts, index size and
+ *   the offset of each section below;
+ * - roots: node indices;
+ * - nodes: NODE_INTS ints per node (id, name, original path, inverted
+ *   path, metadata as string indices or -1, flags, first child, child
+ *   count);
+ * - children: node indices, -1 for an absent NodeType side;
+ * - index: open-addressing table (linear probing) of node indices keyed
+ *   by id, -1 for empty slots;
+ * - strings: offset table, then length-prefixed UTF-8 data. Equal strings
+ *   (e.g. shared directory paths) are stored once.
+ *
+ * NodeType's generic data object is not part of the snapshot. Ids are
+ * expected to be unique; a duplicate id resolves to its first node.
+ */
+public final class NodeSnapshot {
+
+    public static final int KIND_NODE_TYPE = 1;
+    public static final int KIND_IMAGE_NODE = 2;
+
+    private static final int MAGIC = 0x4E534E50; // "NSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 13;
+    private static final int NODE_INTS = 8;
+
+    private static final int ID = 0;
+    private static final int NAME = 1;
+    private static final int ORIGINAL = 2;
+    private static final int INVERTED = 3;
+    private static final int METADATA = 4;
+    private static final int FLAGS = 5;
+    private static final int FIRST_CHILD = 6;
+    private static final int CHILD_COUNT = 7;
+
+    private static final int FLAG_DERIVED = 1;
+
+    private final ByteBuffer buffer;
+    private final int kind;
+    private final int nodeCount;
+    private final int rootCount;
+    private final int stringCount;
+    private final int indexSlots;
+    private final int rootsOffset;
+    private final int nodesOffset;
+    private final int childrenOffset;
+    private final int indexOffset;
+    private final int stringOffsetsOffset;
+    private final int stringDataOffset;
+
+    private final AtomicReferenceArray<NodeType> nodeTypes;
+    private final AtomicInteger materialized = new AtomicInteger();
+
+    private NodeSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a node snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported node snapshot version: " + buffer.getInt(4));
+        }
+        this.kind = buffer.getInt(8);
+        this.nodeCount = buffer.getInt(12);
+        this.rootCount = buffer.getInt(16);
+        this.stringCount = buffer.getInt(20);
+        this.indexSlots = buffer.getInt(24);
+        this.rootsOffset = buffer.getInt(28);
+        this.nodesOffset = buffer.getInt(32);
+        this.childrenOffset = buffer.getInt(36);
+        this.indexOffset = buffer.getInt(40);
+        this.stringOffsetsOffset = buffer.getInt(44);
+        this.stringDataOffset = buffer.getInt(48);
+        if (kind != KIND_NODE_TYPE && kind != KIND_IMAGE_NODE
+                || Integer.bitCount(indexSlots) != 1
+                || stringDataOffset > buffer.limit()
+                || (long) indexOffset + indexSlots * 4L > stringOffsetsOffset
+                || (long) stringOffsetsOffset + stringCount * 4L > stringDataOffset) {
+            throw new IOException("Corrupt node snapshot header");
+        }
+        this.nodeTypes = new AtomicReferenceArray<>(kind == KIND_NODE_TYPE ? nodeCount : 0);
+    }
+
+    /**
+     * Maps {@code file} read-only. The mapping stays valid after this
+     * returns; the file must not be modified while it is in use.
+     */
+    public static NodeSnapshot open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Node snapshot too large: " + channel.size() + " bytes");
+            }
+            return new NodeSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // --- Raw access ---
+
+    public int kind() {
+        return kind;
+    }
+
+    public int size() {
+        return nodeCount;
+    }
+
+    public int[] roots() {
+        int[] roots = new int[rootCount];
+        for (int i = 0; i < rootCount; i++) {
+            roots[i] = buffer.getInt(rootsOffset + i * 4);
+        }
+        return roots;
+    }
+
+    /**
+     * Index of the node with this id, or -1.
+     */
+    public int indexOf(String id) {
+        if (id == null || nodeCount == 0) {
+            return -1;
+        }
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int mask = indexSlots - 1;
+        for (int slot = spread(id.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int node = buffer.getInt(indexOffset + slot * 4);
+            if (node < 0) {
+                return -1;
+            }
+            if (stringEquals(field(node, ID), key)) {
+                return node;
+            }
+        }
+    }
+
+    public String id(int node) {
+        return string(field(node, ID));
+    }
+
+    public String name(int node) {
+        return string(field(node, NAME));
+    }
+
+    public String originalPath(int node) {
+        return string(field(node, ORIGINAL));
+    }
+
+    public String invertedPath(int node) {
+        return string(field(node, INVERTED));
+    }
+
+    public String metadata(int node) {
+        return string(field(node, METADATA));
+    }
+
+    public boolean isDerivedFromParent(int node) {
+        return (field(node, FLAGS) & FLAG_DERIVED) != 0;
+    }
+
+    public int childCount(int node) {
+        return field(node, CHILD_COUNT);
+    }
+
+    /**
+     * Index of a child, or -1 for an absent NodeType side (0 = left, 1 = right).
+     */
+    public int child(int node, int position) {
+        if (position < 0 || position >= childCount(node)) {
+            throw new IndexOutOfBoundsException("Child " + position + " of node " + node);
+        }
+        return buffer.getInt(childrenOffset + (field(node, FIRST_CHILD) + position) * 4);
+    }
+
+    private int field(int node, int field) {
+        if (node < 0 || node >= nodeCount) {
+            throw new IndexOutOfBoundsException("Node " + node + " of " + nodeCount);
+        }
+        return buffer.getInt(nodesOffset + (node * NODE_INTS + field) * 4);
+    }
+
+    private String string(int index) {
+        if (index < 0) {
+            return null;
+        }
+        int offset = stringDataOffset + buffer.getInt(stringOffsetsOffset + index * 4);
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean stringEquals(int index, byte[] key) {
+        int offset = stringDataOffset + buffer.getInt(stringOffsetsOffset + index * 4);
+        if (buffer.getInt(offset) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + 4 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // --- Materialization ---
+
+    /**
+     * The NodeType with this id, or null. Its children are created when
+     * first accessed; each node is created once per snapshot.
+     */
+    public NodeType nodeType(String id) {
+        int node = indexOf(id);
+        return node < 0 ? null : nodeType(node);
+    }
+
+    public NodeType nodeType(int node) {
+        if (kind != KIND_NODE_TYPE) {
+            throw new IllegalStateException("Snapshot does not hold NodeTypes");
+        }
+        NodeType existing = nodeTypes.get(node);
+        if (existing != null) {
+            return existing;
+        }
+        NodeType created = new LazyNodeType(node);
+        if (nodeTypes.compareAndSet(node, null, created)) {
+            materialized.incrementAndGet();
+            return created;
+        }
+        return nodeTypes.get(node);
+    }
+
+    /**
+     * Number of node objects created so far: each NodeType once, plus every
+     * ImageNode built by imageNode() or by expanding its children.
+     */
+    public int materializedCount() {
+        return materialized.get();
+    }
+
+    /**
+     * Returns the ImageNode with this id, or null. Its children are created
+     * from the snapshot on first access, so only the part of the subtree that
+     * is actually walked is built. Every call builds new objects.
+     */
+    public ImageNode imageNode(String id) {
+        int node = indexOf(id);
+        return node < 0 ? null : imageNode(node);
+    }
+
+    public ImageNode imageNode(int node) {
+        if (kind != KIND_IMAGE_NODE) {
+            throw new IllegalStateException("Snapshot does not hold ImageNodes");
+        }
+        return new LazyImageNode(node);
+    }
+
+    private ImageData imageData(int node) {
+        ImageData data = new ImageData(originalPath(node), name(node));
+        String metadata = metadata(node);
+        if (metadata != null) {
+            data.setMetaDataCode(metadata);
+        }
+        return data;
+    }
+
+    /**
+     * ImageNode whose children are read from the snapshot the first time the
+     * children are used (listed, added to or removed from).
+     */
+    private final class LazyImageNode extends ImageNode {
+
+        private final int node;
+        private volatile boolean linked;
+
+        LazyImageNode(int node) {
+            super(id(node), imageData(node));
+            this.node = node;
+            setDerivedFromParent(NodeSnapshot.this.isDerivedFromParent(node));
+            materialized.incrementAndGet();
+        }
+
+        private void link() {
+            if (linked) {
+                return;
+            }
+            synchronized (this) {
+                if (!linked) {
+                    for (int i = 0; i < childCount(node); i++) {
+                        super.addChild(new LazyImageNode(child(node, i)));
+                    }
+                    linked = true;
+                }
+            }
+        }
+
+        @Override
+        public void addChild(ImageNode child) {
+            link();
+            super.addChild(child);
+        }
+
+        @Override
+        public void removeChild(ImageNode child) {
+            link();
+            super.removeChild(child);
+        }
+
+        @Override
+        public List<ImageNode> getChildren() {
+            link();
+            return super.getChildren();
+        }
+
+        @Override
+        public List<ImageNode> getChildrenView() {
+            link();
+            return super.getChildrenView();
+        }
+    }
+
+    /**
+     * NodeType whose children are looked up in the snapshot on first use.
+     * Setting a child replaces the snapshot's link as usual.
+     */
+    private final class LazyNodeType extends NodeType {
+
+        private final int node;
+        private volatile boolean linked;
+
+        LazyNodeType(int node) {
+            super(id(node), name(node));
+            this.node = node;
+            super.setOriginalImagePath(originalPath(node));
+            super.setInvertedImagePath(invertedPath(node));
+        }
+
+        private void link() {
+            if (linked) {
+                return;
+            }
+            synchronized (this) {
+                if (!linked) {
+                    int left = child(node, 0);
+                    int right = child(node, 1);
+                    super.setLeftNode(left < 0 ? null : nodeType(left));
+                    super.setRightNode(right < 0 ? null : nodeType(right));
+                    linked = true;
+                }
+            }
+        }
+
+        @Override
+        public boolean isBranch() {
+            return linked ? super.isBranch() : child(node, 0) >= 0 || child(node, 1) >= 0;
+        }
+
+        @Override
+        public NodeType getLeftNode() {
+            link();
+            return super.getLeftNode();
+        }
+
+        @Override
+        public NodeType getRightNode() {
+            link();
+            return super.getRightNode();
+        }
+
+        @Override
+        public void setLeftNode(NodeType left) {
+            link();
+            super.setLeftNode(left);
+        }
+
+        @Override
+        public void setRightNode(NodeType right) {
+            link();
+            super.setRightNode(right);
+        }
+    }
+
+    // --- Writing ---
+
+    private record Entry(String id, String name, String original, String inverted, String metadata,
+                         int flags, int[] children) {
+    }
+
+    /**
+     * Writes the NodeType trees under {@code roots}. Shared nodes are
+     * stored once; cycles are allowed.
+     */
+    public static void writeNodeTypes(Path file, Collection<? extends NodeType> roots) throws IOException {
+        Map<NodeType, Integer> indices = new IdentityHashMap<>();
+        List<NodeType> nodes = new ArrayList<>();
+        int[] rootIndices = new int[roots.size()];
+        int r = 0;
+        for (NodeType root : roots) {
+            rootIndices[r++] = assign(root, indices, nodes);
+        }
+        // nodes grows while it is walked: breadth-first numbering
+        for (int i = 0; i < nodes.size(); i++) {
+            NodeType node = nodes.get(i);
+            for (NodeType child : new NodeType[]{node.getLeftNode(), node.getRightNode()}) {
+                if (child != null) {
+                    assign(child, indices, nodes);
+                }
+            }
+        }
+        List<Entry> entries = new ArrayList<>(nodes.size());
+        for (NodeType node : nodes) {
+            NodeType left = node.getLeftNode();
+            NodeType right = node.getRightNode();
+            int[] children = {left == null ? -1 : indices.get(left), right == null ? -1 : indices.get(right)};
+            entries.add(new Entry(node.getId(), node.getName(), node.getOriginalImagePath(),
+                    node.getInvertedImagePath(), null, 0, children));
+        }
+        write(file, KIND_NODE_TYPE, entries, rootIndices);
+    }
+
+    /**
+     * Writes the ImageNode trees under {@code roots}, keeping node ids, the
+     * data's path, reference id and metadata code, and the derived flag.
+     * Image buffers are not stored.
+     */
+    public static void writeImageNodes(Path file, Collection<? extends ImageNode> roots) throws IOException {
+        Map<ImageNode, Integer> indices = new IdentityHashMap<>();
+        List<ImageNode> nodes = new ArrayList<>();
+        int[] rootIndices = new int[roots.size()];
+        int r = 0;
+        for (ImageNode root : roots) {
+            rootIndices[r++] = assign(root, indices, nodes);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            for (ImageNode child : nodes.get(i).getChildrenView()) {
+                assign(child, indices, nodes);
+            }
+        }
+        List<Entry> entries = new ArrayList<>(nodes.size());
+        for (ImageNode node : nodes) {
+            int[] children = node.getChildrenView().stream().mapToInt(indices::get).toArray();
+            ImageData data = node.getData();
+            entries.add(new Entry(node.getNodeId(),
+                    data == null ? null : data.getReferenceId(),
+                    data == null ? null : data.getFsPath(),
+                    null,
+                    data == null || data.getMetaDataCode() == null || data.getMetaDataCode().isEmpty()
+                            ? null : data.getMetaDataCode(),
+                    node.isDerivedFromParent() ? FLAG_DERIVED : 0,
+                    children));
+        }
+        write(file, KIND_IMAGE_NODE, entries, rootIndices);
+    }
+
+    private static <T> int assign(T node, Map<T, Integer> indices, List<T> nodes) {
+        Integer index = indices.get(node);
+        if (index == null) {
+            index = nodes.size();
+            indices.put(node, index);
+            nodes.add(node);
+        }
+        return index;
+    }
+
+    private static void write(Path file, int kind, List<Entry> entries, int[] roots) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        int[] fields = new int[entries.size() * NODE_INTS];
+        int childTotal = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            int base = i * NODE_INTS;
+            fields[base + ID] = intern(entry.id(), strings);
+            fields[base + NAME] = intern(entry.name(), strings);
+            fields[base + ORIGINAL] = intern(entry.original(), strings);
+            fields[base + INVERTED] = intern(entry.inverted(), strings);
+            fields[base + METADATA] = intern(entry.metadata(), strings);
+            fields[base + FLAGS] = entry.flags();
+            fields[base + FIRST_CHILD] = childTotal;
+            fields[base + CHILD_COUNT] = entry.children().length;
+            childTotal += entry.children().length;
+        }
+
+        int indexSlots = Integer.highestOneBit(Math.max(1, entries.size()) * 2 - 1) << 1;
+        int[] index = new int[indexSlots];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < entries.size(); i++) {
+            String id = entries.get(i).id();
+            if (id == null) {
+                continue;
+            }
+            int slot = spread(id.hashCode()) & (indexSlots - 1);
+            boolean duplicate = false;
+            while (index[slot] >= 0 && !(duplicate = id.equals(entries.get(index[slot]).id()))) {
+                slot = (slot + 1) & (indexSlots - 1);
+            }
+            if (!duplicate) {
+                index[slot] = i;
+            }
+        }
+
+        List<byte[]> encoded = new ArrayList<>(strings.size());
+        long stringBytes = 0;
+        for (String s : strings.keySet()) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            stringBytes += 4 + bytes.length;
+        }
+
+        long rootsOffset = HEADER_INTS * 4L;
+        long nodesOffset = rootsOffset + roots.length * 4L;
+        long childrenOffset = nodesOffset + fields.length * 4L;
+        long indexOffset = childrenOffset + childTotal * 4L;
+        long stringOffsetsOffset = indexOffset + indexSlots * 4L;
+        long stringDataOffset = stringOffsetsOffset + encoded.size() * 4L;
+        if (stringDataOffset + stringBytes > Integer.MAX_VALUE) {
+            throw new IOException("Catalog too large for a node snapshot");
+        }
+
+        Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                for (long value : new long[]{MAGIC, VERSION, kind, entries.size(), roots.length, encoded.size(),
+                        indexSlots, rootsOffset, nodesOffset, childrenOffset, indexOffset,
+                        stringOffsetsOffset, stringDataOffset}) {
+                    out.writeInt((int) value);
+                }
+                for (int root : roots) {
+                    out.writeInt(root);
+                }
+                for (int field : fields) {
+                    out.writeInt(field);
+                }
+                for (Entry entry : entries) {
+                    for (int child : entry.children()) {
+                        out.writeInt(child);
+                    }
+                }
+                for (int slot : index) {
+                    out.writeInt(slot);
+                }
+                int offset = 0;
+                for (byte[] bytes : encoded) {
+                    out.writeInt(offset);
+                    offset += 4 + bytes.length;
+                }
+                for (byte[] bytes : encoded) {
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static int intern(String value, Map<String, Integer> strings) {
+        if (value == null) {
+            return -1;
+        }
+        return strings.computeIfAbsent(value, s -> strings.size());
+    }
+}
@@ -19,7 +19,7 @@ public class NodeType {
 	}
 
 	public boolean isBranch() {
-		return (leftNode != null) || (rightNode != null);
+		return (getLeftNode() != null) || (getRightNode() != null);
 	}
 
 	public void setData(Object doc) {
@@ -30,6 +30,18 @@ public class NodeType {
 		}
 	}
 
+	public Object getData() {
+		return data;
+	}
+
+	public NodeType getLeftNode() {
+		return leftNode;
+	}
+
+	public NodeType getRightNode() {
+		return rightNode;
+	}
+
 	public void setLeftNode(NodeType node) {
 		this.leftNode = node;
 	}
@@ -41,4 +53,24 @@ public class NodeType {
 	public String getId() {
 		return id;
 	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getOriginalImagePath() {
+		return originalImagePath;
+	}
+
+	public void setOriginalImagePath(String originalImagePath) {
+		this.originalImagePath = originalImagePath;
+	}
+
+	public String getInvertedImagePath() {
+		return invertedImagePath;
+	}
+
+	public void setInvertedImagePath(String invertedImagePath) {
+		this.invertedImagePath = invertedImagePath;
+	}
 }
\ No newline at end of file
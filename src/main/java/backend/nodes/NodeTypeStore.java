@@ -0,0 +1,397 @@
+package backend.nodes;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Flattened storage for NodeType trees.
+ *
+ * Nodes live in parallel primitive arrays (struct of arrays) and refer to
+ * each other by int index, -1 meaning no child. Names and image paths are
+ * interned in a shared pool and stored as pool indices, so repeated
+ * directory paths cost one int per node. Ids map to indices through an
+ * open-addressing hash table (linear probing, at most half full), which
+ * makes indexOf() constant time instead of a tree walk.
+ *
+ * get() returns a NodeType adapter over one index, so code written against
+ * NodeType keeps working: its getters read the arrays and its setters
+ * write them. Adapters are created on demand and hold no state of their
+ * own. Nodes cannot be removed. Not thread-safe.
+ */
+public class NodeTypeStore {
+
+    private static final int NONE = -1;
+
+    private int size;
+    private String[] ids;
+    private int[] names;
+    private int[] originalPaths;
+    private int[] invertedPaths;
+    private int[] left;
+    private int[] right;
+    private Object[] data; // Allocated on the first setData()
+
+    // id -> index, NONE for empty slots; length is a power of two
+    private int[] slots;
+
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private String[] pool = new String[16];
+    private int poolSize;
+
+    public NodeTypeStore() {
+        this(16);
+    }
+
+    public NodeTypeStore(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        ids = new String[capacity];
+        names = new int[capacity];
+        originalPaths = new int[capacity];
+        invertedPaths = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        slots = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        Arrays.fill(slots, NONE);
+    }
+
+    /**
+     * Copies a NodeType tree into a new store. Shared nodes are stored
+     * once; a node whose id is already stored is treated as the same node.
+     */
+    public static NodeTypeStore of(NodeType root) {
+        NodeTypeStore store = new NodeTypeStore();
+        store.importTree(root);
+        return store;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a node without children and returns its index.
+     */
+    public int add(String id, String name) {
+        if (id == null) {
+            throw new IllegalArgumentException("Node id is required");
+        }
+        if (indexOf(id) != NONE) {
+            throw new IllegalArgumentException("Duplicate node id: " + id);
+        }
+        if (size == ids.length) {
+            grow();
+        }
+        int index = size++;
+        ids[index] = id;
+        names[index] = intern(name);
+        originalPaths[index] = NONE;
+        invertedPaths[index] = NONE;
+        left[index] = NONE;
+        right[index] = NONE;
+        if (size * 2 > slots.length) {
+            rehash(slots.length * 2);
+        } else {
+            insert(index);
+        }
+        return index;
+    }
+
+    /**
+     * Index of the node with this id, or -1.
+     */
+    public int indexOf(String id) {
+        int mask = slots.length - 1;
+        for (int slot = spread(id.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            int index = slots[slot];
+            if (index == NONE || ids[index].equals(id)) {
+                return index;
+            }
+        }
+    }
+
+    public String id(int node) {
+        check(node);
+        return ids[node];
+    }
+
+    public String name(int node) {
+        check(node);
+        return pooled(names[node]);
+    }
+
+    public String originalPath(int node) {
+        check(node);
+        return pooled(originalPaths[node]);
+    }
+
+    public void setOriginalPath(int node, String path) {
+        check(node);
+        originalPaths[node] = intern(path);
+    }
+
+    public String invertedPath(int node) {
+        check(node);
+        return pooled(invertedPaths[node]);
+    }
+
+    public void setInvertedPath(int node, String path) {
+        check(node);
+        invertedPaths[node] = intern(path);
+    }
+
+    public int left(int node) {
+        check(node);
+        return left[node];
+    }
+
+    public void setLeft(int node, int child) {
+        check(node);
+        if (child != NONE) {
+            check(child);
+        }
+        left[node] = child;
+    }
+
+    public int right(int node) {
+        check(node);
+        return right[node];
+    }
+
+    public void setRight(int node, int child) {
+        check(node);
+        if (child != NONE) {
+            check(child);
+        }
+        right[node] = child;
+    }
+
+    public boolean isBranch(int node) {
+        check(node);
+        return left[node] != NONE || right[node] != NONE;
+    }
+
+    public Object data(int node) {
+        check(node);
+        return data == null ? null : data[node];
+    }
+
+    public void setData(int node, Object value) {
+        check(node);
+        if (data == null) {
+            data = new Object[ids.length];
+        }
+        data[node] = value;
+    }
+
+    /**
+     * NodeType view of a node, or null for -1.
+     */
+    public NodeType get(int node) {
+        if (node == NONE) {
+            return null;
+        }
+        check(node);
+        return new StoredNodeType(node);
+    }
+
+    public NodeType get(String id) {
+        int node = indexOf(id);
+        return node == NONE ? null : new StoredNodeType(node);
+    }
+
+    /**
+     * Adds {@code root} and everything under it, returning the root's index.
+     * Adapters of this store resolve to their own index.
+     */
+    public int importTree(NodeType root) {
+        Map<NodeType, Integer> imported = new IdentityHashMap<>();
+        Deque<NodeType> pending = new ArrayDeque<>();
+        int rootIndex = importNode(root, imported, pending);
+        while (!pending.isEmpty()) {
+            NodeType node = pending.pop();
+            int index = imported.get(node);
+            NodeType l = node.getLeftNode();
+            NodeType r = node.getRightNode();
+            left[index] = l == null ? NONE : importNode(l, imported, pending);
+            right[index] = r == null ? NONE : importNode(r, imported, pending);
+        }
+        return rootIndex;
+    }
+
+    private int importNode(NodeType node, Map<NodeType, Integer> imported, Deque<NodeType> pending) {
+        if (node instanceof StoredNodeType stored && stored.store() == this) {
+            return stored.index;
+        }
+        Integer known = imported.get(node);
+        if (known != null) {
+            return known;
+        }
+        int index = indexOf(node.getId());
+        if (index == NONE) {
+            index = add(node.getId(), node.getName());
+            originalPaths[index] = intern(node.getOriginalImagePath());
+            invertedPaths[index] = intern(node.getInvertedImagePath());
+            if (node.getData() != null) {
+                setData(index, node.getData());
+            }
+            pending.push(node);
+        }
+        imported.put(node, index);
+        return index;
+    }
+
+    private void check(int node) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException("Node " + node + " of " + size);
+        }
+    }
+
+    private int intern(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer index = poolIndex.get(value);
+        if (index == null) {
+            if (poolSize == pool.length) {
+                pool = Arrays.copyOf(pool, poolSize * 2);
+            }
+            index = poolSize++;
+            pool[index] = value;
+            poolIndex.put(value, index);
+        }
+        return index;
+    }
+
+    private String pooled(int index) {
+        return index == NONE ? null : pool[index];
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        originalPaths = Arrays.copyOf(originalPaths, capacity);
+        invertedPaths = Arrays.copyOf(invertedPaths, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        if (data != null) {
+            data = Arrays.copyOf(data, capacity);
+        }
+    }
+
+    private void rehash(int length) {
+        slots = new int[length];
+        Arrays.fill(slots, NONE);
+        for (int i = 0; i < size; i++) {
+            insert(i);
+        }
+    }
+
+    private void insert(int index) {
+        int mask = slots.length - 1;
+        int slot = spread(ids[index].hashCode()) & mask;
+        while (slots[slot] != NONE) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = index;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * NodeType adapter over one index of the store.
+     */
+    private final class StoredNodeType extends NodeType {
+
+        private final int index;
+
+        StoredNodeType(int index) {
+            super(ids[index], null);
+            this.index = index;
+        }
+
+        NodeTypeStore store() {
+            return NodeTypeStore.this;
+        }
+
+        @Override
+        public String getName() {
+            return name(index);
+        }
+
+        @Override
+        public boolean isBranch() {
+            return NodeTypeStore.this.isBranch(index);
+        }
+
+        @Override
+        public Object getData() {
+            return data(index);
+        }
+
+        @Override
+        public void setData(Object doc) {
+            if (doc != null) {
+                NodeTypeStore.this.setData(index, doc);
+            } else {
+                System.out.println("Error: Data cannot be null");
+            }
+        }
+
+        @Override
+        public NodeType getLeftNode() {
+            return get(left(index));
+        }
+
+        @Override
+        public NodeType getRightNode() {
+            return get(right(index));
+        }
+
+        @Override
+        public void setLeftNode(NodeType node) {
+            setLeft(index, node == null ? NONE : importTree(node));
+        }
+
+        @Override
+        public void setRightNode(NodeType node) {
+            setRight(index, node == null ? NONE : importTree(node));
+        }
+
+        @Override
+        public String getOriginalImagePath() {
+            return originalPath(index);
+        }
+
+        @Override
+        public void setOriginalImagePath(String path) {
+            setOriginalPath(index, path);
+        }
+
+        @Override
+        public String getInvertedImagePath() {
+            return invertedPath(index);
+        }
+
+        @Override
+        public void setInvertedImagePath(String path) {
+            setInvertedPath(index, path);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StoredNodeType node && node.store() == store() && node.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
+    }
+}
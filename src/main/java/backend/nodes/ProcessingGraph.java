@@ -0,0 +1,367 @@
+package backend.nodes;
+
+import backend.models.ImageData;
+import backend.processor.ImageProcessor;
+import com.imageapp.service.ImageOperation;
+import com.imageapp.service.ImagePipeline;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A processing graph where nodes are operations and edges are data
+ * dependencies, for workflows that share a prefix (decode, resize, invert)
+ * and then branch.
+ *
+ * Nodes are hash-consed: a node's hash covers its operation, parameters and
+ * the hashes of its inputs, and adding a node that already exists returns
+ * the existing one. Identical sub-chains therefore collapse into a single
+ * chain that runs once, however many branches were built on top of it.
+ *
+ * run() only evaluates what the requested outputs need. Each intermediate
+ * raster is reference counted by its consumers and dropped as soon as the
+ * last of them has finished, so a long graph holds no more than its live
+ * frontier in memory. Independent branches run in parallel.
+ */
+public class ProcessingGraph {
+
+    /**
+     * One step of the graph. {@code key()} must identify the operation and
+     * all its parameters: two operations with the same key applied to the
+     * same inputs are considered identical.
+     */
+    public interface Operation {
+        String key();
+
+        BufferedImage apply(List<BufferedImage> inputs) throws IOException;
+    }
+
+    public static final class Node {
+
+        private final String hash;
+        private final Operation operation;
+        private final List<Node> inputs;
+
+        private Node(String hash, Operation operation, List<Node> inputs) {
+            this.hash = hash;
+            this.operation = operation;
+            this.inputs = inputs;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public String getKey() {
+            return operation.key();
+        }
+
+        public List<Node> getInputs() {
+            return inputs;
+        }
+
+        @Override
+        public String toString() {
+            return operation.key() + "@" + hash.substring(0, 12);
+        }
+    }
+
+    /**
+     * Counters of the last run. {@code deduplicated} is the number of add
+     * requests answered with an existing node; {@code peakLiveRasters} is
+     * the most intermediate and output rasters held at the same time.
+     */
+    public record Stats(int nodes, int deduplicated, int computed, int peakLiveRasters, long wallTimeNanos) {
+    }
+
+    public static final class Result {
+
+        private final Map<Node, BufferedImage> outputs;
+        private final Stats stats;
+
+        Result(Map<Node, BufferedImage> outputs, Stats stats) {
+            this.outputs = Collections.unmodifiableMap(outputs);
+            this.stats = stats;
+        }
+
+        public BufferedImage get(Node node) {
+            BufferedImage image = outputs.get(node);
+            if (image == null) {
+                throw new IllegalArgumentException("Not an output of this run: " + node);
+            }
+            return image;
+        }
+
+        public Map<Node, BufferedImage> getOutputs() {
+            return outputs;
+        }
+
+        public Stats getStats() {
+            return stats;
+        }
+    }
+
+    private final ImageProcessor processor;
+    private final Executor executor;
+
+    // Insertion order is a topological order: inputs always exist first
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final Set<Node> outputs = new LinkedHashSet<>();
+    private int deduplicated;
+
+    public ProcessingGraph(ImageProcessor processor) {
+        this(processor, ForkJoinPool.commonPool());
+    }
+
+    public ProcessingGraph(ImageProcessor processor, Executor executor) {
+        this.processor = processor;
+        this.executor = executor;
+    }
+
+    /**
+     * Source node reading {@code path} through the ImageProcessor.
+     */
+    public Node decode(String path) {
+        String file = Path.of(path).toAbsolutePath().normalize().toString();
+        return add(new Operation() {
+            @Override
+            public String key() {
+                return "decode:" + file;
+            }
+
+            @Override
+            public BufferedImage apply(List<BufferedImage> inputs) throws IOException {
+                ImageData data = new ImageData(file, "graph");
+                processor.loadImage(data);
+                return data.getImageBuffer();
+            }
+        });
+    }
+
+    public Node resize(Node input, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + width + "x" + height);
+        }
+        return add(new Operation() {
+            @Override
+            public String key() {
+                return "resize:" + width + "x" + height;
+            }
+
+            @Override
+            public BufferedImage apply(List<BufferedImage> inputs) {
+                BufferedImage source = inputs.get(0);
+                BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = resized.createGraphics();
+                try {
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g.drawImage(source, 0, 0, width, height, null);
+                } finally {
+                    g.dispose();
+                }
+                return resized;
+            }
+        }, input);
+    }
+
+    /**
+     * One of the pipeline operations (invert, grayscale, blur, ...).
+     */
+    public Node apply(Node input, ImageOperation operation, Map<String, Object> params) {
+        ImagePipeline.Step step = new ImagePipeline.Step(operation, params);
+        return add(new Operation() {
+            @Override
+            public String key() {
+                // Step keeps its parameters sorted, so equal maps give equal keys
+                return step.operation().id() + step.params();
+            }
+
+            @Override
+            public BufferedImage apply(List<BufferedImage> inputs) {
+                return step.operation().apply(inputs.get(0), step.params());
+            }
+        }, input);
+    }
+
+    /**
+     * Appends every step of a pipeline spec and returns the last node.
+     */
+    public Node chain(Node input, List<ImagePipeline.Step> steps) {
+        Node current = input;
+        for (ImagePipeline.Step step : steps) {
+            current = apply(current, step.operation(), step.params());
+        }
+        return current;
+    }
+
+    /**
+     * Adds {@code operation} over {@code inputs}, or returns the identical
+     * node already in the graph.
+     */
+    public synchronized Node add(Operation operation, Node... inputs) {
+        List<Node> in = List.of(inputs);
+        for (Node input : in) {
+            if (nodes.get(input.hash) != input) {
+                throw new IllegalArgumentException("Input does not belong to this graph: " + input);
+            }
+        }
+        String hash = hash(operation.key(), in);
+        Node existing = nodes.get(hash);
+        if (existing != null) {
+            deduplicated++;
+            return existing;
+        }
+        Node node = new Node(hash, operation, in);
+        nodes.put(hash, node);
+        return node;
+    }
+
+    /**
+     * Marks {@code node} as a result of run(); its raster is kept.
+     */
+    public synchronized void output(Node node) {
+        if (nodes.get(node.hash) != node) {
+            throw new IllegalArgumentException("Node does not belong to this graph: " + node);
+        }
+        outputs.add(node);
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Evaluates every output and what it depends on, and waits for them.
+     * When an operation fails, its exception is rethrown once everything
+     * that did not depend on it has finished; the graph can be run again.
+     */
+    public Result run() throws IOException {
+        List<Node> order;
+        Set<Node> requested;
+        int dedup;
+        synchronized (this) {
+            order = new ArrayList<>(nodes.values());
+            requested = new LinkedHashSet<>(outputs);
+            dedup = deduplicated;
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalStateException("No output requested");
+        }
+
+        // Reference counts: one per consuming edge of a needed node, one per output
+        Map<Node, AtomicInteger> references = new IdentityHashMap<>();
+        for (Node node : requested) {
+            references.put(node, new AtomicInteger(1));
+        }
+        List<Node> needed = new ArrayList<>();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Node node = order.get(i);
+            if (references.containsKey(node)) {
+                needed.add(node);
+                for (Node input : node.inputs) {
+                    references.computeIfAbsent(input, n -> new AtomicInteger()).incrementAndGet();
+                }
+            }
+        }
+        Collections.reverse(needed);
+
+        Map<Node, BufferedImage> rasters = new ConcurrentHashMap<>();
+        AtomicInteger live = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        AtomicInteger computed = new AtomicInteger();
+        Map<Node, CompletableFuture<Void>> done = new HashMap<>();
+        long start = System.nanoTime();
+
+        for (Node node : needed) {
+            CompletableFuture<?>[] dependencies = node.inputs.stream().map(done::get).toArray(CompletableFuture[]::new);
+            CompletableFuture<Void> future = CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                List<BufferedImage> images = new ArrayList<>(node.inputs.size());
+                for (Node input : node.inputs) {
+                    images.add(rasters.get(input));
+                }
+                BufferedImage image;
+                try {
+                    image = node.operation.apply(images);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (image == null) {
+                    throw new IllegalStateException("Operation produced no image: " + node);
+                }
+                rasters.put(node, image);
+                peak.accumulateAndGet(live.incrementAndGet(), Math::max);
+                computed.incrementAndGet();
+            }, executor);
+            // Runs on success and failure alike, so nothing leaks when a branch fails
+            future.whenComplete((ignored, error) -> {
+                for (Node input : node.inputs) {
+                    if (references.get(input).decrementAndGet() == 0 && rasters.remove(input) != null) {
+                        live.decrementAndGet();
+                    }
+                }
+            });
+            done.put(node, future);
+        }
+
+        try {
+            CompletableFuture.allOf(done.values().toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            rasters.clear();
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+
+        Map<Node, BufferedImage> results = new LinkedHashMap<>();
+        for (Node node : requested) {
+            results.put(node, rasters.get(node));
+        }
+        Stats stats = new Stats(order.size(), dedup, computed.get(), peak.get(), System.nanoTime() - start);
+        return new Result(results, stats);
+    }
+
+    private static String hash(String key, List<Node> inputs) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(key.getBytes(StandardCharsets.UTF_8));
+            for (Node input : inputs) {
+                digest.update((byte) 0);
+                digest.update(input.hash.getBytes(StandardCharsets.US_ASCII));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -22,7 +22,7 @@ public class AwtImageProcessor implements ImageProcessor {
         if (img == null) {
             throw new IOException("File exists but is not a valid image: " + data.getFsPath());
         }
-        data.setImageBuffer(img);
+        data.setDecodedImage(img);
     }
 
     @Override
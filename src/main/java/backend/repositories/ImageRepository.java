@@ -1,12 +1,23 @@
 package backend.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import backend.models.ImageRecord;
+import backend.models.ImageSummary;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ImageRepository extends JpaRepository<ImageRecord, Long> {
@@ -18,4 +29,54 @@ public interface ImageRepository extends JpaRepository<ImageRecord, Long> {
 
     // Encontrar o registro mais recente (útil para mostrar o último processamento)
     Optional<ImageRecord> findTopByOrderByProcessedAtDesc();
-}
\ No newline at end of file
+
+    // Histórico paginado por keyset: "before" é o menor id da página anterior,
+    // então cada página é uma busca pela chave primária, sem OFFSET.
+    List<ImageSummary> findByIdLessThanOrderByIdDesc(Long before, Limit limit);
+
+    List<ImageSummary> findByFileNameAndIdLessThanOrderByIdDesc(String fileName, Long before, Limit limit);
+
+    Optional<ImageSummary> findSummaryById(Long id);
+
+    Optional<ImageSummary> findFirstByOrderByProcessedAtDescIdDesc();
+
+    // Consultas sobre as colunas indexadas (ver @Table em ImageRecord)
+
+    // Processamentos do mesmo conteúdo (SHA-256 do original)
+    List<ImageSummary> findByOriginalHashAndIdLessThanOrderByIdDesc(String originalHash, Long before, Limit limit);
+
+    // Mais recentes por formato de saída
+    List<ImageSummary> findByInvertedFormatAndIdLessThanOrderByIdDesc(String invertedFormat, Long before, Limit limit);
+
+    // Faixas de tamanho (largura/altura inclusivas). Duas faixas + ORDER BY id:
+    // o índice (width, height) só filtra, as linhas encontradas ainda são ordenadas
+    List<ImageSummary> findByWidthBetweenAndHeightBetweenAndIdLessThanOrderByIdDesc(
+            int minWidth, int maxWidth, int minHeight, int maxHeight, Long before, Limit limit);
+
+    // Marca o registro como usado (download), para a retenção remover primeiro os esquecidos
+    @Transactional
+    @Modifying
+    @Query("update ImageRecord r set r.lastAccessedAt = :at where r.id = :id")
+    int markAccessed(@Param("id") Long id, @Param("at") LocalDateTime at);
+
+    // Exportação (HistoryExportService): cursor lido aos poucos pelo driver (fetch size),
+    // entidades somente leitura; precisa ser consumido dentro de uma transação
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    Stream<ImageRecord> streamByIdGreaterThanOrderByIdAsc(Long after);
+
+    // Retenção (RetentionService): candidatos em lotes, sempre pelos índices
+
+    List<ImageRecord> findByProcessedAtBeforeOrderByProcessedAtAsc(LocalDateTime cutoff, Limit limit);
+
+    List<ImageRecord> findByOrderByLastAccessedAtAscIdAsc(Limit limit);
+
+    List<ImageRecord> findByLastAccessedAtBeforeOrderByLastAccessedAtAscIdAsc(LocalDateTime cutoff, Limit limit);
+
+    // Um blob só pode ser apagado quando nenhum registro o referencia
+    // (duas consultas separadas para cada uma usar o seu índice)
+    boolean existsByOriginalHash(String originalHash);
+
+    boolean existsByInvertedHash(String invertedHash);
+}
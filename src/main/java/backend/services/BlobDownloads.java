@@ -0,0 +1,147 @@
+package backend.services;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Serves BlobStore content over HTTP with a constant memory cost.
+ *
+ * Supports a single byte range (Range / If-Range, 206 and 416 responses)
+ * and If-None-Match against the content hash. Requests for several ranges
+ * get the whole blob, which RFC 9110 allows.
+ *
+ * The bytes never pass through the heap in full: on Tomcat with sendfile
+ * enabled the connector sends the file itself after the headers (zero copy);
+ * otherwise FileChannel.transferTo copies it into the response stream.
+ */
+@Service
+public class BlobDownloads {
+
+    // Tomcat request attributes, see org.apache.coyote.Constants
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final BlobStore blobStore;
+
+    public BlobDownloads(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * @throws NoSuchElementException when the blob is no longer stored
+     */
+    public ResponseEntity<StreamingResponseBody> serve(String hash, MediaType contentType, String fileName,
+                                                       HttpHeaders headers, HttpServletRequest request)
+            throws IOException {
+        Path file = blobStore.path(hash);
+        long length;
+        try {
+            length = Files.size(file);
+        } catch (NoSuchFileException e) {
+            throw new NoSuchElementException("Image content is no longer stored");
+        }
+
+        String etag = ImageETags.ofContent(hash);
+        if (ImageETags.matches(headers.getFirst(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ImageETags.notModified(etag);
+        }
+
+        HttpRange range = requestedRange(headers, etag);
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        if (range != null) {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            if (start >= length || start > end) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+        }
+        long count = end - start + 1;
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
+                .contentType(contentType)
+                .contentLength(count)
+                .eTag(etag)
+                .cacheControl(ImageETags.cacheControl())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString());
+        if (status == HttpStatus.PARTIAL_CONTENT) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        if (count == 0 || "HEAD".equals(request.getMethod())) {
+            return response.build();
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // The connector streams the file once the (empty) body is committed
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return response.build();
+        }
+
+        long position = start;
+        return response.body(out -> transfer(file, position, count, Channels.newChannel(out)));
+    }
+
+    /**
+     * The single range to serve, or null for the whole blob. Invalid or
+     * multiple ranges and a stale If-Range validator all mean "whole blob".
+     */
+    private static HttpRange requestedRange(HttpHeaders headers, String etag) {
+        List<HttpRange> ranges;
+        try {
+            ranges = headers.getRange();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (ranges.size() != 1) {
+            return null;
+        }
+        String ifRange = headers.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        return ranges.get(0);
+    }
+
+    private static void transfer(Path file, long position, long count, WritableByteChannel target)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long remaining = count;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, target);
+                if (sent <= 0) {
+                    throw new IOException("Blob ended early: " + file.getFileName());
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+}
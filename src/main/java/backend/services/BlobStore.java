@@ -0,0 +1,303 @@
+package backend.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed file store for image bytes.
+ *
+ * A blob is named by the SHA-256 of its content (the same hash ImageETags
+ * uses) and stored at {root}/ab/cd/abcd..., so no directory grows beyond a
+ * few thousand entries. Writes go to a temp file first and are linked into
+ * place, so readers never see a partial blob. Identical content is stored
+ * once: putting a blob that already exists writes nothing.
+ *
+ * put() and deleteIfUnusedSince() run under a per-hash lock, so a put that
+ * finds a blob already stored either refreshes it before the retention job
+ * looks at it, or runs after the delete and stores the content again.
+ *
+ * Blobs are immutable; database rows only keep the hash and size. The
+ * store keeps a running total of its size for the retention job; it is
+ * computed once at startup and then updated on every put and delete.
+ */
+@Service
+public class BlobStore {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Reference to a stored blob.
+     */
+    public record Blob(String hash, long size) {
+    }
+
+    private final Path root;
+    private final Path tmpDir;
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong blobCount = new AtomicLong();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public BlobStore(@Value("${image.blobs.dir:${java.io.tmpdir}/image-inverter/blobs}") String root) throws IOException {
+        this.root = Files.createDirectories(Paths.get(root));
+        this.tmpDir = Files.createDirectories(this.root.resolve(".tmp"));
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        try (Stream<Path> files = Files.walk(this.root)) {
+            files.filter(file -> !file.startsWith(tmpDir) && Files.isRegularFile(file)).forEach(file -> {
+                try {
+                    totalBytes.addAndGet(Files.size(file));
+                    blobCount.incrementAndGet();
+                } catch (IOException e) {
+                    // Deleted while scanning
+                }
+            });
+        }
+    }
+
+    public Blob put(byte[] data) throws IOException {
+        String hash = HexFormat.of().formatHex(sha256().digest(data));
+        if (!refresh(hash)) {
+            Path tmp = Files.createTempFile(tmpDir, "blob", ".tmp");
+            try {
+                Files.write(tmp, data);
+                store(tmp, hash, data.length);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        return new Blob(hash, data.length);
+    }
+
+    /**
+     * Streams {@code in} into the store, hashing while copying.
+     * When the caller already knows the content hash (e.g. from the ETag)
+     * and that blob exists, the stream is not read at all.
+     */
+    public Blob put(InputStream in, String knownHash) throws IOException {
+        if (knownHash != null && HASH.matcher(knownHash).matches() && refresh(knownHash)) {
+            return new Blob(knownHash, Files.size(path(knownHash)));
+        }
+        MessageDigest digest = sha256();
+        Path tmp = Files.createTempFile(tmpDir, "blob", ".tmp");
+        try {
+            long size = 0;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            if (knownHash != null && !knownHash.equals(hash)) {
+                throw new IOException("Content hash mismatch: expected " + knownHash + ", got " + hash);
+            }
+            store(tmp, hash, size);
+            return new Blob(hash, size);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public Blob put(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return put(in, null);
+        }
+    }
+
+    public boolean contains(String hash) {
+        return Files.exists(path(hash));
+    }
+
+    public long size(String hash) throws IOException {
+        return Files.size(path(hash));
+    }
+
+    public InputStream open(String hash) throws IOException {
+        return Files.newInputStream(path(hash));
+    }
+
+    /**
+     * Read-only memory mapping of a blob; the bytes stay in the page cache
+     * rather than on the heap.
+     */
+    public MappedByteBuffer map(String hash) throws IOException {
+        try (FileChannel channel = FileChannel.open(path(hash), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Marks a blob as in use now. put() does this for content that already
+     * exists, so the retention job can tell a blob that was just shared by a
+     * new (possibly not yet written) history record from an abandoned one.
+     */
+    public void touch(String hash) throws IOException {
+        // Deleted concurrently if false; the caller's next put stores it again
+        refresh(hash);
+    }
+
+    public Instant lastUsed(String hash) throws IOException {
+        return Files.getLastModifiedTime(path(hash)).toInstant();
+    }
+
+    public boolean delete(String hash) throws IOException {
+        Path file = path(hash);
+        synchronized (lock(hash)) {
+            long size;
+            try {
+                size = Files.size(file);
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+            if (!Files.deleteIfExists(file)) {
+                return false;
+            }
+            totalBytes.addAndGet(-size);
+            blobCount.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Deletes a blob unless it was put or touched after {@code cutoff}.
+     * The check and the delete happen under the blob's lock, so a concurrent
+     * put() of the same content cannot hand out a blob that is deleted right
+     * after. Returns false if the blob is still in use or does not exist.
+     */
+    public boolean deleteIfUnusedSince(String hash, Instant cutoff) throws IOException {
+        synchronized (lock(hash)) {
+            try {
+                if (lastUsed(hash).isAfter(cutoff)) {
+                    return false;
+                }
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+            return delete(hash);
+        }
+    }
+
+    /**
+     * Hashes of every stored blob, read lazily from the directory tree.
+     * The stream must be closed.
+     */
+    public Stream<String> hashes() throws IOException {
+        return Files.walk(root)
+                .filter(file -> !file.startsWith(tmpDir) && Files.isRegularFile(file))
+                .map(file -> file.getFileName().toString())
+                .filter(name -> HASH.matcher(name).matches());
+    }
+
+    /**
+     * Bytes currently stored (sum of all blob sizes).
+     */
+    public long totalBytes() {
+        return totalBytes.get();
+    }
+
+    public long count() {
+        return blobCount.get();
+    }
+
+    /**
+     * Location of a blob, e.g. to hand to a zero-copy transfer.
+     * Only hex SHA-256 names are accepted, so nothing outside the store is reachable.
+     */
+    public Path path(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Not a blob hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private Object lock(String hash) {
+        return locks[Integer.parseInt(hash.substring(0, 2), 16) % LOCK_STRIPES];
+    }
+
+    /**
+     * Sets the blob's last-used time to now. Returns false if it is not stored.
+     */
+    private boolean refresh(String hash) throws IOException {
+        Path file = path(hash);
+        synchronized (lock(hash)) {
+            try {
+                Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+                return true;
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Publishes tmp as the blob {@code hash}, or refreshes the stored copy if
+     * another put got there first.
+     */
+    private void store(Path tmp, String hash, long size) throws IOException {
+        synchronized (lock(hash)) {
+            if (!refresh(hash)) {
+                publish(tmp, path(hash), size);
+            }
+        }
+    }
+
+    /**
+     * Makes a finished temp file visible as {@code target}. A hard link (or,
+     * where links are not supported, a plain move) fails if the target exists,
+     * whereas an atomic rename would silently replace it; only the writer that
+     * actually created the blob adds it to the totals. The caller deletes tmp.
+     */
+    private void publish(Path tmp, Path target, long size) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, tmp);
+        } catch (FileAlreadyExistsException e) {
+            // Another writer stored the same content first
+            return;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            // No hard links on this file system; move() without REPLACE_EXISTING refuses an existing target too
+            try {
+                Files.move(tmp, target);
+            } catch (FileAlreadyExistsException raced) {
+                return;
+            }
+        }
+        totalBytes.addAndGet(size);
+        blobCount.incrementAndGet();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package backend.services;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+
+/**
+ * Command-line export: writes the history to a file and exits.
+ *
+ *   java -jar image-inverter.jar --export-history=history.zip \
+ *       --spring.main.web-application-type=none --spring.datasource.url=...
+ *
+ * The format follows the file extension (.zip, anything else is NDJSON);
+ * --export-after={id} resumes after a given record. Without --export-history
+ * this runner does nothing.
+ */
+@Component
+public class HistoryExportRunner implements ApplicationRunner {
+
+    private static final String OPTION = "export-history";
+    private static final String AFTER_OPTION = "export-after";
+
+    private final HistoryExportService exportService;
+    private final ApplicationContext context;
+
+    public HistoryExportRunner(HistoryExportService exportService, ApplicationContext context) {
+        this.exportService = exportService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption(OPTION) || args.getOptionValues(OPTION).isEmpty()) {
+            return;
+        }
+        Path target = Paths.get(args.getOptionValues(OPTION).get(0)).toAbsolutePath();
+        HistoryExportService.Format format = target.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip")
+                ? HistoryExportService.Format.ZIP
+                : HistoryExportService.Format.NDJSON;
+        long after = args.containsOption(AFTER_OPTION) ? Long.parseLong(args.getOptionValues(AFTER_OPTION).get(0)) : 0;
+
+        // Written next to the target and renamed, so a failed export leaves no partial file
+        Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+        long count;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+            count = exportService.export(out, format, after);
+        } catch (Exception e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Exported " + count + " history records to " + target);
+
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -0,0 +1,196 @@
+package backend.services;
+
+import backend.dto.HistoryExportEntry;
+import backend.models.ImageRecord;
+import backend.repositories.ImageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Bulk export of the processing history.
+ *
+ * Records are read through a database cursor (ImageRepository's export
+ * stream, fetch size 500) inside one read-only transaction, and the
+ * persistence context is cleared every CLEAR_INTERVAL records, so the heap
+ * holds at most one batch of entities however large the history is.
+ *
+ * NDJSON: one HistoryExportEntry per line, metadata only; the images can be
+ * fetched from /api/history/{id}/original and /result.
+ *
+ * ZIP: each distinct blob once under images/{hash}.{format} (stored, not
+ * recompressed: PNG/JPEG gain nothing from deflate), then history.ndjson
+ * with the archive paths. The index is spooled to a temp file while the
+ * images are written. Note that java.util.zip keeps one small central
+ * directory entry per file in memory until the archive is finished.
+ */
+@Service
+public class HistoryExportService {
+
+    public enum Format {
+        NDJSON, ZIP;
+
+        public static Format fromId(String id) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(id)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown export format: " + id + " (use ndjson or zip)");
+        }
+    }
+
+    private static final int CLEAR_INTERVAL = 500;
+    // Recently written image names, to skip the CRC pass for repeated content
+    private static final int RECENT_BLOBS = 10_000;
+
+    private final ImageRepository repository;
+    private final BlobStore blobStore;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public HistoryExportService(ImageRepository repository, BlobStore blobStore,
+                                EntityManager entityManager, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.blobStore = blobStore;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes every record with an id greater than {@code after} (0 = all),
+     * oldest first. {@code out} is flushed but not closed.
+     *
+     * @return the number of records written
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out, Format format, long after) throws IOException {
+        return format == Format.ZIP ? exportZip(out, after) : exportNdjson(out, after);
+    }
+
+    private long exportNdjson(OutputStream out, long after) throws IOException {
+        long count = 0;
+        try (Stream<ImageRecord> records = repository.streamByIdGreaterThanOrderByIdAsc(after)) {
+            for (Iterator<ImageRecord> it = records.iterator(); it.hasNext(); ) {
+                writeLine(out, new HistoryExportEntry(it.next()));
+                if (++count % CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
+        return count;
+    }
+
+    private long exportZip(OutputStream out, long after) throws IOException {
+        Path index = Files.createTempFile("history-export", ".ndjson");
+        try {
+            // The ZIP must not close the caller's stream
+            ZipOutputStream zip = new ZipOutputStream(new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            });
+            Map<String, Boolean> recent = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > RECENT_BLOBS;
+                }
+            };
+
+            long count = 0;
+            try (OutputStream indexOut = new BufferedOutputStream(Files.newOutputStream(index));
+                 Stream<ImageRecord> records = repository.streamByIdGreaterThanOrderByIdAsc(after)) {
+                for (Iterator<ImageRecord> it = records.iterator(); it.hasNext(); ) {
+                    ImageRecord record = it.next();
+                    HistoryExportEntry entry = new HistoryExportEntry(record);
+                    entry.setOriginalFile(addImage(zip, record.getOriginalHash(), record.getOriginalFormat(), recent));
+                    entry.setResultFile(addImage(zip, record.getInvertedHash(), record.getInvertedFormat(), recent));
+                    writeLine(indexOut, entry);
+                    if (++count % CLEAR_INTERVAL == 0) {
+                        entityManager.clear();
+                    }
+                }
+            }
+
+            zip.putNextEntry(new ZipEntry("history.ndjson"));
+            Files.copy(index, zip);
+            zip.closeEntry();
+            zip.finish();
+            zip.flush();
+            return count;
+        } finally {
+            Files.deleteIfExists(index);
+        }
+    }
+
+    /**
+     * Adds a blob to the archive unless it is already there.
+     * Returns its archive path, or null when the content is not stored.
+     */
+    private String addImage(ZipOutputStream zip, String hash, String format,
+                            Map<String, Boolean> recent) throws IOException {
+        if (hash == null || !blobStore.contains(hash)) {
+            return null;
+        }
+        String name = "images/" + hash + (format == null ? "" : "." + format.toLowerCase(Locale.ROOT));
+        if (recent.put(name, Boolean.TRUE) != null) {
+            return name;
+        }
+
+        // STORED entries need size and CRC up front: one extra read of the file
+        CRC32 crc = new CRC32();
+        try (InputStream in = blobStore.open(hash)) {
+            in.transferTo(new CheckedOutputStream(OutputStream.nullOutputStream(), crc));
+        }
+        long size = blobStore.size(hash);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc.getValue());
+        try {
+            zip.putNextEntry(entry);
+        } catch (ZipException e) {
+            // Written earlier and no longer in the recent set; ZipOutputStream
+            // rejects the duplicate name before writing anything
+            return name;
+        }
+        try (InputStream in = blobStore.open(hash)) {
+            in.transferTo(zip);
+        }
+        zip.closeEntry();
+        return name;
+    }
+
+    private void writeLine(OutputStream out, HistoryExportEntry entry) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(entry));
+        out.write('\n');
+    }
+}
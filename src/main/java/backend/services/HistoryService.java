@@ -0,0 +1,139 @@
+package backend.services;
+
+import backend.dto.HistoryEntry;
+import backend.dto.HistoryPage;
+import backend.models.ImageSummary;
+import backend.repositories.ImageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Read side of the processing history. Every query goes through the
+ * ImageSummary projection, so listing never loads image bytes, and pages are
+ * addressed by keyset (id cursor) so page 1000 costs the same as page 1.
+ */
+@Service
+public class HistoryService {
+
+    private final ImageRepository repository;
+    private final int maxPageSize;
+
+    public HistoryService(ImageRepository repository,
+                          @Value("${image.history.max-page-size:500}") int maxPageSize) {
+        this.repository = repository;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Records older than {@code before} (all records when null), newest first,
+     * optionally restricted to one file name.
+     */
+    public HistoryPage page(String fileName, Long before, int limit) {
+        checkLimit(limit);
+        List<ImageSummary> rows = fileName == null || fileName.isBlank()
+                ? repository.findByIdLessThanOrderByIdDesc(cursor(before), Limit.of(limit))
+                : repository.findByFileNameAndIdLessThanOrderByIdDesc(fileName, cursor(before), Limit.of(limit));
+        return toPage(rows, limit);
+    }
+
+    /**
+     * Every processing of the same original content (SHA-256, as in the ETag).
+     */
+    public HistoryPage byContentHash(String hash, Long before, int limit) {
+        checkLimit(limit);
+        return toPage(repository.findByOriginalHashAndIdLessThanOrderByIdDesc(
+                hash.toLowerCase(Locale.ROOT), cursor(before), Limit.of(limit)), limit);
+    }
+
+    /**
+     * Most recent results written in one output format, e.g. "png".
+     */
+    public HistoryPage byFormat(String format, Long before, int limit) {
+        checkLimit(limit);
+        return toPage(repository.findByInvertedFormatAndIdLessThanOrderByIdDesc(
+                format.toLowerCase(Locale.ROOT), cursor(before), Limit.of(limit)), limit);
+    }
+
+    /**
+     * Images whose dimensions fall in the given inclusive ranges; null bounds are open.
+     * Unlike the other filters this is not a pure index range scan: the
+     * (width, height) index finds the matches, which are then sorted by id,
+     * so the cost follows the number of matches rather than {@code limit}.
+     */
+    public HistoryPage bySize(Integer minWidth, Integer maxWidth, Integer minHeight, Integer maxHeight,
+                              Long before, int limit) {
+        checkLimit(limit);
+        int minW = minWidth == null ? 0 : minWidth;
+        int maxW = maxWidth == null ? Integer.MAX_VALUE : maxWidth;
+        int minH = minHeight == null ? 0 : minHeight;
+        int maxH = maxHeight == null ? Integer.MAX_VALUE : maxHeight;
+        if (minW > maxW || minH > maxH) {
+            throw new IllegalArgumentException("Empty size range");
+        }
+        return toPage(repository.findByWidthBetweenAndHeightBetweenAndIdLessThanOrderByIdDesc(
+                minW, maxW, minH, maxH, cursor(before), Limit.of(limit)), limit);
+    }
+
+    public HistoryEntry get(long id) {
+        return repository.findSummaryById(id)
+                .map(HistoryEntry::new)
+                .orElseThrow(() -> new NoSuchElementException("History record not found: " + id));
+    }
+
+    /**
+     * Stored bytes of a record, for download.
+     */
+    public record StoredImage(String hash, String format, String fileName) {
+    }
+
+    /**
+     * Blob reference of the uploaded image ({@code original}) or of the
+     * result. Also marks the record as accessed, so retention evicts records
+     * nobody downloads first.
+     */
+    public StoredImage content(long id, boolean original) {
+        ImageSummary summary = repository.findSummaryById(id)
+                .orElseThrow(() -> new NoSuchElementException("History record not found: " + id));
+        String hash = original ? summary.getOriginalHash() : summary.getInvertedHash();
+        if (hash == null) {
+            throw new NoSuchElementException("Image content was not stored for record " + id);
+        }
+        repository.markAccessed(id, LocalDateTime.now());
+
+        String format = original ? summary.getOriginalFormat() : summary.getInvertedFormat();
+        String fileName = summary.getFileName() == null ? "image-" + id : summary.getFileName();
+        if (!original) {
+            int dot = fileName.lastIndexOf('.');
+            fileName = (dot > 0 ? fileName.substring(0, dot) : fileName) + "_inverted." + format;
+        }
+        return new StoredImage(hash, format, fileName);
+    }
+
+    public HistoryEntry latest() {
+        return repository.findFirstByOrderByProcessedAtDescIdDesc()
+                .map(HistoryEntry::new)
+                .orElseThrow(() -> new NoSuchElementException("History is empty"));
+    }
+
+    private void checkLimit(int limit) {
+        if (limit < 1 || limit > maxPageSize) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageSize);
+        }
+    }
+
+    private static long cursor(Long before) {
+        return before == null ? Long.MAX_VALUE : before;
+    }
+
+    private static HistoryPage toPage(List<ImageSummary> rows, int limit) {
+        List<HistoryEntry> items = rows.stream().map(HistoryEntry::new).toList();
+        Long next = items.size() == limit ? items.get(items.size() - 1).getId() : null;
+        return new HistoryPage(items, next);
+    }
+}
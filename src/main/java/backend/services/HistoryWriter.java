@@ -0,0 +1,193 @@
+package backend.services;
+
+import backend.models.ImageRecord;
+import backend.repositories.ImageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind persistence for image history.
+ *
+ * Request threads only enqueue the record; a single background thread drains
+ * the queue and inserts records with saveAll, so Hibernate can send them as
+ * one JDBC batch (see hibernate.jdbc.batch_size in application.properties).
+ * After the first record of a batch arrives the writer lingers briefly to
+ * let a burst fill the batch.
+ *
+ * The queue is bounded. When it is full the record is saved synchronously on
+ * the calling thread instead, which slows that request down but never drops
+ * history. Pending records are flushed on shutdown.
+ *
+ * The writer thread holds a lock from taking a batch off the queue until
+ * it is saved, so flush() (and shutdown) also waits for the batch that is
+ * lingering or being written: every save() that returned before flush()
+ * was called is committed when flush() returns.
+ *
+ * Metrics: image.history.queue.size, image.history.records{result=...},
+ * image.history.batch (flush duration).
+ */
+@Service
+public class HistoryWriter {
+
+    private final ImageRepository repository;
+    private final BlockingQueue<ImageRecord> queue;
+    private final int batchSize;
+    private final long lingerMs;
+    private final Thread flusher;
+    // Held while a batch is out of the queue but not yet saved; fair, so a
+    // flush() gets it between two batches of a busy writer
+    private final ReentrantLock inFlight = new ReentrantLock(true);
+    private volatile boolean running = true;
+
+    private final Counter queued;
+    private final Counter written;
+    private final Counter synchronous;
+    private final Counter failed;
+    private final Timer batchTimer;
+
+    public HistoryWriter(ImageRepository repository,
+                         MeterRegistry meterRegistry,
+                         @Value("${image.history.queue-capacity:10000}") int queueCapacity,
+                         @Value("${image.history.batch-size:50}") int batchSize,
+                         @Value("${image.history.linger-ms:20}") long lingerMs) {
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.lingerMs = Math.max(0, lingerMs);
+        this.flusher = new Thread(this::drainLoop, "history-writer");
+        this.flusher.setDaemon(true);
+
+        meterRegistry.gauge("image.history.queue.size", queue, BlockingQueue::size);
+        this.queued = meterRegistry.counter("image.history.records", "result", "queued");
+        this.written = meterRegistry.counter("image.history.records", "result", "written");
+        this.synchronous = meterRegistry.counter("image.history.records", "result", "synchronous");
+        this.failed = meterRegistry.counter("image.history.records", "result", "failed");
+        this.batchTimer = meterRegistry.timer("image.history.batch");
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher.start();
+    }
+
+    /**
+     * Stops the background thread and writes everything still queued.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        flush();
+    }
+
+    /**
+     * Queues a record for insertion; falls back to a synchronous save when
+     * the queue is full or the writer is shutting down.
+     */
+    public void save(ImageRecord record) {
+        if (running && queue.offer(record)) {
+            queued.increment();
+            return;
+        }
+        synchronous.increment();
+        write(List.of(record));
+    }
+
+    /**
+     * Writes every queued record on the calling thread, after waiting for
+     * the batch the writer thread may be holding.
+     */
+    public void flush() {
+        inFlight.lock();
+        try {
+            List<ImageRecord> batch = new ArrayList<>(batchSize);
+            while (queue.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        } finally {
+            inFlight.unlock();
+        }
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    private void drainLoop() {
+        while (running) {
+            List<ImageRecord> batch = new ArrayList<>(batchSize);
+            try {
+                inFlight.lockInterruptibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                ImageRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    ImageRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                // write() already handled it; keep the writer alive
+            } finally {
+                inFlight.unlock();
+            }
+        }
+    }
+
+    private void write(List<ImageRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            repository.saveAll(batch);
+            written.increment(batch.size());
+        } catch (RuntimeException batchError) {
+            // Retry one by one so a single bad row does not lose the whole batch
+            for (ImageRecord record : batch) {
+                try {
+                    repository.save(record);
+                    written.increment();
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package backend.services;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * ETag helpers for deterministic image transforms.
+ * Every transform is a pure function of the uploaded bytes plus the operation
+ * and its parameters, so the tag is derived from exactly those inputs and can
+ * be checked against If-None-Match before the image is decoded.
+ *
+ * A match answers 304 on GET/HEAD (notModified) and 412 on every other
+ * method (preconditionFailed), as RFC 9110 section 13.1.2 requires.
+ */
+public final class ImageETags {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    // Results never change for a given tag, so clients may keep them indefinitely
+    private static final CacheControl CACHE_CONTROL =
+            CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable();
+
+    private ImageETags() {
+    }
+
+    /**
+     * SHA-256 of the upload, streamed so the file is not copied onto the heap.
+     */
+    public static String hashContent(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return hashContent(in);
+        }
+    }
+
+    public static String hashContent(InputStream in) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Strong ETag for a byte-identical representation (e.g. the encoded image).
+     */
+    public static String strong(String contentHash, String operation, Object... params) {
+        return "\"" + tagValue(contentHash, operation, params) + "\"";
+    }
+
+    /**
+     * Weak ETag for wrapped representations whose envelope varies per response
+     * (timestamps, sequence numbers) while the image payload stays the same.
+     */
+    public static String weak(String contentHash, String operation, Object... params) {
+        return "W/" + strong(contentHash, operation, params);
+    }
+
+    /**
+     * Tag for stored bytes (BlobStore): the content hash itself.
+     */
+    public static String ofContent(String contentHash) {
+        return "\"" + contentHash + "\"";
+    }
+
+    /**
+     * Weak comparison as required for If-None-Match (RFC 9110, section 13.1.2).
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String opaque = opaqueTag(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || opaqueTag(trimmed).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static CacheControl cacheControl() {
+        return CACHE_CONTROL;
+    }
+
+    public static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(CACHE_CONTROL)
+                .build();
+    }
+
+    /**
+     * Matching If-None-Match on a method other than GET or HEAD, e.g. the
+     * POST transform endpoints. The tag is still sent, so the client can see
+     * that the copy it holds is the current result.
+     */
+    public static <T> ResponseEntity<T> preconditionFailed(String etag) {
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .eTag(etag)
+                .build();
+    }
+
+    private static String tagValue(String contentHash, String operation, Object... params) {
+        MessageDigest digest = sha256();
+        digest.update(contentHash.getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) 0);
+        digest.update(operation.getBytes(StandardCharsets.UTF_8));
+        for (Object param : params) {
+            digest.update((byte) 0);
+            digest.update(String.valueOf(param).getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String opaqueTag(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
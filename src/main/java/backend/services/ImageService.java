@@ -1,50 +1,176 @@
 package backend.services;
 
 import backend.models.ImageRecord;
-import backend.repositories.ImageRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class ImageService {
 
-    private final ImageRepository repository;
+    private static final String OUTPUT_FORMAT = "png";
 
-    public ImageService(ImageRepository repository) {
-        this.repository = repository;
+    private final HistoryWriter historyWriter;
+    private final BlobStore blobStore;
+    private final SingleFlight<String, byte[]> inFlight = new SingleFlight<>();
+
+    public ImageService(HistoryWriter historyWriter, BlobStore blobStore) {
+        this.historyWriter = historyWriter;
+        this.blobStore = blobStore;
     }
 
     public byte[] processAndSave(MultipartFile file) throws IOException {
-        // 1. Read Image
-        BufferedImage originalInfo = ImageIO.read(file.getInputStream());
-        if (originalInfo == null) {
-            throw new IOException("Invalid image file");
+        return processAndSave(file, ImageETags.hashContent(file));
+    }
+
+    /**
+     * Same as {@link #processAndSave(MultipartFile)} for callers that already
+     * hashed the upload (e.g. for its ETag). Concurrent calls with the same
+     * content hash share one decode/invert/encode and its result; only the
+     * call that did the work writes a history record.
+     */
+    public byte[] processAndSave(MultipartFile file, String contentHash) throws IOException {
+        try {
+            return inFlight.execute(contentHash, () -> {
+                long start = System.nanoTime();
+                // 1. Read Image
+                Decoded original;
+                try (InputStream in = file.getInputStream()) {
+                    original = read(in, Long.MAX_VALUE);
+                }
+                return invertAndSave(file.getOriginalFilename(), original, () -> {
+                    try (InputStream in = file.getInputStream()) {
+                        return blobStore.put(in, contentHash);
+                    }
+                }, start);
+            });
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Processes an image that is already staged on disk (e.g. a committed
+     * chunked upload). The reader pulls from a file-backed ImageInputStream,
+     * so the upload is never copied onto the heap; only the decoded raster is.
+     * The original is streamed into the blob store the same way.
+     *
+     * <p>The decoded image, its inverted ARGB copy and the encoded result are
+     * all held in memory, so images with more than {@code maxPixels} pixels are
+     * rejected with IllegalArgumentException from the header alone, before
+     * anything is decoded.
+     */
+    public byte[] processAndSave(String fileName, Path source, long maxPixels) throws IOException {
+        long start = System.nanoTime();
+        Decoded original = read(source.toFile(), maxPixels);
+        return invertAndSave(fileName, original, () -> blobStore.put(source), start);
+    }
+
+    /**
+     * Decodes a staged image file. Also used by background jobs, which keep
+     * their input on disk until a worker picks them up.
+     */
+    public BufferedImage decode(Path source) throws IOException {
+        return read(source.toFile(), Long.MAX_VALUE).image();
+    }
+
+    private static Decoded read(Object source, long maxPixels) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            if (in == null) {
+                throw new IOException("Cannot open image: " + source);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Invalid image file");
+            }
+            ImageReader reader = readers.next();
+            try {
+                // seekForwardOnly lets the reader discard data it has consumed
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IllegalArgumentException("Image has " + pixels + " pixels, the limit is " + maxPixels);
+                }
+                return new Decoded(reader.read(0), reader.getFormatName().toLowerCase(Locale.ROOT));
+            } finally {
+                reader.dispose();
+            }
         }
-        
-        BufferedImage invertedInfo = invertColors(originalInfo);
+    }
+
+    /**
+     * Inverts and encodes the image, and only then stores the original (via
+     * {@code storeOriginal}) and the result, right before the history record
+     * is queued. An upload that fails to decode, invert or encode therefore
+     * leaves no blob behind that no record references.
+     */
+    private byte[] invertAndSave(String fileName, Decoded original, OriginalStore storeOriginal, long start)
+            throws IOException {
+        BufferedImage invertedInfo = invertColors(original.image());
 
         // 3. Convert to Bytes
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(invertedInfo, "png", baos);
+        ImageIO.write(invertedInfo, OUTPUT_FORMAT, baos);
         byte[] invertedBytes = baos.toByteArray();
+        BlobStore.Blob originalBlob = storeOriginal.put();
+        BlobStore.Blob invertedBlob = blobStore.put(invertedBytes);
 
-        // 4. Save to Database
+        // 4. Save to Database (only blob references, the bytes stay in the BlobStore).
+        // Queued for a batched insert, so the response does not wait for the database.
         ImageRecord record = new ImageRecord();
-        record.setFileName(file.getOriginalFilename());
+        record.setFileName(fileName);
         record.setProcessedAt(LocalDateTime.now());
-        record.setOriginalImage(file.getBytes());
-        record.setInvertedImage(invertedBytes);
-        
-        repository.save(record);
+        record.setLastAccessedAt(record.getProcessedAt());
+        record.setOriginalHash(originalBlob.hash());
+        record.setOriginalSize(originalBlob.size());
+        record.setOriginalFormat(original.format());
+        record.setInvertedHash(invertedBlob.hash());
+        record.setInvertedSize(invertedBlob.size());
+        record.setInvertedFormat(OUTPUT_FORMAT);
+        record.setWidth(original.image().getWidth());
+        record.setHeight(original.image().getHeight());
+        record.setPixelFormat(pixelFormat(original.image()));
+        record.setProcessingTimeMs(elapsedMs(start));
+
+        historyWriter.save(record);
 
         return invertedBytes;
     }
 
+    /**
+     * Short pixel layout name for the history, e.g. "rgb8", "rgba8", "gray16", "indexed8".
+     */
+    static String pixelFormat(BufferedImage image) {
+        ColorModel model = image.getColorModel();
+        if (model instanceof IndexColorModel) {
+            return "indexed" + model.getPixelSize();
+        }
+        String layout = model.getNumColorComponents() == 1 ? "gray" : "rgb";
+        if (model.hasAlpha()) {
+            layout += "a";
+        }
+        return layout + model.getComponentSize(0);
+    }
+
+    private static long elapsedMs(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
     private BufferedImage invertColors(BufferedImage image) {
         int width = image.getWidth();
         int height = image.getHeight();
@@ -63,4 +189,12 @@ public class ImageService {
         }
         return result;
     }
-}
\ No newline at end of file
+
+    private record Decoded(BufferedImage image, String format) {
+    }
+
+    @FunctionalInterface
+    private interface OriginalStore {
+        BlobStore.Blob put() throws IOException;
+    }
+}
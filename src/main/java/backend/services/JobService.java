@@ -0,0 +1,413 @@
+package backend.services;
+
+import backend.models.ImageJob;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imageapp.service.ImagePipeline;
+import com.imageapp.service.ImageProcessingService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous image jobs for work that does not fit in one HTTP request.
+ *
+ * A submitted job is written to the jobs directory as its input file
+ * ({id}.input) plus a sidecar ({id}.properties) holding its state, then
+ * queued on a fixed worker pool with a bounded queue; when the queue is full
+ * submission fails with RejectedExecutionException instead of piling up work.
+ * Workers decode through ImageService and run the operations as an
+ * ImagePipeline, publishing progress after every stage. The encoded result
+ * is kept as {id}.result until it expires; expired jobs are purged on every
+ * submission and by a scheduled sweep, so results do not pile up on an idle
+ * server.
+ *
+ * Because the state lives on disk, jobs that were queued or running when the
+ * server stopped are queued again on startup.
+ */
+@Service
+public class JobService {
+
+    public static final String DEFAULT_OPERATIONS = "[{\"op\":\"invert\"}]";
+
+    private final ImageService imageService;
+    private final ImageProcessingService imageIo;
+    private final ObjectMapper objectMapper;
+    private final Path jobsDir;
+    private final Duration retention;
+    private final ThreadPoolExecutor workers;
+
+    private final Map<String, ImageJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Future<?>> running = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<ImageJob>>> listeners = new ConcurrentHashMap<>();
+
+    public JobService(ImageService imageService,
+                      ImageProcessingService imageIo,
+                      ObjectMapper objectMapper,
+                      @Value("${image.jobs.dir:${java.io.tmpdir}/image-inverter/jobs}") String jobsDir,
+                      @Value("${image.jobs.threads:2}") int threads,
+                      @Value("${image.jobs.queue-capacity:100}") int queueCapacity,
+                      @Value("${image.jobs.retention-minutes:60}") long retentionMinutes) throws IOException {
+        this.imageService = imageService;
+        this.imageIo = imageIo;
+        this.objectMapper = objectMapper;
+        this.jobsDir = Files.createDirectories(Paths.get(jobsDir));
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        AtomicInteger counter = new AtomicInteger();
+        int poolSize = Math.max(1, threads);
+        this.workers = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "job-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Reloads every job found in the jobs directory; unfinished ones are
+     * queued again.
+     */
+    @PostConstruct
+    public void recover() throws IOException {
+        try (DirectoryStream<Path> metas = Files.newDirectoryStream(jobsDir, "*.properties")) {
+            for (Path meta : metas) {
+                String name = meta.getFileName().toString();
+                String id = name.substring(0, name.length() - ".properties".length());
+                ImageJob job;
+                try {
+                    job = load(checkId(id), meta);
+                } catch (IOException | RuntimeException e) {
+                    // Unreadable leftovers are not worth failing startup for
+                    continue;
+                }
+                jobs.put(job.getId(), job);
+                if (!job.getStatus().isTerminal()) {
+                    job.requeue();
+                    try {
+                        enqueue(job);
+                    } catch (RejectedExecutionException e) {
+                        job.fail("Job queue was full after restart");
+                        persist(job);
+                    }
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Interrupted jobs keep their on-disk state and are resumed by recover()
+        workers.shutdownNow();
+    }
+
+    /**
+     * Stages the input and queues the job. The operations are validated
+     * first, so a bad request fails here with IllegalArgumentException rather
+     * than later inside a worker.
+     */
+    public ImageJob submit(String fileName, InputStream input, String operations, String format) throws IOException {
+        String ops = operations == null || operations.isBlank() ? DEFAULT_OPERATIONS : operations;
+        compile(ops);
+        String outputFormat = format == null || format.isBlank() ? "png" : format.toLowerCase();
+        if (!ImageIO.getImageWritersByFormatName(outputFormat).hasNext()) {
+            throw new IllegalArgumentException("Unsupported output format: " + format);
+        }
+        purgeExpired();
+
+        String safeName = fileName == null ? "image" : Paths.get(fileName).getFileName().toString();
+        ImageJob job = new ImageJob(UUID.randomUUID().toString(), safeName, ops, outputFormat, Instant.now());
+        Files.copy(input, inputFile(job.getId()));
+        persist(job);
+        jobs.put(job.getId(), job);
+        try {
+            enqueue(job);
+        } catch (RejectedExecutionException e) {
+            delete(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    public ImageJob get(String id) {
+        ImageJob job = jobs.get(checkId(id));
+        if (job == null) {
+            throw new NoSuchElementException("Job not found: " + id);
+        }
+        return job;
+    }
+
+    /**
+     * The encoded result of a finished job; IllegalStateException until then.
+     */
+    public Path resultFile(String id) {
+        ImageJob job = get(id);
+        if (job.getStatus() != ImageJob.Status.SUCCEEDED) {
+            throw new IllegalStateException("Job is " + job.getStatus());
+        }
+        return resultFile(job.getId(), true);
+    }
+
+    /**
+     * Cancels a queued or running job. A job that already finished is
+     * deleted together with its result.
+     */
+    public ImageJob cancel(String id) throws IOException {
+        ImageJob job = get(id);
+        if (job.cancel()) {
+            Future<?> future = running.remove(job.getId());
+            if (future != null) {
+                future.cancel(true);
+            }
+            Files.deleteIfExists(inputFile(job.getId()));
+            persist(job);
+            publish(job);
+        } else {
+            delete(job.getId());
+        }
+        return job;
+    }
+
+    /**
+     * Registers a listener for state and progress changes of one job. It is
+     * called once right away with the current state, then on every change,
+     * on the worker thread. Returns the handle to unsubscribe.
+     */
+    public Runnable subscribe(String id, Consumer<ImageJob> listener) {
+        ImageJob job = get(id);
+        List<Consumer<ImageJob>> list = listeners.computeIfAbsent(job.getId(), key -> new CopyOnWriteArrayList<>());
+        list.add(listener);
+        listener.accept(job);
+        return () -> list.remove(listener);
+    }
+
+    public int queuedCount() {
+        return workers.getQueue().size();
+    }
+
+    private void enqueue(ImageJob job) {
+        // Registered before it can run, so run() always finds it to remove
+        FutureTask<Void> task = new FutureTask<>(() -> run(job), null);
+        running.put(job.getId(), task);
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            running.remove(job.getId(), task);
+            throw e;
+        }
+    }
+
+    private void run(ImageJob job) {
+        String id = job.getId();
+        if (!job.start()) {
+            running.remove(id);
+            return; // cancelled while queued
+        }
+        try {
+            ImagePipeline pipeline = compile(job.getOperations());
+            List<String> stageNames = pipeline.stageNames();
+            double steps = stageNames.size() + 2; // decode, stages, encode
+            AtomicInteger done = new AtomicInteger();
+
+            job.advance(0, "decode");
+            persist(job);
+            publish(job);
+            BufferedImage image = imageService.decode(inputFile(id));
+            job.advance(done.incrementAndGet() / steps, stageNames.get(0));
+            publish(job);
+
+            image = pipeline.apply(image, timing -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException();
+                }
+                int finished = done.incrementAndGet();
+                job.advance(finished / steps, finished - 1 < stageNames.size() ? stageNames.get(finished - 1) : "encode");
+                publish(job);
+            });
+
+            byte[] encoded = imageIo.writeImage(image, job.getFormat());
+            Path tmp = jobsDir.resolve(id + ".result.tmp");
+            Files.write(tmp, encoded);
+            Files.move(tmp, resultFile(id, false), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // The input goes before the job reports SUCCEEDED, so a finished
+            // job never has one left on disk
+            Files.deleteIfExists(inputFile(id));
+            if (!job.succeed(encoded.length)) {
+                Files.deleteIfExists(resultFile(id, false)); // cancelled while encoding
+            }
+        } catch (Exception | OutOfMemoryError e) {
+            if (workers.isShutdown()) {
+                return; // leave the sidecar as RUNNING, recover() requeues it
+            }
+            job.fail(e instanceof CancellationException ? "Cancelled" : String.valueOf(e.getMessage()));
+        } finally {
+            running.remove(id);
+        }
+        try {
+            persist(job);
+        } catch (IOException e) {
+            // The in-memory state is still correct; only restart recovery is affected
+        }
+        publish(job);
+    }
+
+    private void publish(ImageJob job) {
+        for (Consumer<ImageJob> listener : listeners.getOrDefault(job.getId(), List.of())) {
+            try {
+                listener.accept(job);
+            } catch (RuntimeException e) {
+                // A broken listener (e.g. a closed SSE stream) must not fail the job
+            }
+        }
+        if (job.getStatus().isTerminal()) {
+            listeners.remove(job.getId());
+        }
+    }
+
+    private ImagePipeline compile(String operations) {
+        try {
+            return ImagePipeline.fromSpec(
+                    objectMapper.readValue(operations, new TypeReference<List<Map<String, Object>>>() { }));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("ops must be a JSON array of operations: " + e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${image.jobs.purge-interval-ms:600000}",
+               fixedDelayString = "${image.jobs.purge-interval-ms:600000}")
+    public void scheduledPurge() {
+        try {
+            purgeExpired();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next sweep starts over
+            e.printStackTrace();
+        }
+    }
+
+    private void purgeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        for (ImageJob job : jobs.values()) {
+            if (job.getStatus().isTerminal() && job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff)) {
+                try {
+                    delete(job.getId());
+                } catch (IOException e) {
+                    // Retried on the next purge
+                }
+            }
+        }
+    }
+
+    private void delete(String id) throws IOException {
+        jobs.remove(id);
+        listeners.remove(id);
+        Files.deleteIfExists(inputFile(id));
+        Files.deleteIfExists(resultFile(id, false));
+        Files.deleteIfExists(metaFile(id));
+    }
+
+    private void persist(ImageJob job) throws IOException {
+        Properties props = new Properties();
+        synchronized (job) {
+            props.setProperty("fileName", job.getFileName());
+            props.setProperty("operations", job.getOperations());
+            props.setProperty("format", job.getFormat());
+            props.setProperty("createdAt", job.getCreatedAt().toString());
+            props.setProperty("status", job.getStatus().name());
+            props.setProperty("resultSize", Long.toString(job.getResultSize()));
+            if (job.getError() != null) {
+                props.setProperty("error", job.getError());
+            }
+            if (job.getStartedAt() != null) {
+                props.setProperty("startedAt", job.getStartedAt().toString());
+            }
+            if (job.getFinishedAt() != null) {
+                props.setProperty("finishedAt", job.getFinishedAt().toString());
+            }
+
+            // Write-then-rename so a crash never leaves a truncated sidecar
+            Path tmp = jobsDir.resolve(job.getId() + ".properties.tmp");
+            try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                props.store(out, "image job");
+            }
+            Files.move(tmp, metaFile(job.getId()),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private ImageJob load(String id, Path meta) throws IOException {
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+            props.load(in);
+        }
+        ImageJob job = new ImageJob(id,
+                props.getProperty("fileName"),
+                props.getProperty("operations", DEFAULT_OPERATIONS),
+                props.getProperty("format", "png"),
+                Instant.parse(props.getProperty("createdAt")));
+        String startedAt = props.getProperty("startedAt");
+        String finishedAt = props.getProperty("finishedAt");
+        job.restore(ImageJob.Status.valueOf(props.getProperty("status")),
+                props.getProperty("error"),
+                startedAt == null ? null : Instant.parse(startedAt),
+                finishedAt == null ? null : Instant.parse(finishedAt),
+                Long.parseLong(props.getProperty("resultSize", "0")));
+        return job;
+    }
+
+    private Path inputFile(String id) {
+        return jobsDir.resolve(checkId(id) + ".input");
+    }
+
+    private Path resultFile(String id, boolean mustExist) {
+        Path path = jobsDir.resolve(checkId(id) + ".result");
+        if (mustExist && !Files.exists(path)) {
+            throw new NoSuchElementException("Result of job " + id + " is no longer available");
+        }
+        return path;
+    }
+
+    private Path metaFile(String id) {
+        return jobsDir.resolve(checkId(id) + ".properties");
+    }
+
+    private static String checkId(String id) {
+        // ids are UUIDs; anything else could escape the jobs directory
+        try {
+            return UUID.fromString(id).toString();
+        } catch (IllegalArgumentException e) {
+            throw new NoSuchElementException("Job not found: " + id);
+        }
+    }
+}
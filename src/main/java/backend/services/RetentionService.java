@@ -0,0 +1,270 @@
+package backend.services;
+
+import backend.dto.RetentionStatus;
+import backend.models.ImageRecord;
+import backend.repositories.ImageRepository;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the processing history within configured bounds: record count,
+ * record age and bytes held by the blob store. A limit of 0 disables it.
+ *
+ * Compaction runs on the scheduler thread, never on a request thread. Each
+ * pass deletes records in batches (one short transaction per batch): first
+ * everything older than the age limit, then the least recently accessed
+ * records until the count and byte limits hold. Blobs referenced by an
+ * evicted record are deleted once no remaining record points at them. The
+ * byte limit stops evicting as soon as a batch frees nothing: its blobs are
+ * shared with newer records or still in their grace period, and deleting
+ * more history would not bring the store under the limit.
+ *
+ * A blob used within the grace period (see BlobStore.touch) is left alone
+ * for now, because a request may have just shared it with a history record
+ * that is still queued in the HistoryWriter. Such blobs are retried on the
+ * next pass.
+ *
+ * Blobs that no record references at all (a write that failed before its
+ * record was saved, or a deferred blob forgotten by a restart, since that
+ * list is kept in memory only) are found by an orphan sweep over the whole
+ * store. It runs on the first pass after startup, before any history is
+ * evicted for bytes, and then at most every orphan-sweep-minutes.
+ *
+ * Metrics: image.retention.stored.bytes, image.retention.evicted.records,
+ * image.retention.reclaimed.bytes, image.retention.compaction.
+ */
+@Service
+public class RetentionService {
+
+    /**
+     * Outcome of one compaction pass, with the footprint it left behind.
+     */
+    public record Report(
+            @JsonProperty("finished_at") Instant finishedAt,
+            @JsonProperty("duration_ms") long durationMs,
+            @JsonProperty("evicted_records") long evictedRecords,
+            @JsonProperty("deleted_blobs") long deletedBlobs,
+            @JsonProperty("reclaimed_bytes") long reclaimedBytes,
+            @JsonProperty("records") long records,
+            @JsonProperty("stored_bytes") long storedBytes) {
+    }
+
+    private final ImageRepository repository;
+    private final BlobStore blobStore;
+    private final long maxBytes;
+    private final long maxRecords;
+    private final Duration maxAge;
+    private final int batchSize;
+    private final Duration blobGrace;
+    private final Duration orphanSweepInterval;
+
+    // Unreferenced blobs that were still inside the grace period
+    private final Set<String> deferredBlobs = ConcurrentHashMap.newKeySet();
+    private volatile Report lastReport;
+    private Instant lastOrphanSweep; // null until the first pass, guarded by this
+
+    private final Counter evicted;
+    private final Counter reclaimed;
+    private final Timer compactionTimer;
+
+    public RetentionService(ImageRepository repository,
+                            BlobStore blobStore,
+                            MeterRegistry meterRegistry,
+                            @Value("${image.retention.max-bytes:1073741824}") long maxBytes,
+                            @Value("${image.retention.max-records:100000}") long maxRecords,
+                            @Value("${image.retention.max-age-days:30}") long maxAgeDays,
+                            @Value("${image.retention.batch-size:500}") int batchSize,
+                            @Value("${image.retention.blob-grace-seconds:300}") long blobGraceSeconds,
+                            @Value("${image.retention.orphan-sweep-minutes:60}") long orphanSweepMinutes) {
+        this.repository = repository;
+        this.blobStore = blobStore;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxRecords = Math.max(0, maxRecords);
+        this.maxAge = Duration.ofDays(Math.max(0, maxAgeDays));
+        this.batchSize = Math.max(1, batchSize);
+        this.blobGrace = Duration.ofSeconds(Math.max(0, blobGraceSeconds));
+        this.orphanSweepInterval = Duration.ofMinutes(Math.max(0, orphanSweepMinutes));
+
+        meterRegistry.gauge("image.retention.stored.bytes", blobStore, BlobStore::totalBytes);
+        this.evicted = meterRegistry.counter("image.retention.evicted.records");
+        this.reclaimed = meterRegistry.counter("image.retention.reclaimed.bytes");
+        this.compactionTimer = meterRegistry.timer("image.retention.compaction");
+    }
+
+    @Scheduled(initialDelayString = "${image.retention.interval-ms:60000}",
+               fixedDelayString = "${image.retention.interval-ms:60000}")
+    public void scheduledCompaction() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next pass starts over
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Runs one compaction pass on the calling thread.
+     */
+    public synchronized Report compact() {
+        long start = System.nanoTime();
+        Pass pass = new Pass();
+
+        if (lastOrphanSweep == null || !Instant.now().isBefore(lastOrphanSweep.plus(orphanSweepInterval))) {
+            sweepOrphans(pass);
+        }
+
+        if (!maxAge.isZero()) {
+            LocalDateTime cutoff = LocalDateTime.now().minus(maxAge);
+            List<ImageRecord> batch;
+            do {
+                batch = repository.findByProcessedAtBeforeOrderByProcessedAtAsc(cutoff, Limit.of(batchSize));
+                evict(batch, pass);
+            } while (batch.size() == batchSize);
+        }
+
+        if (maxRecords > 0) {
+            long excess;
+            while ((excess = repository.count() - maxRecords) > 0) {
+                List<ImageRecord> batch = repository.findByOrderByLastAccessedAtAscIdAsc(
+                        Limit.of((int) Math.min(batchSize, excess)));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                evict(batch, pass);
+            }
+        }
+
+        // Shared blobs may survive an eviction, so re-check the total after every
+        // batch. Records used within the grace period would free nothing yet.
+        LocalDateTime idleCutoff = LocalDateTime.now().minus(blobGrace);
+        while (maxBytes > 0 && blobStore.totalBytes() > maxBytes) {
+            List<ImageRecord> batch = repository.findByLastAccessedAtBeforeOrderByLastAccessedAtAscIdAsc(
+                    idleCutoff, Limit.of(batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            long before = blobStore.totalBytes();
+            evict(batch, pass);
+            if (blobStore.totalBytes() >= before) {
+                // Nothing freed: the bytes are held by blobs this history cannot release
+                break;
+            }
+        }
+
+        collectBlobs(pass);
+
+        long elapsed = System.nanoTime() - start;
+        compactionTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        Report report = new Report(Instant.now(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                pass.records, pass.blobs, pass.bytes, repository.count(), blobStore.totalBytes());
+        lastReport = report;
+        return report;
+    }
+
+    /**
+     * Result of the most recent compaction, or null before the first one.
+     */
+    public Report lastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Current footprint and limits. Cheap enough for a request thread: one
+     * count query, the blob totals are kept in memory.
+     */
+    public RetentionStatus status() {
+        return new RetentionStatus(repository.count(), blobStore.count(), blobStore.totalBytes(),
+                maxRecords, maxBytes, maxAge.toDays(), lastReport);
+    }
+
+    private void evict(List<ImageRecord> batch, Pass pass) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (ImageRecord record : batch) {
+            if (record.getOriginalHash() != null) {
+                deferredBlobs.add(record.getOriginalHash());
+            }
+            if (record.getInvertedHash() != null) {
+                deferredBlobs.add(record.getInvertedHash());
+            }
+        }
+        repository.deleteAllByIdInBatch(batch.stream().map(ImageRecord::getId).toList());
+        pass.records += batch.size();
+        evicted.increment(batch.size());
+        collectBlobs(pass);
+    }
+
+    private void collectBlobs(Pass pass) {
+        Instant graceCutoff = Instant.now().minus(blobGrace);
+        deferredBlobs.removeIf(hash -> collect(hash, graceCutoff, pass));
+    }
+
+    /**
+     * Walks the whole blob store and deletes blobs that no record references.
+     * Those still inside the grace period are deferred to the next pass.
+     */
+    private void sweepOrphans(Pass pass) {
+        Instant graceCutoff = Instant.now().minus(blobGrace);
+        try (Stream<String> hashes = blobStore.hashes()) {
+            hashes.filter(hash -> !deferredBlobs.contains(hash))
+                    .filter(hash -> !collect(hash, graceCutoff, pass))
+                    .forEach(deferredBlobs::add);
+        } catch (IOException | UncheckedIOException e) {
+            // Retried on the next sweep
+            e.printStackTrace();
+        }
+        lastOrphanSweep = Instant.now();
+    }
+
+    /**
+     * Deletes the blob when no record references it and its grace period is
+     * over. Returns false when it has to be looked at again later.
+     */
+    private boolean collect(String hash, Instant graceCutoff, Pass pass) {
+        if (repository.existsByOriginalHash(hash) || repository.existsByInvertedHash(hash)) {
+            return true;
+        }
+        try {
+            // Same hash, same size: safe to read before the delete
+            long size = blobStore.size(hash);
+            if (blobStore.deleteIfUnusedSince(hash, graceCutoff)) {
+                pass.blobs++;
+                pass.bytes += size;
+                reclaimed.increment(size);
+                return true;
+            }
+            // Used within the grace period (keep for a later pass), or already gone
+            return !blobStore.contains(hash);
+        } catch (NoSuchFileException e) {
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static final class Pass {
+        long records;
+        long blobs;
+        long bytes;
+    }
+}
@@ -0,0 +1,359 @@
+package backend.services;
+
+import backend.models.UploadSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resumable chunked uploads for images larger than the multipart limit.
+ *
+ * Each session owns a sparse staging file ({id}.part) that chunks are written
+ * into at their declared offset, and a small sidecar ({id}.properties) with
+ * the received ranges. The sidecar is rewritten after every chunk, so an
+ * interrupted upload can be resumed even after a server restart.
+ * Chunks are copied through a fixed buffer; heap use does not grow with the
+ * upload size.
+ *
+ * Committing decodes, inverts and encodes the whole image in memory, so both
+ * limits are sized for that path: {@code max-size} caps the staged bytes and
+ * {@code max-pixels} caps the decoded image, which is checked from the image
+ * header before decoding (a small compressed file can still decode into a
+ * huge raster). Larger images go through the jobs API.
+ *
+ * Sessions that receive nothing for longer than the idle timeout are
+ * deleted by a scheduled sweep (staging file, sidecar and in-memory entry).
+ * Activity is read from the files' modification times, so sessions left
+ * behind by an earlier run expire too.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    private final ImageService imageService;
+    private final Path stagingDir;
+    private final long maxUploadSize;
+    private final long maxPixels;
+    private final long maxChunkSize;
+    private final Duration idleTimeout;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public UploadSessionService(
+            ImageService imageService,
+            @Value("${image.upload.staging-dir:${java.io.tmpdir}/image-inverter/uploads}") String stagingDir,
+            @Value("${image.upload.max-size:536870912}") long maxUploadSize,
+            @Value("${image.upload.max-pixels:40000000}") long maxPixels,
+            @Value("${image.upload.max-chunk-size:16777216}") long maxChunkSize,
+            @Value("${image.upload.idle-timeout-minutes:1440}") long idleTimeoutMinutes) throws IOException {
+        this.imageService = imageService;
+        this.stagingDir = Files.createDirectories(Paths.get(stagingDir));
+        this.maxUploadSize = maxUploadSize;
+        this.maxPixels = maxPixels;
+        this.maxChunkSize = maxChunkSize;
+        this.idleTimeout = Duration.ofMinutes(Math.max(0, idleTimeoutMinutes));
+    }
+
+    public UploadSession create(String fileName, long totalSize) throws IOException {
+        if (totalSize <= 0 || totalSize > maxUploadSize) {
+            throw new IllegalArgumentException("Total size must be between 1 and " + maxUploadSize + " bytes");
+        }
+        String safeName = fileName == null ? "upload" : Paths.get(fileName).getFileName().toString();
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), safeName, totalSize, Instant.now());
+
+        // Pre-size the staging file so chunks can land at any offset
+        try (FileChannel channel = FileChannel.open(dataFile(session.getId()),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(1), totalSize - 1);
+        }
+        persist(session);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    public UploadSession get(String id) throws IOException {
+        UploadSession session = sessions.get(id);
+        if (session != null) {
+            return session;
+        }
+        // Not in memory: resume from the sidecar written before a restart
+        Path meta = metaFile(id);
+        if (!Files.exists(meta)) {
+            throw new NoSuchElementException("Upload session not found: " + id);
+        }
+        session = load(id, meta);
+        UploadSession existing = sessions.putIfAbsent(id, session);
+        return existing != null ? existing : session;
+    }
+
+    /**
+     * Writes one chunk described by a Content-Range header ("bytes start-end/total").
+     * If the body ends early (client disconnect), whatever arrived is kept and
+     * reported as received, so the client resumes from the new next offset.
+     */
+    public UploadSession writeChunk(String id, String contentRange, InputStream body) throws IOException {
+        UploadSession session = get(id);
+        long[] range = parseContentRange(contentRange);
+        long start = range[0];
+        long end = range[1] + 1;
+        if (range[2] != session.getTotalSize()) {
+            throw new IllegalArgumentException("Content-Range total does not match session size " + session.getTotalSize());
+        }
+        if (end > session.getTotalSize()) {
+            throw new IllegalArgumentException("Content-Range ends past the declared size");
+        }
+        if (end - start > maxChunkSize) {
+            throw new IllegalArgumentException("Chunk exceeds the maximum of " + maxChunkSize + " bytes");
+        }
+
+        synchronized (session) {
+            long written = 0;
+            try (FileChannel channel = FileChannel.open(dataFile(id), StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                long expected = end - start;
+                int read;
+                while (written < expected
+                        && (read = body.read(buffer, 0, (int) Math.min(buffer.length, expected - written))) != -1) {
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining()) {
+                        written += channel.write(chunk, start + written);
+                    }
+                }
+                if (written == expected && body.read() != -1) {
+                    throw new IllegalArgumentException("Chunk body is longer than its Content-Range");
+                }
+            } finally {
+                session.markReceived(start, start + written);
+                persist(session);
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Processes the assembled file and removes the staging data.
+     * Fails with IllegalStateException while ranges are still missing, and
+     * with IllegalArgumentException if the image has more than max-pixels
+     * pixels (the session is kept, the client may abort it).
+     */
+    public byte[] commit(String id) throws IOException {
+        UploadSession session = get(id);
+        synchronized (session) {
+            if (!session.isComplete()) {
+                throw new IllegalStateException("Upload incomplete: " + session.getReceivedBytes()
+                        + " of " + session.getTotalSize() + " bytes received");
+            }
+            byte[] result = imageService.processAndSave(session.getFileName(), dataFile(id), maxPixels);
+            delete(id);
+            return result;
+        }
+    }
+
+    /**
+     * Direct access to the staged bytes of a complete upload (e.g. to hash them
+     * for an ETag before committing).
+     */
+    public Path stagedFile(String id) throws IOException {
+        UploadSession session = get(id);
+        if (!session.isComplete()) {
+            throw new IllegalStateException("Upload incomplete");
+        }
+        return dataFile(id);
+    }
+
+    public void abort(String id) throws IOException {
+        UploadSession session = get(id);
+        synchronized (session) {
+            delete(id);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${image.upload.sweep-interval-ms:600000}",
+               fixedDelayString = "${image.upload.sweep-interval-ms:600000}")
+    public void scheduledExpiry() {
+        try {
+            expireIdle();
+        } catch (IOException | RuntimeException e) {
+            // Keep the schedule alive; the next sweep starts over
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Deletes every session idle for longer than the timeout (0 disables
+     * expiry) and returns how many were removed.
+     */
+    public int expireIdle() throws IOException {
+        if (idleTimeout.isZero()) {
+            return 0;
+        }
+        Instant cutoff = Instant.now().minus(idleTimeout);
+        Set<String> ids = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(stagingDir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int dot = name.indexOf('.');
+                if (dot > 0) {
+                    ids.add(name.substring(0, dot));
+                }
+            }
+        }
+        int expired = 0;
+        for (String id : ids) {
+            try {
+                checkId(id);
+            } catch (NoSuchElementException e) {
+                continue; // not ours
+            }
+            UploadSession session = sessions.get(id);
+            if (session == null) {
+                if (expire(id, cutoff)) {
+                    expired++;
+                }
+                continue;
+            }
+            // A chunk in progress holds the lock and refreshes the files
+            synchronized (session) {
+                if (expire(id, cutoff)) {
+                    expired++;
+                }
+            }
+        }
+        return expired;
+    }
+
+    private boolean expire(String id, Instant cutoff) throws IOException {
+        Instant lastActivity = Instant.EPOCH;
+        for (Path file : List.of(dataFile(id), metaFile(id), metaTmpFile(id))) {
+            try {
+                Instant modified = Files.getLastModifiedTime(file).toInstant();
+                if (modified.isAfter(lastActivity)) {
+                    lastActivity = modified;
+                }
+            } catch (NoSuchFileException e) {
+                // Not written yet, or already gone
+            }
+        }
+        if (!lastActivity.isBefore(cutoff)) {
+            return false;
+        }
+        delete(id);
+        return true;
+    }
+
+    static long[] parseContentRange(String header) {
+        if (header == null) {
+            throw new IllegalArgumentException("Content-Range header is required");
+        }
+        Matcher m = CONTENT_RANGE.matcher(header.trim());
+        if (!m.matches()) {
+            throw new IllegalArgumentException("Malformed Content-Range: " + header);
+        }
+        long start = Long.parseLong(m.group(1));
+        long end = Long.parseLong(m.group(2));
+        long total = Long.parseLong(m.group(3));
+        if (end < start) {
+            throw new IllegalArgumentException("Malformed Content-Range: " + header);
+        }
+        return new long[]{start, end, total};
+    }
+
+    private void delete(String id) throws IOException {
+        sessions.remove(id);
+        Files.deleteIfExists(dataFile(id));
+        Files.deleteIfExists(metaFile(id));
+        Files.deleteIfExists(metaTmpFile(id));
+    }
+
+    private void persist(UploadSession session) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("fileName", session.getFileName());
+        props.setProperty("totalSize", Long.toString(session.getTotalSize()));
+        props.setProperty("createdAt", session.getCreatedAt().toString());
+        StringBuilder ranges = new StringBuilder();
+        for (long[] range : session.getReceivedRanges()) {
+            if (ranges.length() > 0) {
+                ranges.append(',');
+            }
+            ranges.append(range[0]).append('-').append(range[1]);
+        }
+        props.setProperty("received", ranges.toString());
+
+        // Write-then-rename so a crash never leaves a truncated sidecar
+        Path tmp = metaTmpFile(session.getId());
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            props.store(out, "upload session");
+        }
+        Files.move(tmp, metaFile(session.getId()),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private UploadSession load(String id, Path meta) throws IOException {
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+            props.load(in);
+        }
+        UploadSession session = new UploadSession(id,
+                props.getProperty("fileName"),
+                Long.parseLong(props.getProperty("totalSize")),
+                Instant.parse(props.getProperty("createdAt")));
+        String received = props.getProperty("received", "");
+        if (!received.isEmpty()) {
+            for (String range : received.split(",")) {
+                String[] bounds = range.split("-");
+                session.markReceived(Long.parseLong(bounds[0]), Long.parseLong(bounds[1]));
+            }
+        }
+        return session;
+    }
+
+    private Path dataFile(String id) {
+        return stagingDir.resolve(checkId(id) + ".part");
+    }
+
+    private Path metaFile(String id) {
+        return stagingDir.resolve(checkId(id) + ".properties");
+    }
+
+    private Path metaTmpFile(String id) {
+        return stagingDir.resolve(checkId(id) + ".properties.tmp");
+    }
+
+    private static String checkId(String id) {
+        // ids are UUIDs; anything else could escape the staging directory
+        try {
+            return UUID.fromString(id).toString();
+        } catch (IllegalArgumentException e) {
+            throw new NoSuchElementException("Upload session not found: " + id);
+        }
+    }
+}
@@ -1,127 +1,353 @@
 package com.imageapp.controller;
 
+import backend.services.ImageETags;
+import backend.services.SingleFlight;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imageapp.service.ArchiveBatchProcessor;
 import com.imageapp.service.BatchImageProcessor;
 import com.imageapp.service.ImageFiltersService;
 import com.imageapp.service.ImageInversionService;
+import com.imageapp.service.ImageOperation;
+import com.imageapp.service.ImagePipeline;
+import com.imageapp.service.ImageStatistics;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 @RestController
 @RequestMapping("/api/images")
 @CrossOrigin(origins = "*")
 public class AdvancedImageController {
 
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final List<MediaType> IMAGE_TYPES = List.of(MediaType.IMAGE_PNG, MediaType.IMAGE_JPEG);
+    private static final String MODE_IMAGE = "image";
+    private static final String MODE_STATS = "stats";
+
     private final ImageInversionService inversionService;
+    private final BatchImageProcessor batchProcessor;
+    private final ArchiveBatchProcessor archiveProcessor;
+    private final ObjectMapper objectMapper;
+
+    // Keyed by response ETag (content hash + filter + params + variant)
+    private final SingleFlight<String, byte[]> imagesInFlight = new SingleFlight<>();
+    private final SingleFlight<String, ImageStatistics> statsInFlight = new SingleFlight<>();
+    private final SingleFlight<String, ImagePipeline.Result> pipelinesInFlight = new SingleFlight<>();
 
-    public AdvancedImageController(ImageInversionService inversionService) {
+    public AdvancedImageController(ImageInversionService inversionService,
+                                   BatchImageProcessor batchProcessor,
+                                   ArchiveBatchProcessor archiveProcessor,
+                                   ObjectMapper objectMapper) {
         this.inversionService = inversionService;
+        this.batchProcessor = batchProcessor;
+        this.archiveProcessor = archiveProcessor;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * JSON batch: images are embedded as base64 byte arrays.
+     * Results stream back as NDJSON, one ProcessedImage per line, in the
+     * order the items finish. Invalid requests are rejected (400, via
+     * GlobalExceptionHandler) before anything is decoded.
+     */
+    @PostMapping(value = "/batch-process", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> batchProcess(@RequestBody BatchImageProcessor.BatchRequest request) {
+        BatchImageProcessor.validate(request);
+        return streamBatch(request);
+    }
+
+    /**
+     * Multipart batch: one "file" part per image, read lazily by the worker
+     * that processes it. Optional params are a JSON object, e.g. {"radius": 5}.
+     */
+    @PostMapping(value = "/batch-process", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StreamingResponseBody> batchProcessMultipart(
+            @RequestParam("file") List<MultipartFile> files,
+            @RequestParam("operation") String operation,
+            @RequestParam(value = "params", required = false) String params,
+            @RequestParam(value = "parallelism", required = false) Integer parallelism) {
+        BatchImageProcessor.BatchRequest request = new BatchImageProcessor.BatchRequest();
+        request.operation = operation;
+        request.parallelism = parallelism;
+        request.params = parseParams(params);
+        BatchImageProcessor.validate(request);
+        for (MultipartFile file : files) {
+            request.images.add(BatchImageProcessor.ImageData.of(
+                    file.getOriginalFilename(), formatOf(file.getOriginalFilename()), file));
+        }
+        return streamBatch(request);
+    }
+
+    /**
+     * Archive batch: the request body is a ZIP, TAR or .tar.gz of images (not
+     * multipart, so the upload size limit does not apply) and the response is
+     * a ZIP of the results. Both sides stream through a bounded pipeline.
+     * Example: curl --data-binary @photos.zip -H "Content-Type: application/zip" \
+     *   "http://localhost:8080/api/images/batch-process/archive?operation=invert" -o out.zip
+     */
+    @PostMapping(value = "/batch-process/archive",
+            consumes = {"application/zip", "application/x-tar", "application/gzip", "application/octet-stream"})
+    public ResponseEntity<StreamingResponseBody> batchProcessArchive(
+            InputStream archive,
+            @RequestParam("operation") String operation,
+            @RequestParam(value = "params", required = false) String params,
+            @RequestParam(value = "format", defaultValue = "png") String format,
+            @RequestParam(value = "parallelism", required = false) Integer parallelism) {
+        BatchImageProcessor.BatchRequest request = new BatchImageProcessor.BatchRequest();
+        request.operation = operation;
+        request.parallelism = parallelism;
+        request.params = parseParams(params);
+        BatchImageProcessor.validate(request);
+
+        StreamingResponseBody body = out -> {
+            try {
+                archiveProcessor.process(archive, request, format, out);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header("Content-Disposition", "attachment; filename=\"processed.zip\"")
+                .body(body);
     }
 
-    @PostMapping("/batch-process")
-    public ResponseEntity<?> batchProcess(@RequestBody BatchImageProcessor.BatchRequest request) {
+    private Map<String, Object> parseParams(String params) {
+        if (params == null || params.isBlank()) {
+            return new HashMap<>();
+        }
         try {
-            BatchImageProcessor.BatchResponse response = BatchImageProcessor.processBatch(request, null);
-            return ResponseEntity.ok(response);
+            return objectMapper.readValue(params, new TypeReference<Map<String, Object>>() { });
         } catch (IOException e) {
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+            throw new IllegalArgumentException("params must be a JSON object: " + e.getMessage());
         }
     }
 
-    @PostMapping("/filter/grayscale")
-    public ResponseEntity<?> applyGrayscale(@RequestParam("file") MultipartFile file) {
-        try {
-            BufferedImage img = inversionService.readImage(file.getBytes());
-            BufferedImage filtered = ImageFiltersService.convertToGrayscale(img);
-            byte[] result = inversionService.writeImage(filtered, "png");
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "filter", "grayscale",
-                "size", result.length
-            ));
-        } catch (Exception e) {
-            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+    private ResponseEntity<StreamingResponseBody> streamBatch(BatchImageProcessor.BatchRequest request) {
+        StreamingResponseBody body = out -> {
+            try {
+                batchProcessor.processBatch(request, result -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(result));
+                        out.write('\n');
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    private static String formatOf(String fileName) {
+        if (fileName == null || fileName.lastIndexOf('.') < 0) {
+            return "png";
         }
+        String ext = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase();
+        return ext.equals("jpeg") ? "jpg" : ext;
+    }
+
+    @PostMapping("/filter/grayscale")
+    public ResponseEntity<?> applyGrayscale(@RequestParam("file") MultipartFile file,
+                                            @RequestParam(defaultValue = MODE_IMAGE) String mode,
+                                            @RequestHeader HttpHeaders headers) {
+        return applyFilter(file, mode, headers, "grayscale", Map.of(),
+                ImageFiltersService::convertToGrayscale);
     }
 
     @PostMapping("/filter/blur")
     public ResponseEntity<?> applyBlur(@RequestParam("file") MultipartFile file,
-                                       @RequestParam(defaultValue = "5") int radius) {
-        try {
-            BufferedImage img = inversionService.readImage(file.getBytes());
-            BufferedImage filtered = ImageFiltersService.applyBlur(img, radius);
-            byte[] result = inversionService.writeImage(filtered, "png");
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "filter", "blur",
-                "radius", radius
-            ));
-        } catch (Exception e) {
-            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
-        }
+                                       @RequestParam(defaultValue = "5") int radius,
+                                       @RequestParam(defaultValue = MODE_IMAGE) String mode,
+                                       @RequestHeader HttpHeaders headers) {
+        return applyFilter(file, mode, headers, "blur", Map.of("radius", radius),
+                img -> ImageFiltersService.applyBlur(img, radius));
     }
 
     @PostMapping("/filter/brightness")
     public ResponseEntity<?> adjustBrightness(@RequestParam("file") MultipartFile file,
-                                              @RequestParam(defaultValue = "1.0") float factor) {
-        try {
-            BufferedImage img = inversionService.readImage(file.getBytes());
-            BufferedImage filtered = ImageFiltersService.adjustBrightness(img, factor);
-            byte[] result = inversionService.writeImage(filtered, "png");
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "filter", "brightness",
-                "factor", factor
-            ));
-        } catch (Exception e) {
-            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
-        }
+                                              @RequestParam(defaultValue = "1.0") float factor,
+                                              @RequestParam(defaultValue = MODE_IMAGE) String mode,
+                                              @RequestHeader HttpHeaders headers) {
+        return applyFilter(file, mode, headers, "brightness", Map.of("factor", factor),
+                img -> ImageFiltersService.adjustBrightness(img, factor));
     }
 
     @PostMapping("/filter/contrast")
     public ResponseEntity<?> adjustContrast(@RequestParam("file") MultipartFile file,
-                                            @RequestParam(defaultValue = "1.0") float factor) {
+                                            @RequestParam(defaultValue = "1.0") float factor,
+                                            @RequestParam(defaultValue = MODE_IMAGE) String mode,
+                                            @RequestHeader HttpHeaders headers) {
+        return applyFilter(file, mode, headers, "contrast", Map.of("factor", factor),
+                img -> ImageFiltersService.adjustContrast(img, factor));
+    }
+
+    @PostMapping("/filter/sharpen")
+    public ResponseEntity<?> applySharpen(@RequestParam("file") MultipartFile file,
+                                          @RequestParam(defaultValue = MODE_IMAGE) String mode,
+                                          @RequestHeader HttpHeaders headers) {
+        return applyFilter(file, mode, headers, "sharpen", Map.of(),
+                ImageFiltersService::applySharpen);
+    }
+
+    /**
+     * Shared filter flow. In image mode the filtered image is returned in the
+     * format negotiated from Accept (PNG unless the client prefers JPEG); in
+     * stats mode nothing is encoded and only ImageStatistics are returned.
+     * The ETag is computed from the raw upload first, so a matching
+     * If-None-Match returns 412 without decoding anything. It also keys the
+     * single-flight maps: identical requests that overlap share one decode,
+     * filter and encode.
+     */
+    private ResponseEntity<?> applyFilter(MultipartFile file, String mode, HttpHeaders headers, String filter,
+                                          Map<String, Object> params, UnaryOperator<BufferedImage> op) {
+        boolean statsOnly = MODE_STATS.equalsIgnoreCase(mode);
+        if (!statsOnly && !MODE_IMAGE.equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("mode must be '" + MODE_IMAGE + "' or '" + MODE_STATS + "'");
+        }
+        MediaType imageType = statsOnly ? null : negotiateImageType(headers.getAccept());
+        if (!statsOnly && imageType == null) {
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE)
+                    .body(Map.of("error", "Supported image types: " + IMAGE_TYPES));
+        }
+        String variant = statsOnly ? MODE_STATS : imageType.getSubtype();
+
         try {
-            BufferedImage img = inversionService.readImage(file.getBytes());
-            BufferedImage filtered = ImageFiltersService.adjustContrast(img, factor);
-            byte[] result = inversionService.writeImage(filtered, "png");
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "filter", "contrast",
-                "factor", factor
-            ));
+            Map<String, Object> sortedParams = new TreeMap<>(params);
+            String etag = ImageETags.strong(ImageETags.hashContent(file), filter, sortedParams, variant);
+            if (ImageETags.matches(String.join(", ", headers.getOrEmpty(HttpHeaders.IF_NONE_MATCH)), etag)) {
+                return ImageETags.preconditionFailed(etag);
+            }
+
+            long startTime = System.currentTimeMillis();
+            if (statsOnly) {
+                ImageStatistics statistics = statsInFlight.execute(etag,
+                        () -> ImageStatistics.of(op.apply(inversionService.readImage(file.getBytes()))));
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("status", "success");
+                body.put("filter", filter);
+                body.putAll(sortedParams);
+                body.put("processing_time_ms", System.currentTimeMillis() - startTime);
+                body.put("statistics", statistics);
+                return ResponseEntity.ok()
+                        .eTag(etag)
+                        .cacheControl(ImageETags.cacheControl())
+                        .body(body);
+            }
+
+            byte[] result = imagesInFlight.execute(etag, () -> inversionService.writeImage(
+                    op.apply(inversionService.readImage(file.getBytes())), variant));
+            return ResponseEntity.ok()
+                    .header("X-Processing-Time-Ms", String.valueOf(System.currentTimeMillis() - startTime))
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .eTag(etag)
+                    .cacheControl(ImageETags.cacheControl())
+                    .contentType(imageType)
+                    .body(result);
         } catch (Exception e) {
-            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+            return ResponseEntity.status(400).body(Map.of("error", String.valueOf(e.getMessage())));
         }
     }
 
-    @PostMapping("/filter/sharpen")
-    public ResponseEntity<?> applySharpen(@RequestParam("file") MultipartFile file) {
+    /**
+     * Picks the image type the client prefers; each candidate takes the
+     * quality of the most specific Accept range that covers it, ties go to
+     * PNG. No Accept header means PNG; null means nothing acceptable.
+     */
+    private static MediaType negotiateImageType(List<MediaType> accepted) {
+        if (accepted.isEmpty()) {
+            return MediaType.IMAGE_PNG;
+        }
+        MediaType best = null;
+        double bestQuality = 0;
+        for (MediaType candidate : IMAGE_TYPES) {
+            MediaType range = null;
+            for (MediaType type : accepted) {
+                if (type.includes(candidate) && (range == null || specificity(type) > specificity(range))) {
+                    range = type;
+                }
+            }
+            if (range != null && range.getQualityValue() > bestQuality) {
+                best = candidate;
+                bestQuality = range.getQualityValue();
+            }
+        }
+        return best;
+    }
+
+    private static int specificity(MediaType type) {
+        return type.isWildcardType() ? 0 : type.isWildcardSubtype() ? 1 : 2;
+    }
+
+    /**
+     * Runs an ordered list of operations with a single decode and encode.
+     * ops is a JSON array, e.g. [{"op":"invert"},{"op":"contrast","factor":1.2},{"op":"sharpen"}].
+     * Consecutive pointwise steps are fused into one pass; per-stage timings
+     * are reported in the Server-Timing header.
+     */
+    @PostMapping("/pipeline")
+    public ResponseEntity<?> runPipeline(@RequestParam("file") MultipartFile file,
+                                         @RequestParam("ops") String ops,
+                                         @RequestParam(value = "format", defaultValue = "png") String format,
+                                         @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        ImagePipeline pipeline;
         try {
-            BufferedImage img = inversionService.readImage(file.getBytes());
-            BufferedImage filtered = ImageFiltersService.applySharpen(img);
-            byte[] result = inversionService.writeImage(filtered, "png");
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "filter", "sharpen"
-            ));
+            pipeline = ImagePipeline.fromSpec(
+                    objectMapper.readValue(ops, new TypeReference<List<Map<String, Object>>>() { }));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("ops must be a JSON array of operations: " + e.getMessage());
+        }
+        MediaType contentType = MediaTypeFactory.getMediaType("result." + format)
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported output format: " + format));
+
+        try {
+            String etag = ImageETags.strong(ImageETags.hashContent(file), "pipeline", pipeline.canonicalForm(), format);
+            if (ImageETags.matches(ifNoneMatch, etag)) {
+                return ImageETags.preconditionFailed(etag);
+            }
+
+            long startTime = System.currentTimeMillis();
+            ImagePipeline.Result result = pipelinesInFlight.execute(etag,
+                    () -> pipeline.process(file.getBytes(), inversionService, format));
+            long processingTime = System.currentTimeMillis() - startTime;
+
+            return ResponseEntity.ok()
+                    .header("Server-Timing", ImagePipeline.serverTiming(result.timings()))
+                    .header("X-Processing-Time-Ms", String.valueOf(processingTime))
+                    .header("X-Pipeline-Stages", String.valueOf(pipeline.stageCount()))
+                    .eTag(etag)
+                    .cacheControl(ImageETags.cacheControl())
+                    .contentType(contentType)
+                    .body(result.encoded());
         } catch (Exception e) {
-            return ResponseEntity.status(400).body(Map.of("error", e.getMessage()));
+            return ResponseEntity.status(400).body(Map.of("error", String.valueOf(e.getMessage())));
         }
     }
 
     @GetMapping("/filters")
     public ResponseEntity<?> getAvailableFilters() {
         return ResponseEntity.ok(Map.of(
-            "available_filters", List.of(
-                "invert", "grayscale", "blur", "brightness", "contrast", "sharpen"
-            ),
-            "batch_supported", true
+            "available_filters", List.of(ImageOperation.ids()),
+            "batch_supported", true,
+            "pipeline_supported", true
         ));
     }
 }
@@ -0,0 +1,237 @@
+package com.imageapp.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Archive-in / archive-out batches: a ZIP or TAR stream comes in, a ZIP of
+ * processed images streams out.
+ *
+ * Three stages connected by a bounded queue:
+ * a reader thread pulls one entry at a time from the archive and submits it
+ * to the batch worker pool; the queue holds at most {@code parallelism}
+ * submitted entries, so the reader blocks when processing falls behind; the
+ * calling thread takes entries in archive order and writes each result to
+ * the ZIP as soon as it is ready. Memory use depends on the queue size and
+ * the largest entry, not on the archive size.
+ */
+@Service
+public class ArchiveBatchProcessor {
+
+    private static final Pending END = new Pending(null, null, null);
+
+    private final BatchImageProcessor batchProcessor;
+    private final long maxEntrySize;
+    private final ExecutorService readers;
+
+    public ArchiveBatchProcessor(BatchImageProcessor batchProcessor,
+                                 @Value("${image.archive.max-entry-size:67108864}") long maxEntrySize) {
+        this.batchProcessor = batchProcessor;
+        this.maxEntrySize = maxEntrySize;
+        AtomicInteger counter = new AtomicInteger();
+        this.readers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "archive-reader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        readers.shutdownNow();
+    }
+
+    /**
+     * Processes every file entry of {@code archive} and writes a ZIP to
+     * {@code out}. Results keep their relative path with the extension
+     * replaced by {@code outputFormat}. Entries that fail or time out are
+     * written as "{name}.error.txt" instead, so one bad file never aborts the
+     * archive. Names that would repeat (e.g. "a.jpg" and "a.png" both become
+     * "a.png") are numbered: "a-2.png", "a-3.png", ...
+     */
+    public void process(InputStream archive, BatchImageProcessor.BatchRequest request,
+                        String outputFormat, OutputStream out) throws IOException, InterruptedException {
+        BatchImageProcessor.validate(request);
+        String format = outputFormat == null || outputFormat.isBlank() ? "png" : outputFormat.toLowerCase();
+        long timeoutMs = batchProcessor.itemTimeoutFor(request);
+        BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(batchProcessor.parallelismFor(request));
+
+        Future<?> reader = readers.submit(() -> {
+            Pending pending = null;
+            try {
+                try (ArchiveReader entries = ArchiveReader.open(archive)) {
+                    ArchiveReader.Entry entry;
+                    while ((entry = entries.next()) != null) {
+                        pending = submit(entry, request, format);
+                        queue.put(pending);
+                        pending = null;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    cancel(pending);
+                    queue.put(new Pending("archive", null, "Archive read failed: " + e.getMessage()));
+                }
+                queue.put(END);
+            } catch (InterruptedException e) {
+                // The writer gave up and will not take anything else: never
+                // block on the queue again, and drop the entry in hand
+                cancel(pending);
+            }
+            return null;
+        });
+
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        Set<String> usedNames = new HashSet<>();
+        Pending pending = null;
+        boolean finished = false;
+        try {
+            while ((pending = queue.take()) != END) {
+                write(zip, pending, format, timeoutMs, usedNames);
+            }
+            zip.finish();
+            zip.flush();
+            finished = true;
+        } finally {
+            // Client went away or the writer failed: stop reading the upload
+            reader.cancel(true);
+            if (!finished) {
+                // ...and stop the work already submitted. The reader puts
+                // nothing once interrupted, so the drained queue stays empty
+                cancel(pending);
+                Pending queued;
+                while ((queued = queue.poll()) != null) {
+                    cancel(queued);
+                }
+            }
+        }
+    }
+
+    int activeReaders() {
+        return ((ThreadPoolExecutor) readers).getActiveCount();
+    }
+
+    private static void cancel(Pending pending) {
+        if (pending != null && pending.result != null) {
+            pending.result.cancel(true);
+        }
+    }
+
+    private Pending submit(ArchiveReader.Entry entry, BatchImageProcessor.BatchRequest request, String format)
+            throws IOException {
+        if (entry.size() > maxEntrySize) {
+            return new Pending(entry.name(), null, "Entry exceeds " + maxEntrySize + " bytes");
+        }
+        byte[] bytes = entry.data().readNBytes((int) Math.min(maxEntrySize + 1, Integer.MAX_VALUE - 8));
+        if (bytes.length > maxEntrySize) {
+            return new Pending(entry.name(), null, "Entry exceeds " + maxEntrySize + " bytes");
+        }
+        BatchImageProcessor.ImageData data = new BatchImageProcessor.ImageData();
+        data.id = entry.name();
+        data.format = format;
+        data.imageBytes = bytes;
+        return new Pending(entry.name(), batchProcessor.submit(data, request), null);
+    }
+
+    private static void write(ZipOutputStream zip, Pending pending, String format, long timeoutMs,
+                              Set<String> usedNames) throws IOException, InterruptedException {
+        String error = pending.error;
+        byte[] image = null;
+        if (error == null) {
+            try {
+                BatchImageProcessor.ProcessedImage result = pending.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+                if ("SUCCESS".equals(result.status)) {
+                    image = result.imageBytes;
+                } else {
+                    error = result.status;
+                }
+            } catch (TimeoutException e) {
+                pending.result.cancel(true);
+                error = "TIMEOUT";
+            } catch (ExecutionException e) {
+                error = "ERROR: " + e.getCause().getMessage();
+            }
+        }
+
+        String name = safeName(pending.name);
+        if (image != null) {
+            putStored(zip, uniqueName(usedNames, replaceExtension(name, format)), image);
+        } else {
+            putStored(zip, uniqueName(usedNames, name + ".error.txt"), error.getBytes(StandardCharsets.UTF_8));
+        }
+        zip.flush();
+    }
+
+    // Never emit absolute or parent-relative paths into the result archive
+    private static String safeName(String name) {
+        StringBuilder safe = new StringBuilder();
+        for (String part : name.replace('\\', '/').split("/")) {
+            if (part.isEmpty() || part.equals(".") || part.equals("..")) {
+                continue;
+            }
+            if (safe.length() > 0) {
+                safe.append('/');
+            }
+            safe.append(part);
+        }
+        return safe.length() > 0 ? safe.toString() : "entry";
+    }
+
+    // ZipOutputStream rejects a repeated entry name, which would abort the whole archive.
+    // Compared as-is: zip entry names are case-sensitive
+    static String uniqueName(Set<String> usedNames, String name) {
+        int slash = name.lastIndexOf('/');
+        int dot = name.lastIndexOf('.');
+        String base = dot > slash ? name.substring(0, dot) : name;
+        String extension = dot > slash ? name.substring(dot) : "";
+        String unique = name;
+        for (int n = 2; !usedNames.add(unique); n++) {
+            unique = base + "-" + n + extension;
+        }
+        return unique;
+    }
+
+    // PNG/JPEG are already compressed: STORED skips a pointless deflate pass
+    private static void putStored(ZipOutputStream zip, String name, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(data);
+        zip.closeEntry();
+    }
+
+    private static String replaceExtension(String name, String format) {
+        int slash = name.lastIndexOf('/');
+        int dot = name.lastIndexOf('.');
+        String base = dot > slash ? name.substring(0, dot) : name;
+        return base + "." + format;
+    }
+
+    private record Pending(String name, Future<BatchImageProcessor.ProcessedImage> result, String error) {
+    }
+}
@@ -0,0 +1,245 @@
+package com.imageapp.service;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Forward-only reader over a ZIP, TAR or gzipped TAR stream.
+ * The format is detected from the leading bytes, entries are visited in
+ * archive order and each entry's data is read straight from the underlying
+ * stream, so nothing beyond the current entry is ever held in memory.
+ */
+public abstract class ArchiveReader implements AutoCloseable {
+
+    /**
+     * A regular file inside the archive. {@code data} is only valid until the
+     * next call to {@link ArchiveReader#next()}.
+     */
+    public record Entry(String name, long size, InputStream data) {
+    }
+
+    public static ArchiveReader open(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, 64 * 1024);
+        buffered.mark(4);
+        byte[] magic = buffered.readNBytes(4);
+        buffered.reset();
+
+        if (magic.length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+            return new TarReader(new BufferedInputStream(new GZIPInputStream(buffered, 64 * 1024), 64 * 1024));
+        }
+        if (magic.length == 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4) {
+            return new ZipReader(buffered);
+        }
+        return new TarReader(buffered);
+    }
+
+    /**
+     * Next regular file, skipping directories and metadata; null at the end.
+     */
+    public abstract Entry next() throws IOException;
+
+    @Override
+    public abstract void close() throws IOException;
+
+    private static final class ZipReader extends ArchiveReader {
+        private final ZipInputStream zip;
+
+        ZipReader(InputStream in) {
+            this.zip = new ZipInputStream(in);
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    return new Entry(entry.getName(), entry.getSize(), new NonClosingInputStream(zip));
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            zip.close();
+        }
+    }
+
+    /**
+     * Minimal POSIX ustar / GNU tar reader: regular files, ustar name prefixes
+     * and GNU long names. PAX headers and special files are skipped.
+     */
+    private static final class TarReader extends ArchiveReader {
+        private static final int BLOCK = 512;
+        // Real long names are a few hundred bytes; the header size is not trusted
+        private static final int MAX_LONG_NAME = 64 * 1024;
+
+        private final InputStream in;
+        private final byte[] header = new byte[BLOCK];
+        private long remaining;   // unread data bytes of the current entry
+        private long padding;     // bytes up to the next 512-byte boundary
+
+        TarReader(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            String longName = null;
+            while (true) {
+                skipFully(remaining + padding);
+                remaining = 0;
+                padding = 0;
+
+                int read = in.readNBytes(header, 0, BLOCK);
+                if (read == 0 || isZeroBlock(header)) {
+                    return null;
+                }
+                if (read < BLOCK) {
+                    throw new EOFException("Truncated tar header");
+                }
+                if (!checksumMatches(header)) {
+                    throw new IOException("Not a ZIP or TAR archive (bad tar header checksum)");
+                }
+
+                long size = parseOctal(header, 124, 12);
+                char type = (char) header[156];
+                remaining = size;
+                padding = (BLOCK - size % BLOCK) % BLOCK;
+
+                if (type == 'L') {
+                    // GNU long name: the data block holds the name of the next entry
+                    if (size < 0 || size > MAX_LONG_NAME) {
+                        throw new IOException("GNU long name of " + size + " bytes exceeds " + MAX_LONG_NAME);
+                    }
+                    byte[] name = in.readNBytes((int) size);
+                    remaining = 0;
+                    longName = cString(name, 0, name.length);
+                    continue;
+                }
+                if (type != '0' && type != '\0' && type != '7') {
+                    continue;
+                }
+
+                String name = longName != null ? longName : headerName(header);
+                longName = null;
+                return new Entry(name, size, new EntryInputStream());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void skipFully(long count) throws IOException {
+            while (count > 0) {
+                long skipped = in.skip(count);
+                if (skipped <= 0) {
+                    if (in.read() == -1) {
+                        throw new EOFException("Truncated tar entry");
+                    }
+                    skipped = 1;
+                }
+                count -= skipped;
+            }
+        }
+
+        private static String headerName(byte[] header) {
+            String name = cString(header, 0, 100);
+            boolean ustar = "ustar".equals(cString(header, 257, 5));
+            String prefix = ustar ? cString(header, 345, 155) : "";
+            return prefix.isEmpty() ? name : prefix + "/" + name;
+        }
+
+        private static boolean checksumMatches(byte[] header) {
+            long stored = parseOctal(header, 148, 8);
+            long sum = 0;
+            for (int i = 0; i < BLOCK; i++) {
+                sum += (i >= 148 && i < 156) ? ' ' : (header[i] & 0xFF);
+            }
+            return sum == stored;
+        }
+
+        private static boolean isZeroBlock(byte[] block) {
+            for (byte b : block) {
+                if (b != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long parseOctal(byte[] buf, int offset, int length) {
+            long value = 0;
+            for (int i = offset; i < offset + length; i++) {
+                byte b = buf[i];
+                if (b == 0 || b == ' ') {
+                    if (value != 0) {
+                        break;
+                    }
+                    continue;
+                }
+                value = (value << 3) + (b - '0');
+            }
+            return value;
+        }
+
+        private static String cString(byte[] buf, int offset, int length) {
+            int end = offset;
+            while (end < offset + length && buf[end] != 0) {
+                end++;
+            }
+            return new String(buf, offset, end - offset, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Data of the current entry; stops at the entry boundary.
+         */
+        private final class EntryInputStream extends InputStream {
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = in.read();
+                if (b == -1) {
+                    throw new EOFException("Truncated tar entry");
+                }
+                remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int n = in.read(b, off, (int) Math.min(len, remaining));
+                if (n == -1) {
+                    throw new EOFException("Truncated tar entry");
+                }
+                remaining -= n;
+                return n;
+            }
+        }
+    }
+
+    // Entry streams must not close the archive they are reading from
+    private static final class NonClosingInputStream extends FilterInputStream {
+        NonClosingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
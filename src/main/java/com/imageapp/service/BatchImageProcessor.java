@@ -1,18 +1,54 @@
 package com.imageapp.service;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * Batch engine for /api/images/batch-process.
+ *
+ * Items of one batch run on a shared worker pool, with at most
+ * {@code parallelism} of them in flight at a time. Each item is isolated: a
+ * decode failure or an item that exceeds its timeout produces an error result
+ * for that item only. Results are handed to the caller's sink as each item
+ * finishes (completion order, not request order), always on the calling
+ * thread, so the sink can write to a response stream without locking.
+ */
+@Service
 public class BatchImageProcessor {
 
     public static class BatchRequest {
         public List<ImageData> images;
-        public String operation; // "invert", "grayscale", "blur"
+        public String operation; // "invert", "grayscale", "blur", "brightness", "contrast", "sharpen"
+        public Map<String, Object> params; // e.g. {"radius": 5} or {"factor": 1.2}
+        public Integer parallelism;
+        public Long itemTimeoutMs;
 
         public BatchRequest() {
             this.images = new ArrayList<>();
+            this.params = new HashMap<>();
         }
     }
 
@@ -20,6 +56,30 @@ public class BatchImageProcessor {
         public byte[] imageBytes;
         public String format;
         public String id;
+
+        // Multipart uploads are read lazily, inside the worker that processes them
+        @JsonIgnore
+        private InputStreamSource source;
+
+        public static ImageData of(String id, String format, InputStreamSource source) {
+            ImageData data = new ImageData();
+            data.id = id;
+            data.format = format;
+            data.source = source;
+            return data;
+        }
+
+        byte[] bytes() throws IOException {
+            if (imageBytes != null) {
+                return imageBytes;
+            }
+            if (source == null) {
+                throw new IOException("No image data");
+            }
+            try (InputStream in = source.getInputStream()) {
+                return in.readAllBytes();
+            }
+        }
     }
 
     public static class BatchResponse {
@@ -38,38 +98,189 @@ public class BatchImageProcessor {
         public long processingTime;
     }
 
-    public static BatchResponse processBatch(BatchRequest request, ImageProcessingService service) throws IOException {
+    private final ImageProcessingService service;
+    private final ExecutorService workers;
+    private final int defaultParallelism;
+    private final long defaultItemTimeoutMs;
+
+    public BatchImageProcessor(ImageProcessingService service,
+                               @Value("${image.batch.threads:0}") int threads,
+                               @Value("${image.batch.parallelism:4}") int defaultParallelism,
+                               @Value("${image.batch.item-timeout-ms:30000}") long defaultItemTimeoutMs) {
+        this.service = service;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.workers = Executors.newFixedThreadPool(poolSize, namedDaemonThreads("batch-worker-"));
+        this.defaultParallelism = Math.max(1, defaultParallelism);
+        this.defaultItemTimeoutMs = defaultItemTimeoutMs;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Rejects unknown operations before any image is decoded.
+     */
+    public static void validate(BatchRequest request) {
+        ImageOperation.fromId(request.operation);
+        if (request.images == null) {
+            request.images = new ArrayList<>();
+        }
+        if (request.params == null) {
+            request.params = new HashMap<>();
+        }
+    }
+
+    /**
+     * Buffered variant for programmatic callers: collects every result.
+     */
+    public BatchResponse processBatch(BatchRequest request) throws InterruptedException {
         BatchResponse response = new BatchResponse();
         long startTime = System.currentTimeMillis();
+        processBatch(request, response.results::add);
+        response.totalProcessingTime = System.currentTimeMillis() - startTime;
+        return response;
+    }
+
+    /**
+     * Runs the batch and passes each result to {@code sink} as soon as it is
+     * ready. Returns once every item has produced a result.
+     *
+     * A timed-out item is reported immediately and interrupted, but its slot
+     * is only reused once the worker actually returns, so the parallelism
+     * bound holds even for operations that ignore interruption.
+     */
+    public void processBatch(BatchRequest request, Consumer<ProcessedImage> sink) throws InterruptedException {
+        validate(request);
+        int parallelism = parallelismFor(request);
+        long timeoutMs = itemTimeoutFor(request);
 
-        for (ImageData imageData : request.images) {
-            long itemStart = System.currentTimeMillis();
-            ProcessedImage result = new ProcessedImage();
-            result.id = imageData.id;
+        Deque<ImageData> pending = new ArrayDeque<>(request.images);
+        BlockingQueue<Finished> finished = new LinkedBlockingQueue<>();
+        List<InFlight> unreported = new ArrayList<>();
+        int running = 0;
 
-            try {
-                BufferedImage img = service.readImage(imageData.imageBytes);
+        try {
+            while (!pending.isEmpty() || !unreported.isEmpty()) {
+                while (running < parallelism && !pending.isEmpty()) {
+                    InFlight flight = new InFlight(pending.poll(), System.currentTimeMillis() + timeoutMs);
+                    flight.future = workers.submit(() -> {
+                        if (flight.claim()) {
+                            finished.add(new Finished(flight, processItem(flight.item, request)));
+                        }
+                    });
+                    unreported.add(flight);
+                    running++;
+                }
 
-                if ("invert".equals(request.operation)) {
-                    img = service.invertImage(img);
-                } else if ("grayscale".equals(request.operation)) {
-                    img = service.convertToGrayscale(img);
-                } else if ("blur".equals(request.operation)) {
-                    img = service.applyBlur(img, 5);
+                long wait = Long.MAX_VALUE;
+                for (InFlight flight : unreported) {
+                    wait = Math.min(wait, flight.deadline - System.currentTimeMillis());
+                }
+                Finished done = finished.poll(Math.max(0, wait), TimeUnit.MILLISECONDS);
+                if (done != null) {
+                    running--;
+                    if (unreported.remove(done.flight)) {
+                        sink.accept(done.result);
+                    }
                 }
 
-                result.imageBytes = service.writeImage(img, imageData.format);
-                result.status = "SUCCESS";
-            } catch (Exception e) {
-                result.status = "ERROR: " + e.getMessage();
-                result.imageBytes = new byte[0];
+                long now = System.currentTimeMillis();
+                for (InFlight flight : new ArrayList<>(unreported)) {
+                    if (flight.deadline <= now) {
+                        if (flight.claim()) {
+                            // Still queued behind other batches: it will never run
+                            running--;
+                        } else {
+                            flight.future.cancel(true);
+                        }
+                        unreported.remove(flight);
+                        sink.accept(timedOut(flight.item, timeoutMs));
+                    }
+                }
             }
+        } finally {
+            for (InFlight flight : unreported) {
+                flight.claim();
+                flight.future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Runs a single item on the shared worker pool, for callers that manage
+     * their own pipeline (e.g. archive batches).
+     */
+    public Future<ProcessedImage> submit(ImageData imageData, BatchRequest request) {
+        return workers.submit(() -> processItem(imageData, request));
+    }
+
+    public int parallelismFor(BatchRequest request) {
+        return request.parallelism != null && request.parallelism > 0
+                ? Math.min(request.parallelism, defaultParallelism) : defaultParallelism;
+    }
+
+    public long itemTimeoutFor(BatchRequest request) {
+        return request.itemTimeoutMs != null && request.itemTimeoutMs > 0
+                ? request.itemTimeoutMs : defaultItemTimeoutMs;
+    }
+
+    private static ProcessedImage timedOut(ImageData imageData, long timeoutMs) {
+        ProcessedImage result = new ProcessedImage();
+        result.id = imageData.id;
+        result.status = "TIMEOUT";
+        result.imageBytes = new byte[0];
+        result.processingTime = timeoutMs;
+        return result;
+    }
+
+    private ProcessedImage processItem(ImageData imageData, BatchRequest request) {
+        long itemStart = System.currentTimeMillis();
+        ProcessedImage result = new ProcessedImage();
+        result.id = imageData.id;
 
-            result.processingTime = System.currentTimeMillis() - itemStart;
-            response.results.add(result);
+        try {
+            BufferedImage img = service.readImage(imageData.bytes());
+            img = ImageOperation.fromId(request.operation).apply(img, request.params);
+            result.imageBytes = service.writeImage(img, imageData.format);
+            result.status = "SUCCESS";
+        } catch (Exception | OutOfMemoryError e) {
+            // A huge or corrupt image must not take the rest of the batch down
+            result.status = "ERROR: " + e.getMessage();
+            result.imageBytes = new byte[0];
         }
 
-        response.totalProcessingTime = System.currentTimeMillis() - startTime;
-        return response;
+        result.processingTime = System.currentTimeMillis() - itemStart;
+        return result;
+    }
+
+    private static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class InFlight {
+        final ImageData item;
+        final long deadline;
+        final AtomicBoolean started = new AtomicBoolean();
+        Future<?> future;
+
+        InFlight(ImageData item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+
+        // Exactly one of the worker (to run it) or the timeout (to drop it) wins
+        boolean claim() {
+            return started.compareAndSet(false, true);
+        }
+    }
+
+    private record Finished(InFlight flight, ProcessedImage result) {
     }
 }
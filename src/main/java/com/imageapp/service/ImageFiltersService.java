@@ -27,7 +27,7 @@ public class ImageFiltersService {
         BufferedImage blurred = new BufferedImage(
             image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
         ConvolveOp op = new ConvolveOp(new Kernel(size, size, kernel), ConvolveOp.EDGE_NO_OP, null);
-        op.filter(image, blurred);
+        op.filter(toIntRgb(image), blurred);
         return blurred;
     }
 
@@ -85,7 +85,24 @@ public class ImageFiltersService {
         BufferedImage sharpened = new BufferedImage(
             image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
         ConvolveOp op = new ConvolveOp(new Kernel(3, 3, kernelData));
-        op.filter(image, sharpened);
+        op.filter(toIntRgb(image), sharpened);
         return sharpened;
     }
+
+    /**
+     * ConvolveOp cannot convolve between every pair of raster layouts
+     * (e.g. PNG-decoded TYPE_3BYTE_BGR into TYPE_INT_RGB), so the source is
+     * brought to the destination layout first.
+     */
+    private static BufferedImage toIntRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(
+            image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = rgb.createGraphics();
+        g2d.drawImage(image, 0, 0, null);
+        g2d.dispose();
+        return rgb;
+    }
 }
@@ -0,0 +1,63 @@
+package com.imageapp.service;
+
+import backend.entities.ImageInverter;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Default ImageProcessingService backed by ImageIO and ImageFiltersService.
+ */
+@Service
+public class ImageInversionService implements ImageProcessingService {
+
+    @Override
+    public BufferedImage readImage(byte[] imageBytes) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        if (image == null) {
+            throw new IOException("Invalid image file");
+        }
+        return image;
+    }
+
+    @Override
+    public byte[] writeImage(BufferedImage image, String format) throws IOException {
+        String target = (format == null || format.isBlank()) ? "png" : format.toLowerCase();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, target, baos)) {
+            // JPEG/BMP writers refuse alpha rasters: flatten and retry once
+            if (!image.getColorModel().hasAlpha() || !ImageIO.write(dropAlpha(image), target, baos)) {
+                throw new IOException("No image writer available for format: " + target);
+            }
+        }
+        return baos.toByteArray();
+    }
+
+    private static BufferedImage dropAlpha(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    @Override
+    public BufferedImage invertImage(BufferedImage image) {
+        return ImageInverter.invertImage(image);
+    }
+
+    @Override
+    public BufferedImage convertToGrayscale(BufferedImage image) {
+        return ImageFiltersService.convertToGrayscale(image);
+    }
+
+    @Override
+    public BufferedImage applyBlur(BufferedImage image, int radius) {
+        return ImageFiltersService.applyBlur(image, radius);
+    }
+}
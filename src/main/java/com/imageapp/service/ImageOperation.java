@@ -0,0 +1,175 @@
+package com.imageapp.service;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Catalogue of the operations exposed by the batch, filter and pipeline
+ * endpoints.
+ *
+ * Pointwise operations (invert, brightness, contrast) map every colour
+ * channel through the same 0-255 function, so they are described by a
+ * lookup table. Consecutive pointwise steps can then be composed into a
+ * single table and applied in one pass over the raster (see ImagePipeline).
+ * The tables reproduce ImageInverter and ImageFiltersService exactly.
+ */
+public enum ImageOperation {
+
+    INVERT(true) {
+        @Override
+        int[] lookupTable(Map<String, Object> params) {
+            int[] table = new int[256];
+            for (int v = 0; v < 256; v++) {
+                table[v] = 255 - v;
+            }
+            return table;
+        }
+
+        @Override
+        boolean preservesAlpha() {
+            return true;
+        }
+    },
+    GRAYSCALE(false) {
+        @Override
+        public BufferedImage apply(BufferedImage image, Map<String, Object> params) {
+            return ImageFiltersService.convertToGrayscale(image);
+        }
+    },
+    BLUR(false) {
+        @Override
+        public BufferedImage apply(BufferedImage image, Map<String, Object> params) {
+            return ImageFiltersService.applyBlur(image, intParam(params, "radius", 5));
+        }
+    },
+    BRIGHTNESS(true) {
+        @Override
+        int[] lookupTable(Map<String, Object> params) {
+            float factor = floatParam(params, "factor", 1.0f);
+            int[] table = new int[256];
+            for (int v = 0; v < 256; v++) {
+                table[v] = clamp((int) (v * factor));
+            }
+            return table;
+        }
+    },
+    CONTRAST(true) {
+        @Override
+        int[] lookupTable(Map<String, Object> params) {
+            float factor = floatParam(params, "factor", 1.0f);
+            int[] table = new int[256];
+            for (int v = 0; v < 256; v++) {
+                table[v] = clamp((int) ((v - 128) * factor + 128));
+            }
+            return table;
+        }
+    },
+    SHARPEN(false) {
+        @Override
+        public BufferedImage apply(BufferedImage image, Map<String, Object> params) {
+            return ImageFiltersService.applySharpen(image);
+        }
+    };
+
+    private final boolean pointwise;
+
+    ImageOperation(boolean pointwise) {
+        this.pointwise = pointwise;
+    }
+
+    /**
+     * Pointwise operations run through their lookup table; the others
+     * override this with their filter.
+     */
+    public BufferedImage apply(BufferedImage image, Map<String, Object> params) {
+        return applyLookup(image, lookupTable(params), preservesAlpha());
+    }
+
+    public boolean isPointwise() {
+        return pointwise;
+    }
+
+    /**
+     * Per-channel mapping for pointwise operations; null otherwise.
+     */
+    int[] lookupTable(Map<String, Object> params) {
+        return null;
+    }
+
+    /**
+     * Whether the result keeps the source alpha channel (the brightness and
+     * contrast filters produce opaque RGB images).
+     */
+    boolean preservesAlpha() {
+        return false;
+    }
+
+    public String id() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static ImageOperation fromId(String id) {
+        if (id != null) {
+            for (ImageOperation op : values()) {
+                if (op.id().equalsIgnoreCase(id.trim())) {
+                    return op;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unsupported operation: " + id
+                + " (expected one of " + Arrays.toString(ids()) + ")");
+    }
+
+    public static String[] ids() {
+        return Arrays.stream(values()).map(ImageOperation::id).toArray(String[]::new);
+    }
+
+    /**
+     * Applies a per-channel lookup table in one pass, reading and writing
+     * whole rows instead of individual pixels.
+     */
+    static BufferedImage applyLookup(BufferedImage image, int[] table, boolean keepAlpha) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage result = new BufferedImage(width, height,
+                keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                int alpha = keepAlpha ? rgb & 0xFF000000 : 0xFF000000;
+                row[x] = alpha
+                        | table[(rgb >> 16) & 0xFF] << 16
+                        | table[(rgb >> 8) & 0xFF] << 8
+                        | table[rgb & 0xFF];
+            }
+            result.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return result;
+    }
+
+    static int intParam(Map<String, Object> params, String name, int defaultValue) {
+        Object value = params == null ? null : params.get(name);
+        try {
+            return value == null ? defaultValue : (int) Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter '" + name + "' must be a number");
+        }
+    }
+
+    static float floatParam(Map<String, Object> params, String name, float defaultValue) {
+        Object value = params == null ? null : params.get(name);
+        try {
+            return value == null ? defaultValue : Float.parseFloat(value.toString());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter '" + name + "' must be a number");
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.min(255, Math.max(0, value));
+    }
+}
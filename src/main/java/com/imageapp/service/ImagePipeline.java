@@ -0,0 +1,222 @@
+package com.imageapp.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * An ordered list of operations compiled for a single decode/encode.
+ *
+ * Runs of consecutive pointwise steps (invert, brightness, contrast) are
+ * fused: their lookup tables are composed into one table and the raster is
+ * traversed once for the whole run. Every other step runs on its own. The
+ * result reports how long decode, each stage and encode took.
+ */
+public final class ImagePipeline {
+
+    public static final int MAX_STEPS = 32;
+
+    /**
+     * One requested operation with its parameters.
+     */
+    public record Step(ImageOperation operation, Map<String, Object> params) {
+        public Step {
+            params = params == null ? Map.of() : Collections.unmodifiableMap(new TreeMap<>(params));
+        }
+    }
+
+    public record StageTiming(String name, long nanos) {
+        public double millis() {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    public record Result(BufferedImage image, byte[] encoded, List<StageTiming> timings) {
+    }
+
+    private interface Stage {
+        String name();
+
+        BufferedImage apply(BufferedImage image);
+    }
+
+    private final List<Step> steps;
+    private final List<Stage> stages;
+
+    private ImagePipeline(List<Step> steps, List<Stage> stages) {
+        this.steps = steps;
+        this.stages = stages;
+    }
+
+    public static ImagePipeline compile(List<Step> steps) {
+        if (steps == null || steps.isEmpty()) {
+            throw new IllegalArgumentException("Pipeline needs at least one operation");
+        }
+        if (steps.size() > MAX_STEPS) {
+            throw new IllegalArgumentException("Pipeline is limited to " + MAX_STEPS + " operations");
+        }
+
+        List<Stage> stages = new ArrayList<>();
+        int i = 0;
+        while (i < steps.size()) {
+            Step step = steps.get(i);
+            if (!step.operation().isPointwise()) {
+                stages.add(single(step));
+                i++;
+                continue;
+            }
+            // Compose the whole run of pointwise steps: table = last(...(first(v)))
+            int[] table = identity();
+            boolean keepAlpha = true;
+            StringBuilder name = new StringBuilder();
+            int start = i;
+            while (i < steps.size() && steps.get(i).operation().isPointwise()) {
+                Step pointwise = steps.get(i);
+                int[] next = pointwise.operation().lookupTable(pointwise.params());
+                for (int v = 0; v < 256; v++) {
+                    table[v] = next[table[v]];
+                }
+                keepAlpha &= pointwise.operation().preservesAlpha();
+                name.append(i > start ? "+" : "").append(pointwise.operation().id());
+                i++;
+            }
+            stages.add(fused(name.toString(), table, keepAlpha));
+        }
+        return new ImagePipeline(List.copyOf(steps), stages);
+    }
+
+    /**
+     * Convenience parser for the request form: [{"op": "contrast", "factor": 1.2}, ...].
+     */
+    public static ImagePipeline fromSpec(List<Map<String, Object>> spec) {
+        List<Step> steps = new ArrayList<>();
+        if (spec != null) {
+            for (Map<String, Object> entry : spec) {
+                Map<String, Object> params = new LinkedHashMap<>(entry);
+                Object op = params.remove("op");
+                steps.add(new Step(ImageOperation.fromId(op == null ? null : op.toString()), params));
+            }
+        }
+        return compile(steps);
+    }
+
+    public BufferedImage apply(BufferedImage image, List<StageTiming> timings) {
+        return apply(image, timings == null ? null : (Consumer<StageTiming>) timings::add);
+    }
+
+    /**
+     * Runs every stage, reporting each one to {@code listener} as it
+     * finishes (e.g. to publish progress of a long job).
+     */
+    public BufferedImage apply(BufferedImage image, Consumer<StageTiming> listener) {
+        BufferedImage current = image;
+        for (int i = 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            long start = System.nanoTime();
+            current = stage.apply(current);
+            if (listener != null) {
+                listener.accept(new StageTiming("s" + (i + 1) + "-" + stage.name(), System.nanoTime() - start));
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Decode once, run every stage on the in-memory raster, encode once.
+     */
+    public Result process(byte[] input, ImageProcessingService io, String format) throws IOException {
+        List<StageTiming> timings = new ArrayList<>();
+
+        long start = System.nanoTime();
+        BufferedImage image = io.readImage(input);
+        timings.add(new StageTiming("decode", System.nanoTime() - start));
+
+        image = apply(image, timings);
+
+        start = System.nanoTime();
+        byte[] encoded = io.writeImage(image, format);
+        timings.add(new StageTiming("encode", System.nanoTime() - start));
+
+        return new Result(image, encoded, timings);
+    }
+
+    public List<Step> steps() {
+        return steps;
+    }
+
+    /**
+     * Stable description of the steps, e.g. for ETags and cache keys.
+     */
+    public String canonicalForm() {
+        StringBuilder sb = new StringBuilder();
+        for (Step step : steps) {
+            sb.append(step.operation().id()).append(step.params()).append(';');
+        }
+        return sb.toString();
+    }
+
+    public int stageCount() {
+        return stages.size();
+    }
+
+    public List<String> stageNames() {
+        return stages.stream().map(Stage::name).toList();
+    }
+
+    /**
+     * Server-Timing header value, e.g. "decode;dur=3.1, s1-invert+contrast;dur=1.2, encode;dur=9.8".
+     */
+    public static String serverTiming(List<StageTiming> timings) {
+        StringBuilder sb = new StringBuilder();
+        for (StageTiming timing : timings) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(timing.name()).append(";dur=").append(String.format(Locale.ROOT, "%.3f", timing.millis()));
+        }
+        return sb.toString();
+    }
+
+    private static Stage single(Step step) {
+        return new Stage() {
+            @Override
+            public String name() {
+                return step.operation().id();
+            }
+
+            @Override
+            public BufferedImage apply(BufferedImage image) {
+                return step.operation().apply(image, step.params());
+            }
+        };
+    }
+
+    private static Stage fused(String name, int[] table, boolean keepAlpha) {
+        return new Stage() {
+            @Override
+            public String name() {
+                return name;
+            }
+
+            @Override
+            public BufferedImage apply(BufferedImage image) {
+                return ImageOperation.applyLookup(image, table, keepAlpha);
+            }
+        };
+    }
+
+    private static int[] identity() {
+        int[] table = new int[256];
+        for (int v = 0; v < 256; v++) {
+            table[v] = v;
+        }
+        return table;
+    }
+}
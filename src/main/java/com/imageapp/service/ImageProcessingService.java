@@ -0,0 +1,20 @@
+package com.imageapp.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Decode, encode and basic operations used by the batch and filter endpoints.
+ */
+public interface ImageProcessingService {
+
+    BufferedImage readImage(byte[] imageBytes) throws IOException;
+
+    byte[] writeImage(BufferedImage image, String format) throws IOException;
+
+    BufferedImage invertImage(BufferedImage image);
+
+    BufferedImage convertToGrayscale(BufferedImage image);
+
+    BufferedImage applyBlur(BufferedImage image, int radius);
+}
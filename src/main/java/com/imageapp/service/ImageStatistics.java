@@ -0,0 +1,71 @@
+package com.imageapp.service;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Measurements of a processed image, for clients that do not need the
+ * pixels themselves. Computed in one pass over the raster; nothing is encoded.
+ *
+ * Luminance uses the Rec. 601 weights (same as most grayscale conversions)
+ * and the histogram folds the 0-255 range into {@value #HISTOGRAM_BINS} bins.
+ */
+public record ImageStatistics(
+        @JsonProperty("width") int width,
+        @JsonProperty("height") int height,
+        @JsonProperty("mean_red") double meanRed,
+        @JsonProperty("mean_green") double meanGreen,
+        @JsonProperty("mean_blue") double meanBlue,
+        @JsonProperty("min_luminance") int minLuminance,
+        @JsonProperty("max_luminance") int maxLuminance,
+        @JsonProperty("mean_luminance") double meanLuminance,
+        @JsonProperty("stddev_luminance") double stddevLuminance,
+        @JsonProperty("luminance_histogram") long[] luminanceHistogram) {
+
+    public static final int HISTOGRAM_BINS = 16;
+
+    public static ImageStatistics of(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long[] histogram = new long[HISTOGRAM_BINS];
+        long sumRed = 0;
+        long sumGreen = 0;
+        long sumBlue = 0;
+        long sumLuma = 0;
+        long sumLumaSquared = 0;
+        int minLuma = 255;
+        int maxLuma = 0;
+
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int r = (row[x] >> 16) & 0xFF;
+                int g = (row[x] >> 8) & 0xFF;
+                int b = row[x] & 0xFF;
+                int luma = (299 * r + 587 * g + 114 * b + 500) / 1000;
+                sumRed += r;
+                sumGreen += g;
+                sumBlue += b;
+                sumLuma += luma;
+                sumLumaSquared += (long) luma * luma;
+                minLuma = Math.min(minLuma, luma);
+                maxLuma = Math.max(maxLuma, luma);
+                histogram[luma * HISTOGRAM_BINS / 256]++;
+            }
+        }
+
+        double pixels = Math.max(1, (double) width * height);
+        double meanLuma = sumLuma / pixels;
+        double variance = Math.max(0, sumLumaSquared / pixels - meanLuma * meanLuma);
+        return new ImageStatistics(width, height,
+                round(sumRed / pixels), round(sumGreen / pixels), round(sumBlue / pixels),
+                width * height == 0 ? 0 : minLuma, maxLuma,
+                round(meanLuma), round(Math.sqrt(variance)), histogram);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -2,6 +2,7 @@ package utils;
 
 import java.awt.Color;
 import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 
 public class ImageProcessor {
@@ -33,6 +34,36 @@ public class ImageProcessor {
         return result;
     }
 
+    /**
+     * Inverts one rectangle of {@code source} into the same rectangle of
+     * {@code target}, a row at a time. Alpha is preserved, as in invert().
+     */
+    public static void invertRegion(BufferedImage source, BufferedImage target, int x, int y, int w, int h) {
+        int[] row = new int[w];
+        for (int line = y; line < y + h; line++) {
+            source.getRGB(x, line, w, 1, row, 0, w);
+            for (int i = 0; i < w; i++) {
+                row[i] ^= 0x00FFFFFF;
+            }
+            target.setRGB(x, line, w, 1, row, 0, w);
+        }
+    }
+
+    /**
+     * Scaled-down copy whose longest side is at most {@code maxSide}.
+     */
+    public static BufferedImage downscale(BufferedImage source, int maxSide) {
+        double scale = Math.min(1.0, (double) maxSide / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = result.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return result;
+    }
+
     /**
      * Mirrors the image horizontally.
      */
@@ -0,0 +1,75 @@
+package worker;
+
+import java.awt.image.BufferedImage;
+
+import utils.ImageProcessor;
+
+/**
+ * The utils.ImageProcessor operations, split so that any horizontal band
+ * of the result can be computed on its own: every output row depends on a
+ * single input row. ImageProcessingWorker runs the bands of one operation
+ * in parallel.
+ */
+public enum BandOperation {
+
+    INVERT {
+        @Override
+        public void apply(BufferedImage source, BufferedImage target, int fromY, int toY) {
+            ImageProcessor.invertRegion(source, target, 0, fromY, source.getWidth(), toY - fromY);
+        }
+
+        @Override
+        public BufferedImage applyWhole(BufferedImage source) {
+            return ImageProcessor.invert(source);
+        }
+    },
+    MIRROR {
+        @Override
+        public void apply(BufferedImage source, BufferedImage target, int fromY, int toY) {
+            int width = source.getWidth();
+            int[] row = new int[width];
+            for (int y = fromY; y < toY; y++) {
+                source.getRGB(0, y, width, 1, row, 0, width);
+                for (int left = 0, right = width - 1; left < right; left++, right--) {
+                    int pixel = row[left];
+                    row[left] = row[right];
+                    row[right] = pixel;
+                }
+                target.setRGB(0, y, width, 1, row, 0, width);
+            }
+        }
+
+        @Override
+        public BufferedImage applyWhole(BufferedImage source) {
+            return ImageProcessor.mirror(source);
+        }
+    },
+    THUMBLE {
+        @Override
+        public void apply(BufferedImage source, BufferedImage target, int fromY, int toY) {
+            int width = source.getWidth();
+            int height = source.getHeight();
+            int[] row = new int[width];
+            for (int y = fromY; y < toY; y++) {
+                source.getRGB(0, height - 1 - y, width, 1, row, 0, width);
+                target.setRGB(0, y, width, 1, row, 0, width);
+            }
+        }
+
+        @Override
+        public BufferedImage applyWhole(BufferedImage source) {
+            return ImageProcessor.thumble(source);
+        }
+    };
+
+    /**
+     * Writes rows [fromY, toY) of the result into {@code target}, which has
+     * the size of {@code source}. Bands may run concurrently.
+     */
+    public abstract void apply(BufferedImage source, BufferedImage target, int fromY, int toY);
+
+    /**
+     * The whole-image version, for small images such as previews.
+     */
+    public abstract BufferedImage applyWhole(BufferedImage source);
+}
@@ -1,36 +1,220 @@
 package worker;
 
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import javax.swing.SwingWorker;
 
 import utils.ImageProcessor;
 
-public class ImageProcessingWorker extends SwingWorker<BufferedImage, Void> {
+/**
+ * Runs a chain of BandOperations on an image in the background and shows
+ * the result progressively.
+ *
+ * The result image is created up front and first filled with the chain
+ * applied to a low-resolution proxy, upscaled, so something is on screen
+ * immediately. Each operation then runs on the full image in horizontal
+ * bands, in parallel on a ForkJoinPool; the bands of the last operation
+ * land directly in the result, and each one triggers onUpdate on the EDT
+ * with the (partially done) result image. The whole chain runs in the
+ * background: intermediate images never go through the EDT.
+ *
+ * Progress: the SwingWorker "progress" property goes from 0 to 100, and
+ * the "fraction" property (0.0 to 1.0, see getFraction) counts finished
+ * bands over all bands of the chain.
+ *
+ * A worker created with proxyOnly() stops after the proxy: it is a cheap
+ * placeholder for when the real result is computed elsewhere (e.g. on the
+ * server), and runs no full-resolution bands.
+ *
+ * cancel() takes effect between bands: bands that have not started are
+ * skipped, and no callback runs. A failure goes to onError (on the EDT).
+ *
+ * The EDT may paint the result while bands are still being written into
+ * it; at worst a repaint shows a band half done, and the next one fixes it.
+ */
+public class ImageProcessingWorker extends SwingWorker<BufferedImage, Rectangle> {
+
+    public static final int PREVIEW_SIZE = 256;
+    // Bands per pool thread: small enough for prompt cancellation and
+    // smooth progress, large enough to keep the per-band overhead low
+    private static final int BANDS_PER_THREAD = 4;
+    private static final int MIN_BAND_HEIGHT = 16;
 
     private final BufferedImage sourceImage;
+    private final List<BandOperation> operations;
+    private final Consumer<BufferedImage> onUpdate; // Resultado parcial, chamado na EDT
     private final Consumer<BufferedImage> onFinish; // Callback para atualizar UI
+    private final Consumer<Throwable> onError;
+    private final ForkJoinPool pool;
+    private final boolean proxyOnly;
+    private volatile BufferedImage result;
+    private volatile double fraction;
 
     public ImageProcessingWorker(BufferedImage source, Consumer<BufferedImage> onFinish) {
+        this(source, null, onFinish);
+    }
+
+    public ImageProcessingWorker(BufferedImage source, Consumer<BufferedImage> onUpdate,
+                                 Consumer<BufferedImage> onFinish) {
+        this(source, List.of(BandOperation.INVERT), onUpdate, onFinish, null);
+    }
+
+    public ImageProcessingWorker(BufferedImage source, List<BandOperation> operations,
+                                 Consumer<BufferedImage> onUpdate, Consumer<BufferedImage> onFinish,
+                                 Consumer<Throwable> onError) {
+        this(source, operations, onUpdate, onFinish, onError, ForkJoinPool.commonPool());
+    }
+
+    public ImageProcessingWorker(BufferedImage source, List<BandOperation> operations,
+                                 Consumer<BufferedImage> onUpdate, Consumer<BufferedImage> onFinish,
+                                 Consumer<Throwable> onError, ForkJoinPool pool) {
+        this(source, operations, onUpdate, onFinish, onError, pool, false);
+    }
+
+    private ImageProcessingWorker(BufferedImage source, List<BandOperation> operations,
+                                  Consumer<BufferedImage> onUpdate, Consumer<BufferedImage> onFinish,
+                                  Consumer<Throwable> onError, ForkJoinPool pool, boolean proxyOnly) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation is required");
+        }
         this.sourceImage = source;
+        this.operations = List.copyOf(operations);
+        this.onUpdate = onUpdate;
         this.onFinish = onFinish;
+        this.onError = onError;
+        this.pool = pool;
+        this.proxyOnly = proxyOnly;
+    }
+
+    /**
+     * Worker that only renders the upscaled low-resolution inversion of
+     * {@code source} and hands it to onFinish.
+     */
+    public static ImageProcessingWorker proxyOnly(BufferedImage source, Consumer<BufferedImage> onFinish) {
+        return new ImageProcessingWorker(source, List.of(BandOperation.INVERT), null, onFinish, null,
+                ForkJoinPool.commonPool(), true);
+    }
+
+    /**
+     * Finished bands over all bands of the chain, from 0.0 to 1.0.
+     */
+    public double getFraction() {
+        return fraction;
     }
 
     @Override
     protected BufferedImage doInBackground() throws Exception {
-        // Processamento pesado acontece aqui
-        return utils.ImageProcessor.invert(sourceImage);
+        int width = sourceImage.getWidth();
+        int height = sourceImage.getHeight();
+        // Packed int rasters: fast row copies, and no palette to quantize into
+        int type = sourceImage.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage target = new BufferedImage(width, height, type);
+
+        // 1. Proxy: aplicar a cadeia numa versao reduzida e esticar para o tamanho final
+        BufferedImage proxy = ImageProcessor.downscale(sourceImage, PREVIEW_SIZE);
+        for (BandOperation operation : operations) {
+            proxy = operation.applyWhole(proxy);
+        }
+        Graphics2D g = target.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(proxy, 0, 0, width, height, null);
+        g.dispose();
+        result = target;
+        if (proxyOnly) {
+            fraction = 1.0;
+            setProgress(100);
+            return target;
+        }
+        publish(new Rectangle(0, 0, width, height));
+
+        // 2. Cada operacao em faixas paralelas; a ultima escreve direto no resultado
+        int bandHeight = Math.max(MIN_BAND_HEIGHT, height / Math.max(1, pool.getParallelism() * BANDS_PER_THREAD));
+        int bands = (height + bandHeight - 1) / bandHeight;
+        int totalBands = bands * operations.size();
+        AtomicInteger done = new AtomicInteger();
+
+        BufferedImage input = sourceImage;
+        for (int i = 0; i < operations.size(); i++) {
+            BandOperation operation = operations.get(i);
+            boolean last = i == operations.size() - 1;
+            BufferedImage output = last ? target : new BufferedImage(width, height, type);
+            BufferedImage in = input;
+
+            List<Callable<Void>> tasks = new ArrayList<>(bands);
+            for (int band = 0; band < bands; band++) {
+                int fromY = band * bandHeight;
+                int toY = Math.min(height, fromY + bandHeight);
+                tasks.add(() -> {
+                    if (isCancelled()) {
+                        return null;
+                    }
+                    operation.apply(in, output, fromY, toY);
+                    // Bands finish on several threads: keep progress monotonic
+                    synchronized (done) {
+                        int finished = done.incrementAndGet();
+                        double previous = fraction;
+                        fraction = (double) finished / totalBands;
+                        setProgress(finished * 100 / totalBands);
+                        firePropertyChange("fraction", previous, fraction);
+                    }
+                    if (last) {
+                        publish(new Rectangle(0, fromY, width, toY - fromY));
+                    }
+                    return null;
+                });
+            }
+            for (var task : pool.invokeAll(tasks)) {
+                // Rethrows a failed band
+                task.get();
+            }
+            if (isCancelled()) {
+                return target;
+            }
+            input = output;
+        }
+        return target;
+    }
+
+    @Override
+    protected void process(List<Rectangle> bands) {
+        // Varias faixas chegam juntas quando a EDT esta ocupada: um repaint basta
+        if (onUpdate != null && !isCancelled()) {
+            onUpdate.accept(result);
+        }
     }
 
     @Override
     protected void done() {
+        if (isCancelled()) {
+            return;
+        }
         try {
             BufferedImage result = get();
             if (onFinish != null) {
                 onFinish.accept(result); // Devolve o resultado para a GUI
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // Failed bands arrive wrapped once more by their own Future
+            if (cause instanceof ExecutionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (onError != null) {
+                onError.accept(cause);
+            } else {
+                cause.printStackTrace();
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,97 @@
+package backend.entities.gui;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdaptiveDispatcherTest {
+
+    private static final long MB = 1_000_000;
+
+    @Test
+    void testLearnsLatencyAndBandwidthFromTransfers() {
+        AdaptiveDispatcher dispatcher = new AdaptiveDispatcher(new SwingImageClient("http://unused"));
+        // 20 ms round trip, 50 ms per MB (20 MB/s), server 5 ns/pixel
+        for (int i = 0; i < 30; i++) {
+            long bytes = (i % 3 + 1) * MB;
+            long pixels = 4_000_000;
+            long transferMs = 20 + 50 * bytes / MB;
+            dispatcher.recordRemote(bytes, pixels, 20, (transferMs + 20) * 1_000_000);
+        }
+
+        assertEquals(20, dispatcher.getLatencyMillis(), 0.5);
+        assertEquals(20, dispatcher.getBandwidthMBps(), 0.5);
+        assertEquals(5, dispatcher.getServerNsPerPixel(), 0.1);
+    }
+
+    @Test
+    void testSmallImagesStayLocalAndLargeOnesGoRemote() {
+        AdaptiveDispatcher dispatcher = new AdaptiveDispatcher(new SwingImageClient("http://unused"));
+        for (int i = 0; i < 20; i++) {
+            dispatcher.recordLocal(1_000_000, 40_000_000); // 40 ns/pixel
+            dispatcher.recordRemote(MB, 1_000_000, 5, 30_000_000); // 25 ms transfer, 5 ns/pixel
+        }
+
+        AdaptiveDispatcher.Estimate thumbnail = dispatcher.estimate(20_000, 100 * 100);
+        assertEquals(AdaptiveDispatcher.Target.LOCAL, thumbnail.target());
+        assertTrue(thumbnail.localMillis() < 1);
+
+        AdaptiveDispatcher.Estimate photo = dispatcher.estimate(3 * MB, 24_000_000);
+        assertEquals(AdaptiveDispatcher.Target.REMOTE, photo.target());
+        assertTrue(photo.remoteMillis() < photo.localMillis());
+    }
+
+    @Test
+    void testOtherPathIsProbedWhenClose() {
+        AdaptiveDispatcher dispatcher = new AdaptiveDispatcher(new SwingImageClient("http://unused"));
+        int probes = 0;
+        for (int i = 0; i < AdaptiveDispatcher.PROBE_INTERVAL * 3; i++) {
+            // Defaults: local 30 ns/pixel vs 50 ms + 15 ns/pixel remote; close at 3 Mpixel
+            AdaptiveDispatcher.Estimate estimate = dispatcher.estimate(MB / 10, 3_000_000);
+            if (estimate.probe()) {
+                probes++;
+                assertEquals(AdaptiveDispatcher.Target.REMOTE, estimate.target());
+            }
+        }
+        assertEquals(3, probes);
+    }
+
+    @Test
+    void testUnreadableServerResponseGoesToOnError() throws Exception {
+        SwingImageClient client = new SwingImageClient("http://unused") {
+            @Override
+            public CompletableFuture<RemoteResult> invert(File imageFile) {
+                byte[] html = "<html>502 Bad Gateway</html>".getBytes(StandardCharsets.UTF_8);
+                return CompletableFuture.completedFuture(new RemoteResult(html, 0, 1_000_000));
+            }
+        };
+        AdaptiveDispatcher dispatcher = new AdaptiveDispatcher(client);
+        AdaptiveDispatcher.Estimate remote = new AdaptiveDispatcher.Estimate(AdaptiveDispatcher.Target.REMOTE, 1, 1, false);
+        AtomicReference<String> error = new AtomicReference<>();
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch finished = new CountDownLatch(1);
+
+        dispatcher.process(new File("photo.png"), new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), remote, null,
+                outcome -> {
+                    done.set(true);
+                    finished.countDown();
+                },
+                message -> {
+                    error.set(message);
+                    finished.countDown();
+                });
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertFalse(done.get(), "a null image must not be reported as a result");
+        assertEquals("Server Error: Server returned an unreadable image", error.get());
+    }
+}
@@ -0,0 +1,115 @@
+package backend.entities.gui;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.swing.SwingUtilities;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SwingImageClientTest {
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Echoes the multipart body back; uploads of "bad" files fail
+        server.createContext("/invert", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                Thread.sleep(20);
+                boolean bad = new String(body, StandardCharsets.ISO_8859_1).contains("filename=\"bad");
+                exchange.sendResponseHeaders(bad ? 500 : 200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/invert";
+    }
+
+    @Test
+    void testBatchStreamsFilesWithBoundedConcurrency() throws Exception {
+        Path input = Files.createDirectory(dir.resolve("in"));
+        for (int i = 0; i < 12; i++) {
+            Files.write(input.resolve("ok" + i + ".png"), ("pixels-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        Files.write(input.resolve("bad.png"), new byte[]{1, 2, 3});
+        Files.write(input.resolve("notes.txt"), new byte[]{1});
+        List<File> files = SwingImageClient.listImages(input.toFile());
+        assertEquals(13, files.size());
+
+        List<SwingImageClient.BatchProgress> updates = new ArrayList<>();
+        SwingImageClient.BatchProgress last = new SwingImageClient(url())
+                .sendBatch(files, dir.resolve("out"), 3, updates::add)
+                .get(30, TimeUnit.SECONDS);
+
+        // Progress callbacks run on the EDT
+        SwingUtilities.invokeAndWait(() -> { });
+        assertEquals(13, updates.size());
+        assertEquals(12, last.succeeded());
+        assertEquals(1, last.failed());
+        assertTrue(maxInFlight.get() <= 3, "max in flight " + maxInFlight.get());
+        String echoed = Files.readString(dir.resolve("out").resolve("ok7-inverted.png"), StandardCharsets.ISO_8859_1);
+        assertTrue(echoed.contains("filename=\"ok7.png\""));
+        assertTrue(echoed.contains("\r\n\r\npixels-7\r\n--"));
+        assertFalse(Files.exists(dir.resolve("out").resolve("bad-inverted.png")));
+    }
+
+    @Test
+    void testResultNamesNeverCollide() throws Exception {
+        Path first = Files.createDirectories(dir.resolve("first"));
+        Path second = Files.createDirectories(dir.resolve("second"));
+        Path third = Files.createDirectories(dir.resolve("third"));
+        List<File> files = List.of(first.resolve("a.png").toFile(), first.resolve("a.jpg").toFile(),
+                second.resolve("a.png").toFile(), third.resolve("A.PNG").toFile(), first.resolve("b.png").toFile());
+        for (File file : files) {
+            Files.write(file.toPath(), file.getPath().getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals(List.of("a-inverted.png", "a-inverted-2.png", "a-inverted-3.png", "A-inverted-4.png", "b-inverted.png"),
+                SwingImageClient.resultNames(files));
+
+        SwingImageClient.BatchProgress last = new SwingImageClient(url())
+                .sendBatch(files, dir.resolve("out"), 5, null)
+                .get(30, TimeUnit.SECONDS);
+        assertEquals(5, last.succeeded());
+        String echoed = Files.readString(dir.resolve("out").resolve("a-inverted-3.png"), StandardCharsets.ISO_8859_1);
+        assertTrue(echoed.contains(second.resolve("a.png").toString()));
+    }
+}
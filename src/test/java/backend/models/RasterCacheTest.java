@@ -0,0 +1,107 @@
+package backend.models;
+
+import backend.nodes.ImageNode;
+import backend.nodes.ImageTreeExecutor;
+import backend.processor.AwtImageProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RasterCacheTest {
+
+    @TempDir
+    Path dir;
+
+    // Heap size of one decoded 16x16 test image
+    private long imageBytes;
+
+    private String image(String name, int rgb) throws IOException {
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        Path file = dir.resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        imageBytes = RasterCache.sizeOf(ImageIO.read(file.toFile()));
+        return file.toString();
+    }
+
+    private ImageData loaded(RasterCache cache, String path) throws IOException {
+        ImageData data = new ImageData(path, path);
+        data.setRasterCache(cache);
+        new AwtImageProcessor().loadImage(data);
+        return data;
+    }
+
+    @Test
+    void testDecodedBuffersAreEvictedAndDecodedAgain() throws Exception {
+        String pathA = image("a.png", 0x112233);
+        String pathB = image("b.png", 0x445566);
+        String pathC = image("c.png", 0x778899);
+        try (RasterCache cache = new RasterCache(2 * imageBytes, dir.resolve("spill"))) {
+            ImageData a = loaded(cache, pathA);
+            ImageData b = loaded(cache, pathB);
+            ImageData c = loaded(cache, pathC);
+
+            RasterCache.Stats stats = cache.stats();
+            assertEquals(1, stats.evictions());
+            assertEquals(0, stats.spills());
+            assertEquals(2 * imageBytes, stats.bytes());
+
+            // a was least recently used; it comes back from its file
+            assertEquals(0xFF112233, a.getImageBuffer().getRGB(3, 3));
+            assertEquals(1, cache.stats().misses());
+            assertTrue(cache.stats().reloadNanos() > 0);
+            assertNotNull(c.getImageBuffer());
+            assertTrue(cache.stats().hits() >= 1);
+            assertTrue(cache.stats().bytes() <= 2 * imageBytes);
+            assertEquals(0xFF445566, b.getImageBuffer().getRGB(0, 0));
+        }
+    }
+
+    @Test
+    void testModifiedBuffersAreSpilledNotReloadedFromTheSource() throws Exception {
+        String white = image("white.png", 0xFFFFFF);
+        String other = image("other.png", 0x000000);
+        // The inverted copy is ARGB, bigger than the decoded image: alone over budget
+        try (RasterCache cache = new RasterCache(imageBytes, dir.resolve("spill"))) {
+            ImageData inverted = loaded(cache, white);
+            new AwtImageProcessor().invertColors(inverted);
+
+            loaded(cache, other);
+
+            assertEquals(1, cache.stats().spills());
+            assertEquals(0xFF000000, inverted.getImageBuffer().getRGB(5, 5));
+            assertEquals(1, cache.stats().misses());
+        }
+    }
+
+    @Test
+    void testTreeRunsWithinABudgetSmallerThanTheTree() throws Exception {
+        String white = image("tree.png", 0xFFFFFF);
+        ImageNode root = new ImageNode(new ImageData(white, "root"));
+        for (int i = 0; i < 30; i++) {
+            root.addChild(new ImageNode(new ImageData(white, "child" + i)));
+        }
+        try (RasterCache cache = new RasterCache(4 * imageBytes, dir.resolve("spill"))) {
+            root.useRasterCache(cache);
+
+            ImageTreeExecutor.Report report = new ImageTreeExecutor(new AwtImageProcessor()).execute(root);
+
+            assertEquals(31, report.count(ImageTreeExecutor.Status.SUCCEEDED));
+            assertTrue(cache.stats().bytes() <= 4 * imageBytes, cache.stats().toString());
+            assertTrue(cache.stats().evictions() > 0);
+            for (ImageNode child : root.getChildrenView()) {
+                assertEquals(0xFF000000, child.getData().getImageBuffer().getRGB(0, 0));
+            }
+        }
+    }
+}
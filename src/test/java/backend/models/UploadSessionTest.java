@@ -0,0 +1,49 @@
+package backend.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UploadSessionTest {
+
+    @Test
+    void testOutOfOrderChunksMerge() {
+        UploadSession session = new UploadSession("id", "big.png", 100, Instant.now());
+
+        session.markReceived(50, 100);
+        assertFalse(session.isComplete());
+        assertEquals(0, session.getNextOffset());
+
+        session.markReceived(0, 30);
+        assertEquals(30, session.getNextOffset());
+        List<long[]> missing = session.getMissingRanges();
+        assertEquals(1, missing.size());
+        assertArrayEquals(new long[]{30, 50}, missing.get(0));
+
+        session.markReceived(30, 50);
+        assertTrue(session.isComplete());
+        assertEquals(1, session.getReceivedRanges().size());
+    }
+
+    @Test
+    void testRetriedChunkIsNotCountedTwice() {
+        UploadSession session = new UploadSession("id", "big.png", 100, Instant.now());
+
+        session.markReceived(0, 40);
+        session.markReceived(20, 60);
+        session.markReceived(0, 40);
+
+        assertEquals(60, session.getReceivedBytes());
+        assertEquals(60, session.getNextOffset());
+    }
+
+    @Test
+    void testRangeOutsideSizeIsRejected() {
+        UploadSession session = new UploadSession("id", "big.png", 100, Instant.now());
+
+        assertThrows(IllegalArgumentException.class, () -> session.markReceived(90, 101));
+    }
+}
@@ -0,0 +1,99 @@
+package backend.nodes;
+
+import backend.models.ImageData;
+import backend.processor.AwtImageProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecodeAheadProcessorTest {
+
+    @TempDir
+    Path dir;
+
+    // Records which threads decoded, and makes decoding slow enough to matter
+    private final Set<String> decodingThreads = ConcurrentHashMap.newKeySet();
+
+    private final AwtImageProcessor slowDisk = new AwtImageProcessor() {
+        @Override
+        public void loadImage(ImageData data) throws IOException {
+            decodingThreads.add(Thread.currentThread().getName());
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.loadImage(data);
+        }
+    };
+
+    private String whiteImage() throws IOException {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                image.setRGB(x, y, 0xFFFFFF);
+            }
+        }
+        Path file = dir.resolve("white.png");
+        ImageIO.write(image, "png", file.toFile());
+        return file.toString();
+    }
+
+    @Test
+    void testUpcomingNodesAreDecodedOnTheIoPool() throws Exception {
+        String white = whiteImage();
+        ImageNode root = new ImageNode(new ImageData(white, "root"));
+        for (int i = 0; i < 5; i++) {
+            ImageNode branch = new ImageNode(new ImageData(white, "branch" + i));
+            root.addChild(branch);
+            for (int j = 0; j < 4; j++) {
+                branch.addChild(new ImageNode(new ImageData(white, "leaf" + i + j)));
+            }
+        }
+
+        ImageTreeExecutor.Report report;
+        DecodeAheadProcessor.Stats stats;
+        try (DecodeAheadProcessor processor = new DecodeAheadProcessor(slowDisk, root, 4)) {
+            report = processor.run();
+            stats = processor.stats();
+        }
+
+        assertEquals(26, report.count(ImageTreeExecutor.Status.SUCCEEDED));
+        // Only the root has nothing in front of it
+        assertEquals(1, stats.misses());
+        assertEquals(25, stats.hits());
+        assertEquals(0, stats.wasted());
+        assertTrue(decodingThreads.stream().anyMatch(name -> name.startsWith("decode-ahead-")));
+        assertEquals(0xFF000000, root.getChildrenView().get(4).getChildrenView().get(3)
+                .getData().getImageBuffer().getRGB(0, 0));
+    }
+
+    @Test
+    void testFailedPrefetchSurfacesTheProcessorError() throws Exception {
+        String white = whiteImage();
+        ImageNode root = new ImageNode(new ImageData(white, "root"));
+        ImageNode missing = new ImageNode(new ImageData(dir.resolve("missing.png").toString(), "missing"));
+        ImageNode derived = new ImageNode(new ImageData(white, "derived"));
+        derived.setDerivedFromParent(true);
+        root.addChild(missing);
+        missing.addChild(derived);
+        root.addChild(new ImageNode(new ImageData(white, "sibling")));
+
+        try (DecodeAheadProcessor processor = new DecodeAheadProcessor(slowDisk, root, 2)) {
+            ImageTreeExecutor.Report report = processor.run();
+
+            assertEquals(2, report.count(ImageTreeExecutor.Status.SUCCEEDED));
+            assertEquals(1, report.count(ImageTreeExecutor.Status.SKIPPED));
+            assertInstanceOf(FileNotFoundException.class, report.getFailures().get(0).error());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package backend.nodes;
+
+import backend.models.ImageData;
+import backend.processor.AwtImageProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageTreeExecutorTest {
+
+    private static ImageNode node(int rgb) {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        ImageData data = new ImageData("unused.png", "ref");
+        data.setImageBuffer(image);
+        return new ImageNode(data);
+    }
+
+    private static int pixel(ImageNode node) {
+        return node.getData().getImageBuffer().getRGB(0, 0);
+    }
+
+    @Test
+    void testEveryNodeOfALargeTreeIsProcessed() {
+        ImageNode root = node(0xFFFFFFFF);
+        for (int i = 0; i < 20; i++) {
+            ImageNode branch = node(0xFFFFFFFF);
+            root.addChild(branch);
+            for (int j = 0; j < 50; j++) {
+                branch.addChild(node(0xFFFFFFFF));
+            }
+        }
+
+        ImageTreeExecutor.Report report = new ImageTreeExecutor(new AwtImageProcessor(), new ForkJoinPool(4)).execute(root);
+
+        assertEquals(1 + 20 + 20 * 50, report.getResults().size());
+        assertEquals(report.getResults().size(), report.count(ImageTreeExecutor.Status.SUCCEEDED));
+        assertEquals(0xFF000000, pixel(root.getChildrenView().get(3).getChildrenView().get(7)));
+        assertTrue(report.getTotalNodeTimeNanos() > 0);
+    }
+
+    @Test
+    void testDerivedChildWorksOnParentOutput() {
+        ImageNode root = node(0xFFFFFFFF);
+        ImageNode derived = node(0xFF123456);
+        derived.setDerivedFromParent(true);
+        root.addChild(derived);
+
+        new ImageTreeExecutor(new AwtImageProcessor()).execute(root);
+
+        assertEquals(0xFF000000, pixel(root));
+        // Inverted twice: back to white, its own image was ignored
+        assertEquals(0xFFFFFFFF, pixel(derived));
+    }
+
+    @Test
+    void testFailureSkipsOnlyDependentNodes() {
+        ImageNode root = node(0xFFFFFFFF);
+        ImageNode broken = new ImageNode(new ImageData("does/not/exist.png", "missing"));
+        ImageNode dependent = node(0xFFFFFFFF);
+        dependent.setDerivedFromParent(true);
+        ImageNode independent = node(0xFFFFFFFF);
+        root.addChild(broken);
+        broken.addChild(dependent);
+        broken.addChild(independent);
+
+        ImageTreeExecutor.Report report = new ImageTreeExecutor(new AwtImageProcessor()).execute(root);
+
+        assertEquals(2, report.count(ImageTreeExecutor.Status.SUCCEEDED));
+        assertEquals(1, report.count(ImageTreeExecutor.Status.FAILED));
+        assertEquals(1, report.count(ImageTreeExecutor.Status.SKIPPED));
+        ImageTreeExecutor.NodeResult failure = report.getFailures().get(0);
+        assertEquals(broken.getNodeId(), failure.nodeId());
+        assertInstanceOf(FileNotFoundException.class, failure.error());
+        assertEquals(0xFF000000, pixel(independent));
+    }
+
+    @Test
+    void testDeepChainDoesNotOverflowTheStack() {
+        ImageNode root = node(0xFFFFFFFF);
+        ImageNode tail = root;
+        for (int i = 0; i < 5000; i++) {
+            ImageNode next = node(0xFFFFFFFF);
+            next.setDerivedFromParent(true);
+            tail.addChild(next);
+            tail = next;
+        }
+
+        ImageTreeExecutor.Report report = new ImageTreeExecutor(new AwtImageProcessor()).execute(root);
+
+        assertEquals(5001, report.count(ImageTreeExecutor.Status.SUCCEEDED));
+        // 5001 inversions: odd, so black
+        assertEquals(0xFF000000, pixel(tail));
+    }
+}
@@ -0,0 +1,128 @@
+package backend.nodes;
+
+import backend.models.ImageData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Complete binary tree of {@code count} nodes, numbered like a heap.
+     */
+    private static NodeType catalog(int count) {
+        NodeType[] nodes = new NodeType[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = new NodeType("node-" + i, "Node " + i);
+            nodes[i].setOriginalImagePath("/images/" + i + ".png");
+            nodes[i].setInvertedImagePath("/images/inverted/" + i + ".png");
+        }
+        for (int i = 0; i < count; i++) {
+            if (2 * i + 1 < count) {
+                nodes[i].setLeftNode(nodes[2 * i + 1]);
+            }
+            if (2 * i + 2 < count) {
+                nodes[i].setRightNode(nodes[2 * i + 2]);
+            }
+        }
+        return nodes[0];
+    }
+
+    @Test
+    void testNodeTypesAreLookedUpAndMaterializedLazily() throws IOException {
+        Path file = dir.resolve("catalog.snap");
+        NodeSnapshot.writeNodeTypes(file, List.of(catalog(50_000)));
+
+        NodeSnapshot snapshot = NodeSnapshot.open(file);
+
+        assertEquals(50_000, snapshot.size());
+        assertEquals(0, snapshot.materializedCount());
+        NodeType node = snapshot.nodeType("node-12345");
+        assertEquals("Node 12345", node.getName());
+        assertEquals("/images/inverted/12345.png", node.getInvertedImagePath());
+        assertTrue(node.isBranch());
+        assertEquals(1, snapshot.materializedCount());
+
+        assertEquals("node-24691", node.getLeftNode().getId());
+        assertEquals("node-24692", node.getRightNode().getId());
+        assertEquals(3, snapshot.materializedCount());
+        assertSame(node.getLeftNode(), snapshot.nodeType("node-24691"));
+
+        assertNull(snapshot.nodeType("node-50000"));
+        assertFalse(snapshot.nodeType("node-49999").isBranch());
+        assertEquals("node-0", snapshot.nodeType(snapshot.roots()[0]).getId());
+    }
+
+    @Test
+    void testImageNodeSubtreeRoundTrip() throws IOException {
+        ImageNode root = new ImageNode(new ImageData("/in/root.png", "root"));
+        ImageNode child = new ImageNode(new ImageData("/in/child.png", "child"));
+        child.getData().setMetaDataCode("exif:1");
+        ImageNode derived = new ImageNode(new ImageData("/in/child.png", "derived"));
+        derived.setDerivedFromParent(true);
+        root.addChild(child);
+        child.addChild(derived);
+        root.addChild(new ImageNode(new ImageData("/in/other.png", "other")));
+
+        Path file = dir.resolve("images.snap");
+        NodeSnapshot.writeImageNodes(file, List.of(root));
+        NodeSnapshot snapshot = NodeSnapshot.open(file);
+
+        ImageNode restored = snapshot.imageNode(child.getNodeId());
+        assertEquals(child.getNodeId(), restored.getNodeId());
+        assertEquals("/in/child.png", restored.getData().getFsPath());
+        assertEquals("exif:1", restored.getData().getMetaDataCode());
+        assertEquals(1, restored.getChildrenView().size());
+        ImageNode restoredDerived = restored.getChildrenView().get(0);
+        assertEquals(derived.getNodeId(), restoredDerived.getNodeId());
+        assertTrue(restoredDerived.isDerivedFromParent());
+        assertSame(restored, restoredDerived.getParent());
+        assertEquals(2, snapshot.imageNode(root.getNodeId()).getChildrenView().size());
+        assertThrows(IllegalStateException.class, () -> snapshot.nodeType(0));
+    }
+
+    @Test
+    void testImageNodeChildrenAreBuiltOnFirstAccess() throws IOException {
+        ImageNode root = new ImageNode(new ImageData("/in/root.png", "root"));
+        for (int i = 0; i < 100; i++) {
+            ImageNode child = new ImageNode(new ImageData("/in/" + i + ".png", "child-" + i));
+            for (int j = 0; j < 100; j++) {
+                child.addChild(new ImageNode(new ImageData("/in/" + i + "-" + j + ".png", "leaf")));
+            }
+            root.addChild(child);
+        }
+        Path file = dir.resolve("wide.snap");
+        NodeSnapshot.writeImageNodes(file, List.of(root));
+        NodeSnapshot snapshot = NodeSnapshot.open(file);
+
+        ImageNode restored = snapshot.imageNode(root.getNodeId());
+        assertEquals(1, snapshot.materializedCount());
+        List<ImageNode> children = restored.getChildrenView();
+        assertEquals(100, children.size());
+        assertEquals(101, snapshot.materializedCount());
+        assertEquals(100, children.get(42).getChildren().size());
+        assertEquals(201, snapshot.materializedCount());
+        assertSame(restored, children.get(42).getParent());
+
+        // Walking the whole tree expands it
+        restored.useRasterCache(null);
+        assertEquals(1 + 100 + 100 * 100, snapshot.materializedCount());
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws IOException {
+        Path file = dir.resolve("not-a-snapshot");
+        Files.write(file, new byte[100]);
+
+        assertThrows(IOException.class, () -> NodeSnapshot.open(file));
+    }
+}
@@ -0,0 +1,70 @@
+package backend.nodes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeTypeStoreTest {
+
+    @Test
+    void testLookupByIdAcrossGrowth() {
+        NodeTypeStore store = new NodeTypeStore();
+        for (int i = 0; i < 100_000; i++) {
+            int index = store.add("node-" + i, "Node " + i);
+            store.setOriginalPath(index, "/images/shared.png");
+            if (i % 2 == 1) {
+                store.setLeft((i - 1) / 2, index);
+            } else if (i > 0) {
+                store.setRight((i - 1) / 2, index);
+            }
+        }
+
+        assertEquals(100_000, store.size());
+        assertEquals(77_777, store.indexOf("node-77777"));
+        assertEquals(-1, store.indexOf("node-100000"));
+        assertEquals("Node 99999", store.name(99_999));
+        assertEquals("/images/shared.png", store.originalPath(12));
+        assertEquals("node-25", store.get("node-12").getLeftNode().getId());
+        assertEquals("node-26", store.get("node-12").getRightNode().getId());
+        assertThrows(IllegalArgumentException.class, () -> store.add("node-5", "again"));
+    }
+
+    @Test
+    void testAdapterReadsAndWritesTheStore() {
+        NodeTypeStore store = new NodeTypeStore();
+        NodeType root = store.get(store.add("root", "Root"));
+        NodeType left = store.get(store.add("left", "Left"));
+
+        root.setLeftNode(left);
+        root.setRightNode(new NodeType("right", "Right"));
+        left.setOriginalImagePath("/in/left.png");
+        left.setData("payload");
+
+        assertTrue(root.isBranch());
+        assertEquals(3, store.size());
+        assertEquals(store.indexOf("left"), store.left(store.indexOf("root")));
+        assertEquals("Right", root.getRightNode().getName());
+        assertEquals(left, root.getLeftNode());
+        assertEquals("/in/left.png", store.get("left").getOriginalImagePath());
+        assertEquals("payload", store.data(store.indexOf("left")));
+        assertFalse(store.get("right").isBranch());
+    }
+
+    @Test
+    void testImportsAnExistingTree() {
+        NodeType root = new NodeType("a", "A");
+        NodeType shared = new NodeType("b", "B");
+        shared.setInvertedImagePath("/out/b.png");
+        root.setLeftNode(shared);
+        root.setRightNode(shared);
+        shared.setRightNode(root); // cycles survive the copy
+
+        NodeTypeStore store = NodeTypeStore.of(root);
+
+        assertEquals(2, store.size());
+        NodeType copy = store.get("a");
+        assertEquals(copy.getLeftNode(), copy.getRightNode());
+        assertEquals("/out/b.png", copy.getLeftNode().getInvertedImagePath());
+        assertEquals(copy, copy.getLeftNode().getRightNode());
+    }
+}
@@ -0,0 +1,111 @@
+package backend.nodes;
+
+import backend.models.ImageData;
+import backend.processor.AwtImageProcessor;
+import com.imageapp.service.ImageOperation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProcessingGraphTest {
+
+    @TempDir
+    Path dir;
+
+    private final AtomicInteger decodes = new AtomicInteger();
+
+    private final AwtImageProcessor countingProcessor = new AwtImageProcessor() {
+        @Override
+        public void loadImage(ImageData data) throws IOException {
+            decodes.incrementAndGet();
+            super.loadImage(data);
+        }
+    };
+
+    private String whiteImage(String name) throws IOException {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                image.setRGB(x, y, 0xFFFFFF);
+            }
+        }
+        Path file = dir.resolve(name);
+        ImageIO.write(image, "png", file.toFile());
+        return file.toString();
+    }
+
+    @Test
+    void testSharedPrefixRunsOnce() throws Exception {
+        String source = whiteImage("a.png");
+        ProcessingGraph graph = new ProcessingGraph(countingProcessor);
+
+        // Both branches are built from scratch; the prefix collapses
+        ProcessingGraph.Node gray = graph.apply(
+                graph.apply(graph.resize(graph.decode(source), 4, 4), ImageOperation.INVERT, null),
+                ImageOperation.GRAYSCALE, null);
+        ProcessingGraph.Node bright = graph.apply(
+                graph.apply(graph.resize(graph.decode(source), 4, 4), ImageOperation.INVERT, Map.of()),
+                ImageOperation.BRIGHTNESS, Map.of("factor", 2));
+        graph.output(gray);
+        graph.output(bright);
+
+        ProcessingGraph.Result result = graph.run();
+
+        assertEquals(1, decodes.get());
+        assertEquals(5, graph.size());
+        assertEquals(3, result.getStats().deduplicated());
+        assertEquals(5, result.getStats().computed());
+        assertEquals(4, result.get(gray).getWidth());
+        assertEquals(0xFF000000, result.get(gray).getRGB(0, 0));
+        assertEquals(0xFF000000, result.get(bright).getRGB(0, 0));
+    }
+
+    @Test
+    void testIntermediatesAreReleasedAfterTheirLastConsumer() throws Exception {
+        ProcessingGraph graph = new ProcessingGraph(countingProcessor, Runnable::run);
+        ProcessingGraph.Node tail = graph.decode(whiteImage("b.png"));
+        for (int i = 0; i < 50; i++) {
+            tail = graph.apply(tail, ImageOperation.BRIGHTNESS, Map.of("factor", 1 + i / 100.0));
+        }
+        graph.output(tail);
+
+        ProcessingGraph.Result result = graph.run();
+
+        assertEquals(51, result.getStats().computed());
+        // A chain never needs more than the current input and its output
+        assertTrue(result.getStats().peakLiveRasters() <= 2, result.getStats().toString());
+        assertEquals(List.of(tail), List.copyOf(result.getOutputs().keySet()));
+    }
+
+    @Test
+    void testUnrequestedBranchesAreNotEvaluated() throws Exception {
+        ProcessingGraph graph = new ProcessingGraph(countingProcessor);
+        ProcessingGraph.Node used = graph.apply(graph.decode(whiteImage("c.png")), ImageOperation.INVERT, null);
+        graph.apply(graph.decode(whiteImage("d.png")), ImageOperation.INVERT, null);
+        graph.output(used);
+
+        ProcessingGraph.Result result = graph.run();
+
+        assertEquals(1, decodes.get());
+        assertEquals(2, result.getStats().computed());
+    }
+
+    @Test
+    void testFailureIsRethrown() throws Exception {
+        ProcessingGraph graph = new ProcessingGraph(countingProcessor);
+        graph.output(graph.apply(graph.decode(dir.resolve("missing.png").toString()), ImageOperation.INVERT, null));
+        graph.output(graph.decode(whiteImage("e.png")));
+
+        assertThrows(FileNotFoundException.class, graph::run);
+    }
+}
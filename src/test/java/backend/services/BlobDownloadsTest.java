@@ -0,0 +1,91 @@
+package backend.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlobDownloadsTest {
+
+    @TempDir
+    Path blobDir;
+
+    private final byte[] data = new byte[100_000];
+    private BlobDownloads downloads;
+    private String hash;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        BlobStore blobs = new BlobStore(blobDir.toString());
+        hash = blobs.put(data).hash();
+        downloads = new BlobDownloads(blobs);
+    }
+
+    private ResponseEntity<StreamingResponseBody> get(HttpHeaders headers) throws Exception {
+        return downloads.serve(hash, MediaType.IMAGE_PNG, "a.png", headers, new MockHttpServletRequest("GET", "/"));
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void testWholeBlob() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = get(new HttpHeaders());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(data.length, response.getHeaders().getContentLength());
+        assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        assertEquals("\"" + hash + "\"", response.getHeaders().getETag());
+        assertArrayEquals(data, body(response));
+    }
+
+    @Test
+    void testSingleRange() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=1000-1999");
+        ResponseEntity<StreamingResponseBody> response = get(headers);
+
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 1000-1999/100000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(1000, response.getHeaders().getContentLength());
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, 2000), body(response));
+
+        headers.set(HttpHeaders.RANGE, "bytes=-10");
+        assertArrayEquals(Arrays.copyOfRange(data, data.length - 10, data.length), body(get(headers)));
+    }
+
+    @Test
+    void testConditionalAndInvalidRanges() throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=200000-");
+        ResponseEntity<StreamingResponseBody> response = get(headers);
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+        assertEquals("bytes */100000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+
+        // Stale validator: the whole (current) blob instead of a range of it
+        headers.set(HttpHeaders.RANGE, "bytes=0-9");
+        headers.set(HttpHeaders.IF_RANGE, "\"something-else\"");
+        assertEquals(HttpStatus.OK, get(headers).getStatusCode());
+
+        HttpHeaders conditional = new HttpHeaders();
+        conditional.setIfNoneMatch("\"" + hash + "\"");
+        assertEquals(HttpStatus.NOT_MODIFIED, get(conditional).getStatusCode());
+    }
+}
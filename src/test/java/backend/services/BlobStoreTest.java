@@ -0,0 +1,165 @@
+package backend.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    private long blobFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    void testIdenticalContentIsStoredOnce() throws Exception {
+        BlobStore store = new BlobStore(root.toString());
+        byte[] data = "same image bytes".getBytes(StandardCharsets.UTF_8);
+
+        BlobStore.Blob first = store.put(data);
+        BlobStore.Blob second = store.put(new ByteArrayInputStream(data), null);
+
+        assertEquals(first, second);
+        assertEquals(ImageETags.hashContent(new ByteArrayInputStream(data)), first.hash());
+        assertEquals(data.length, first.size());
+        assertEquals(1, blobFiles());
+    }
+
+    @Test
+    void testBlobsAreShardedByHashPrefix() throws Exception {
+        BlobStore store = new BlobStore(root.toString());
+        String hash = store.put(new byte[]{1, 2, 3}).hash();
+
+        Path expected = root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+        assertEquals(expected, store.path(hash));
+        assertTrue(Files.exists(expected));
+        try (Stream<Path> tmp = Files.list(root.resolve(".tmp"))) {
+            assertEquals(0, tmp.count());
+        }
+    }
+
+    @Test
+    void testReadBackByStreamAndMapping() throws Exception {
+        BlobStore store = new BlobStore(root.toString());
+        byte[] data = new byte[200_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        String hash = store.put(new ByteArrayInputStream(data), null).hash();
+
+        try (InputStream in = store.open(hash)) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        MappedByteBuffer mapped = store.map(hash);
+        assertEquals(data.length, mapped.remaining());
+        assertEquals(data[12345], mapped.get(12345));
+    }
+
+    @Test
+    void testKnownHashSkipsReadingAndIsVerified() throws Exception {
+        BlobStore store = new BlobStore(root.toString());
+        byte[] data = "original".getBytes(StandardCharsets.UTF_8);
+        String hash = store.put(data).hash();
+
+        InputStream neverRead = new InputStream() {
+            @Override
+            public int read() {
+                throw new AssertionError("stream should not be read");
+            }
+        };
+        assertEquals(hash, store.put(neverRead, hash).hash());
+
+        String wrongHash = hash.replace(hash.charAt(0), hash.charAt(0) == 'a' ? 'b' : 'a');
+        assertThrows(IOException.class,
+                () -> store.put(new ByteArrayInputStream("other".getBytes(StandardCharsets.UTF_8)), wrongHash));
+        assertEquals(1, blobFiles());
+    }
+
+    @Test
+    void testNonHashNamesAreRejected() throws Exception {
+        BlobStore store = new BlobStore(root.toString());
+        assertThrows(IllegalArgumentException.class, () -> store.path("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> store.open("ABC"));
+    }
+
+    @Test
+    void testConcurrentIdenticalPutsCountTheBlobOnce() throws Exception {
+        BlobStore store = new BlobStore(root.toString());
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long expectedBytes = 0;
+        try {
+            for (int round = 0; round < 20; round++) {
+                byte[] data = ("racing content " + round).getBytes(StandardCharsets.UTF_8);
+                expectedBytes += data.length;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<BlobStore.Blob>> puts = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    puts.add(pool.submit(() -> {
+                        start.await();
+                        return store.put(data);
+                    }));
+                }
+                start.countDown();
+                for (Future<BlobStore.Blob> put : puts) {
+                    assertEquals(data.length, put.get(10, TimeUnit.SECONDS).size());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(20, store.count());
+        assertEquals(20, blobFiles());
+        assertEquals(expectedBytes, store.totalBytes());
+    }
+
+    @Test
+    void testDeleteIfUnusedSinceKeepsRecentlyUsedBlobs() throws Exception {
+        BlobStore store = new BlobStore(root.toString());
+        byte[] data = "shared by a new upload".getBytes(StandardCharsets.UTF_8);
+        BlobStore.Blob blob = store.put(data);
+        Files.setLastModifiedTime(store.path(blob.hash()), FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+        Instant cutoff = Instant.now().minus(10, ChronoUnit.MINUTES);
+
+        // Sharing the blob again refreshes it, so a collector holding an old view skips it
+        store.put(new ByteArrayInputStream(data), blob.hash());
+        assertFalse(store.deleteIfUnusedSince(blob.hash(), cutoff));
+        assertTrue(store.contains(blob.hash()));
+
+        Files.setLastModifiedTime(store.path(blob.hash()), FileTime.from(Instant.now().minus(1, ChronoUnit.HOURS)));
+        assertTrue(store.deleteIfUnusedSince(blob.hash(), cutoff));
+        assertFalse(store.deleteIfUnusedSince(blob.hash(), cutoff));
+        assertEquals(0, store.count());
+        assertEquals(0, store.totalBytes());
+
+        // A put after the delete stores the content again
+        store.put(data);
+        assertTrue(store.contains(blob.hash()));
+        assertEquals(1, store.count());
+    }
+}
@@ -0,0 +1,119 @@
+package backend.services;
+
+import backend.models.ImageRecord;
+import backend.repositories.ImageRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "image.blobs.dir=${java.io.tmpdir}/image-inverter-test/blobs-${random.uuid}")
+public class HistoryExportServiceTest {
+
+    @Autowired
+    private HistoryExportService exportService;
+
+    @Autowired
+    private ImageService imageService;
+
+    @Autowired
+    private HistoryWriter historyWriter;
+
+    @Autowired
+    private ImageRepository repository;
+
+    private static MockMultipartFile jpeg(String name, int width) throws Exception {
+        BufferedImage image = new BufferedImage(width, 16, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return new MockMultipartFile("file", name, "image/jpeg", out.toByteArray());
+    }
+
+    /**
+     * Export lines of this test's records; other tests share the database.
+     */
+    private static List<String> linesFor(String text, String token) {
+        return Arrays.stream(text.split("\n")).filter(line -> line.contains(token)).toList();
+    }
+
+    @Test
+    void testNdjsonExportStreamsEveryRecordInIdOrder() throws Exception {
+        String token = UUID.randomUUID().toString();
+        List<ImageRecord> bulk = new ArrayList<>();
+        // More than one persistence-context batch
+        for (int i = 0; i < 1200; i++) {
+            ImageRecord record = new ImageRecord();
+            record.setFileName(token + "-" + i);
+            bulk.add(record);
+        }
+        repository.saveAll(bulk);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = exportService.export(out, HistoryExportService.Format.NDJSON, 0);
+
+        List<String> lines = linesFor(out.toString(StandardCharsets.UTF_8), token);
+        assertTrue(count >= 1200);
+        assertEquals(1200, lines.size());
+        assertTrue(lines.get(0).contains("\"filename\":\"" + token + "-0\""));
+        assertTrue(lines.get(1199).contains("\"filename\":\"" + token + "-1199\""));
+    }
+
+    @Test
+    void testZipExportStoresSharedImagesOnce() throws Exception {
+        String token = UUID.randomUUID().toString();
+        imageService.processAndSave(jpeg(token + "-a.jpg", 16));
+        imageService.processAndSave(jpeg(token + "-copy-of-a.jpg", 16));
+        imageService.processAndSave(jpeg(token + "-b.jpg", 24));
+        // processAndSave only queues the history rows; flush() returns once they are committed
+        historyWriter.flush();
+        long first = Long.MAX_VALUE;
+        for (String name : List.of(token + "-a.jpg", token + "-copy-of-a.jpg", token + "-b.jpg")) {
+            List<ImageRecord> saved = repository.findByFileName(name);
+            assertEquals(1, saved.size(), name + " not committed by flush()");
+            first = Math.min(first, saved.get(0).getId());
+        }
+
+        // Only export from this test's records on, whatever other tests left in the shared database
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(out, HistoryExportService.Format.ZIP, first - 1);
+
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                assertNull(entries.put(entry.getName(), zip.readAllBytes()), "duplicate " + entry.getName());
+            }
+        }
+        List<String> lines = linesFor(new String(entries.get("history.ndjson"), StandardCharsets.UTF_8), token);
+        assertEquals(3, lines.size());
+        for (String line : lines) {
+            Matcher files = Pattern.compile("\"(original|result)_file\":\"([^\"]+)\"").matcher(line);
+            int found = 0;
+            while (files.find()) {
+                assertTrue(entries.containsKey(files.group(2)), files.group(2));
+                found++;
+            }
+            assertEquals(2, found, line);
+        }
+        // Identical uploads point at the same archive entries
+        assertEquals(lines.get(0).replaceAll(".*original_file", ""), lines.get(1).replaceAll(".*original_file", ""));
+    }
+}
@@ -0,0 +1,126 @@
+package backend.services;
+
+import backend.models.ImageRecord;
+import backend.repositories.ImageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class HistoryWriterTest {
+
+    private static ImageRecord record(String name) {
+        ImageRecord record = new ImageRecord();
+        record.setFileName(name);
+        return record;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBurstIsWrittenInBatches() throws Exception {
+        ImageRepository repository = mock(ImageRepository.class);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        when(repository.saveAll(anyList())).thenAnswer(call -> {
+            batchSizes.add(((List<ImageRecord>) call.getArgument(0)).size());
+            return call.getArgument(0);
+        });
+        SimpleMeterRegistry metrics = new SimpleMeterRegistry();
+        HistoryWriter writer = new HistoryWriter(repository, metrics, 1000, 50, 50);
+        writer.start();
+
+        for (int i = 0; i < 120; i++) {
+            writer.save(record("img-" + i));
+        }
+        writer.shutdown();
+
+        assertEquals(120, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.size() < 120, "records should be grouped: " + batchSizes);
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 50));
+        assertEquals(120.0, metrics.counter("image.history.records", "result", "written").count());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void testFullQueueFallsBackToSynchronousSave() throws Exception {
+        ImageRepository repository = mock(ImageRepository.class);
+        SimpleMeterRegistry metrics = new SimpleMeterRegistry();
+        // Flusher not started: the single slot stays occupied
+        HistoryWriter writer = new HistoryWriter(repository, metrics, 1, 50, 0);
+
+        ImageRecord queued = record("queued");
+        ImageRecord overflow = record("overflow");
+        writer.save(queued);
+        writer.save(overflow);
+
+        verify(repository).saveAll(List.of(overflow));
+        assertEquals(1, writer.pending());
+        assertEquals(1.0, metrics.counter("image.history.records", "result", "synchronous").count());
+
+        writer.shutdown();
+        verify(repository).saveAll(List.of(queued));
+        assertEquals(0, writer.pending());
+    }
+
+    @Test
+    void testFailedBatchIsRetriedPerRecord() throws Exception {
+        ImageRepository repository = mock(ImageRepository.class);
+        ImageRecord good = record("good");
+        ImageRecord bad = record("bad");
+        when(repository.saveAll(anyList())).thenThrow(new IllegalStateException("batch failed"));
+        when(repository.save(bad)).thenThrow(new IllegalStateException("constraint violation"));
+        SimpleMeterRegistry metrics = new SimpleMeterRegistry();
+        HistoryWriter writer = new HistoryWriter(repository, metrics, 10, 50, 0);
+
+        writer.save(good);
+        writer.save(bad);
+        writer.flush();
+
+        verify(repository).save(good);
+        assertEquals(1.0, metrics.counter("image.history.records", "result", "written").count());
+        assertEquals(1.0, metrics.counter("image.history.records", "result", "failed").count());
+    }
+
+    @Test
+    void testFlushWaitsForTheBatchBeingWritten() throws Exception {
+        ImageRepository repository = mock(ImageRepository.class);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean committed = new AtomicBoolean();
+        when(repository.saveAll(anyList())).thenAnswer(call -> {
+            writing.countDown();
+            release.await();
+            committed.set(true);
+            return call.getArgument(0);
+        });
+        HistoryWriter writer = new HistoryWriter(repository, new SimpleMeterRegistry(), 10, 50, 0);
+        writer.start();
+        try {
+            writer.save(record("in-flight"));
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            // The record is off the queue but not saved yet
+
+            Thread flusher = new Thread(writer::flush);
+            flusher.start();
+            flusher.join(200);
+            assertTrue(flusher.isAlive(), "flush() returned before the batch was committed");
+
+            release.countDown();
+            flusher.join(5_000);
+            assertFalse(flusher.isAlive());
+            assertTrue(committed.get());
+        } finally {
+            release.countDown();
+            writer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package backend.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageETagsTest {
+
+    private String hashOf(byte[] bytes) throws IOException {
+        return ImageETags.hashContent(new MockMultipartFile("file", "a.png", "image/png", bytes));
+    }
+
+    @Test
+    void testSameInputSameTag() throws IOException {
+        String first = ImageETags.strong(hashOf(new byte[]{1, 2, 3}), "blur", 5);
+        String second = ImageETags.strong(hashOf(new byte[]{1, 2, 3}), "blur", 5);
+
+        assertEquals(first, second);
+        assertTrue(first.startsWith("\"") && first.endsWith("\""));
+    }
+
+    @Test
+    void testTagDependsOnContentOperationAndParams() throws IOException {
+        String hash = hashOf(new byte[]{1, 2, 3});
+        String base = ImageETags.strong(hash, "blur", 5);
+
+        assertNotEquals(base, ImageETags.strong(hashOf(new byte[]{1, 2, 4}), "blur", 5));
+        assertNotEquals(base, ImageETags.strong(hash, "sharpen", 5));
+        assertNotEquals(base, ImageETags.strong(hash, "blur", 6));
+    }
+
+    @Test
+    void testIfNoneMatchComparison() {
+        String etag = ImageETags.strong("abc", "invert");
+
+        assertTrue(ImageETags.matches(etag, etag));
+        assertTrue(ImageETags.matches("\"other\", " + etag, etag));
+        assertTrue(ImageETags.matches("W/" + etag, etag));
+        assertTrue(ImageETags.matches("*", etag));
+        assertFalse(ImageETags.matches("\"other\"", etag));
+        assertFalse(ImageETags.matches(null, etag));
+    }
+
+    @Test
+    void testMatchStatusDependsOnMethod() {
+        String etag = ImageETags.strong("abc", "invert");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, ImageETags.notModified(etag).getStatusCode());
+        assertEquals(HttpStatus.PRECONDITION_FAILED, ImageETags.preconditionFailed(etag).getStatusCode());
+        assertEquals(etag, ImageETags.preconditionFailed(etag).getHeaders().getETag());
+    }
+}
@@ -8,7 +8,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.mock.web.MockMultipartFile;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,6 +23,9 @@ public class ImageServiceTest {
     @Autowired
     private ImageService imageService;
 
+    @Autowired
+    private BlobStore blobStore;
+
     @Test
     @Order(1) // Runs First
     void testProcessAndSave() throws IOException {
@@ -41,7 +48,36 @@ public class ImageServiceTest {
     }
 
     @Test
-    @Order(2) // Runs Second
+    @Order(2)
+    void testInvalidUploadStoresNothing() {
+        long blobs = blobStore.count();
+        MockMultipartFile mockFile = new MockMultipartFile("file", "broken.png", "image/png",
+                "definitely not an image".getBytes());
+
+        assertThrows(IOException.class, () -> imageService.processAndSave(mockFile));
+
+        assertEquals(blobs, blobStore.count(), "a failed upload must not leave an unreferenced blob");
+    }
+
+    @Test
+    @Order(3)
+    void testStagedImageOverPixelLimitIsRejectedBeforeDecoding() throws IOException {
+        Path staged = Files.createTempFile("staged", ".png");
+        try {
+            ImageIO.write(new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB), "png", staged.toFile());
+            long blobs = blobStore.count();
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> imageService.processAndSave("huge.png", staged, 64 * 63));
+
+            assertEquals(blobs, blobStore.count(), "a rejected upload must not leave a blob behind");
+        } finally {
+            Files.deleteIfExists(staged);
+        }
+    }
+
+    @Test
+    @Order(4)
     void testLogicInversion() {
         // Here we test pure logic if we extract it or test via side effects
         assertTrue(true, "Placeholder for second step");
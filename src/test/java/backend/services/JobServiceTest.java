@@ -0,0 +1,146 @@
+package backend.services;
+
+import backend.models.ImageJob;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imageapp.service.ImageInversionService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobServiceTest {
+
+    @TempDir
+    Path jobsDir;
+
+    private JobService newService() throws IOException {
+        JobService service = new JobService(new ImageService(null, null), new ImageInversionService(),
+                new ObjectMapper(), jobsDir.toString(), 1, 10, 60);
+        service.recover();
+        return service;
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static ImageJob await(JobService service, String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            ImageJob job = service.get(id);
+            if (job.getStatus().isTerminal()) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        fail("Job did not finish");
+        return null;
+    }
+
+    @Test
+    void testJobRunsAndReportsProgress() throws Exception {
+        JobService service = newService();
+        try {
+            ImageJob job = service.submit("photo.jpg", new ByteArrayInputStream(png(40, 30)),
+                    "[{\"op\":\"invert\"},{\"op\":\"blur\",\"radius\":2}]", "png");
+            List<Double> progress = new CopyOnWriteArrayList<>();
+            service.subscribe(job.getId(), update -> progress.add(update.getProgress()));
+
+            assertEquals(ImageJob.Status.SUCCEEDED, await(service, job.getId()).getStatus());
+            BufferedImage result = ImageIO.read(service.resultFile(job.getId()).toFile());
+            assertEquals(40, result.getWidth());
+            assertEquals(30, result.getHeight());
+            assertTrue((result.getRGB(5, 5) & 0xFF) > 250, "inverted black should be near white");
+
+            for (int i = 1; i < progress.size(); i++) {
+                assertTrue(progress.get(i) >= progress.get(i - 1));
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testScheduledPurgeDeletesExpiredJobsWithoutNewSubmissions() throws Exception {
+        JobService service = new JobService(new ImageService(null, null), new ImageInversionService(),
+                new ObjectMapper(), jobsDir.toString(), 1, 10, 0);
+        try {
+            ImageJob job = service.submit("photo.png", new ByteArrayInputStream(png(8, 8)), null, "png");
+            assertEquals(ImageJob.Status.SUCCEEDED, await(service, job.getId()).getStatus());
+            Thread.sleep(5); // finishedAt strictly before the purge cutoff
+
+            service.scheduledPurge();
+
+            assertThrows(NoSuchElementException.class, () -> service.get(job.getId()));
+            try (var files = Files.list(jobsDir)) {
+                assertEquals(0, files.count());
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testInvalidOperationsAreRejectedUpFront() throws Exception {
+        JobService service = newService();
+        try {
+            assertThrows(IllegalArgumentException.class, () -> service.submit("a.png",
+                    new ByteArrayInputStream(png(4, 4)), "[{\"op\":\"posterize\"}]", "png"));
+            try (var files = Files.list(jobsDir)) {
+                assertEquals(0, files.count());
+            }
+            assertThrows(NoSuchElementException.class, () -> service.get("../../etc/passwd"));
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testUnfinishedJobIsResumedAfterRestart() throws Exception {
+        // State a crashed server leaves behind: staged input, sidecar still RUNNING
+        String id = UUID.randomUUID().toString();
+        Files.write(jobsDir.resolve(id + ".input"), png(8, 8));
+        Properties props = new Properties();
+        props.setProperty("fileName", "a.png");
+        props.setProperty("operations", JobService.DEFAULT_OPERATIONS);
+        props.setProperty("format", "png");
+        props.setProperty("createdAt", Instant.now().toString());
+        props.setProperty("status", "RUNNING");
+        try (Writer out = Files.newBufferedWriter(jobsDir.resolve(id + ".properties"))) {
+            props.store(out, null);
+        }
+
+        JobService service = newService();
+        try {
+            assertEquals(ImageJob.Status.SUCCEEDED, await(service, id).getStatus());
+            assertTrue(Files.exists(service.resultFile(id)));
+            assertFalse(Files.exists(jobsDir.resolve(id + ".input")));
+        } finally {
+            service.shutdown();
+        }
+
+        JobService restarted = newService();
+        try {
+            assertEquals(ImageJob.Status.SUCCEEDED, restarted.get(id).getStatus());
+            assertTrue(Files.exists(restarted.resultFile(id)));
+        } finally {
+            restarted.shutdown();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package backend.services;
+
+import backend.models.ImageRecord;
+import backend.repositories.ImageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class RetentionServiceTest {
+
+    @TempDir
+    Path blobDir;
+
+    private static ImageRecord record(long id, String originalHash, String invertedHash) {
+        ImageRecord record = new ImageRecord();
+        ReflectionTestUtils.setField(record, "id", id);
+        record.setOriginalHash(originalHash);
+        record.setInvertedHash(invertedHash);
+        return record;
+    }
+
+    private RetentionService service(ImageRepository repository, BlobStore blobs,
+                                     long maxBytes, long maxRecords, long graceSeconds) {
+        return new RetentionService(repository, blobs, new SimpleMeterRegistry(),
+                maxBytes, maxRecords, 0, 10, graceSeconds, 60);
+    }
+
+    @Test
+    void testRecordLimitEvictsLeastRecentlyUsedAndUnreferencedBlobs() throws Exception {
+        BlobStore blobs = new BlobStore(blobDir.toString());
+        BlobStore.Blob original = blobs.put("original".getBytes(StandardCharsets.UTF_8));
+        BlobStore.Blob shared = blobs.put("shared result".getBytes(StandardCharsets.UTF_8));
+        setLastUsed(blobs, original.hash(), Instant.now().minus(1, ChronoUnit.HOURS));
+        setLastUsed(blobs, shared.hash(), Instant.now().minus(1, ChronoUnit.HOURS));
+
+        ImageRepository repository = mock(ImageRepository.class);
+        when(repository.count()).thenReturn(3L, 2L);
+        when(repository.findByOrderByLastAccessedAtAscIdAsc(Limit.of(1)))
+                .thenReturn(List.of(record(1, original.hash(), shared.hash())));
+        // Another record still points at the shared result
+        when(repository.existsByInvertedHash(shared.hash())).thenReturn(true);
+
+        RetentionService retention = service(repository, blobs, 0, 2, 60);
+        RetentionService.Report report = retention.compact();
+
+        verify(repository).deleteAllByIdInBatch(List.of(1L));
+        assertFalse(blobs.contains(original.hash()));
+        assertTrue(blobs.contains(shared.hash()));
+        assertEquals(1, report.evictedRecords());
+        assertEquals(1, report.deletedBlobs());
+        assertEquals(original.size(), report.reclaimedBytes());
+        assertEquals(shared.size(), report.storedBytes());
+        assertEquals(shared.size(), blobs.totalBytes());
+        assertSame(report, retention.lastReport());
+    }
+
+    @Test
+    void testByteLimitEvictsIdleRecordsUntilUnderBudget() throws Exception {
+        BlobStore blobs = new BlobStore(blobDir.toString());
+        BlobStore.Blob first = blobs.put(new byte[1000]);
+        BlobStore.Blob second = blobs.put(new byte[2000]);
+        setLastUsed(blobs, first.hash(), Instant.now().minus(1, ChronoUnit.HOURS));
+        setLastUsed(blobs, second.hash(), Instant.now().minus(1, ChronoUnit.HOURS));
+
+        ImageRepository repository = mock(ImageRepository.class);
+        when(repository.findByLastAccessedAtBeforeOrderByLastAccessedAtAscIdAsc(any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of(record(1, first.hash(), null)))
+                .thenReturn(List.of());
+        // Record 1 references the first blob until it is evicted; another record keeps the second
+        when(repository.existsByOriginalHash(first.hash())).thenReturn(true, false);
+        when(repository.existsByOriginalHash(second.hash())).thenReturn(true);
+
+        RetentionService retention = service(repository, blobs, 2500, 0, 60);
+        RetentionService.Report report = retention.compact();
+
+        assertEquals(1, report.evictedRecords());
+        assertEquals(1000, report.reclaimedBytes());
+        assertEquals(2000, blobs.totalBytes());
+        assertTrue(blobs.contains(second.hash()));
+        // Under budget after the first batch: no second query
+        verify(repository, times(1)).findByLastAccessedAtBeforeOrderByLastAccessedAtAscIdAsc(any(), any());
+    }
+
+    @Test
+    void testRecentlyUsedBlobIsKeptUntilGracePeriodEnds() throws Exception {
+        BlobStore blobs = new BlobStore(blobDir.toString());
+        BlobStore.Blob blob = blobs.put("just shared".getBytes(StandardCharsets.UTF_8));
+
+        ImageRepository repository = mock(ImageRepository.class);
+        when(repository.count()).thenReturn(2L, 1L);
+        when(repository.findByOrderByLastAccessedAtAscIdAsc(any(Limit.class)))
+                .thenReturn(List.of(record(7, blob.hash(), null)));
+
+        RetentionService retention = service(repository, blobs, 0, 1, 300);
+        assertEquals(0, retention.compact().reclaimedBytes());
+        assertTrue(blobs.contains(blob.hash()));
+
+        // Later pass, after the grace period: the deferred blob is collected
+        setLastUsed(blobs, blob.hash(), Instant.now().minus(1, ChronoUnit.HOURS));
+        when(repository.count()).thenReturn(1L);
+        RetentionService.Report report = retention.compact();
+        assertEquals(0, report.evictedRecords());
+        assertEquals(blob.size(), report.reclaimedBytes());
+        assertFalse(blobs.contains(blob.hash()));
+        verify(repository, atLeastOnce()).existsByOriginalHash(anyString());
+    }
+
+    @Test
+    void testByteLimitStopsWhenEvictionFreesNothing() throws Exception {
+        BlobStore blobs = new BlobStore(blobDir.toString());
+        BlobStore.Blob shared = blobs.put(new byte[3000]);
+        setLastUsed(blobs, shared.hash(), Instant.now().minus(1, ChronoUnit.HOURS));
+
+        ImageRepository repository = mock(ImageRepository.class);
+        when(repository.findByLastAccessedAtBeforeOrderByLastAccessedAtAscIdAsc(any(LocalDateTime.class), any(Limit.class)))
+                .thenReturn(List.of(record(1, shared.hash(), null)))
+                .thenReturn(List.of(record(2, shared.hash(), null)));
+        // A recently used record still shares the blob
+        when(repository.existsByOriginalHash(shared.hash())).thenReturn(true);
+
+        RetentionService.Report report = service(repository, blobs, 1000, 0, 60).compact();
+
+        assertEquals(1, report.evictedRecords());
+        assertEquals(0, report.reclaimedBytes());
+        assertTrue(blobs.contains(shared.hash()));
+        verify(repository, times(1)).findByLastAccessedAtBeforeOrderByLastAccessedAtAscIdAsc(any(), any());
+    }
+
+    @Test
+    void testOrphanSweepReclaimsUnreferencedBlobsBeforeEvictingHistory() throws Exception {
+        BlobStore blobs = new BlobStore(blobDir.toString());
+        BlobStore.Blob orphan = blobs.put(new byte[5000]);
+        BlobStore.Blob fresh = blobs.put(new byte[100]);
+        BlobStore.Blob live = blobs.put(new byte[200]);
+        setLastUsed(blobs, orphan.hash(), Instant.now().minus(1, ChronoUnit.HOURS));
+        setLastUsed(blobs, live.hash(), Instant.now().minus(1, ChronoUnit.HOURS));
+
+        ImageRepository repository = mock(ImageRepository.class);
+        when(repository.existsByInvertedHash(live.hash())).thenReturn(true);
+
+        // Fresh restart: nothing deferred in memory, the sweep finds the orphan anyway
+        RetentionService retention = service(repository, blobs, 1000, 0, 60);
+        RetentionService.Report report = retention.compact();
+
+        assertFalse(blobs.contains(orphan.hash()));
+        assertTrue(blobs.contains(fresh.hash()), "inside the grace period");
+        assertTrue(blobs.contains(live.hash()));
+        assertEquals(orphan.size(), report.reclaimedBytes());
+        assertEquals(0, report.evictedRecords());
+        verify(repository, never()).findByLastAccessedAtBeforeOrderByLastAccessedAtAscIdAsc(any(), any());
+
+        // The young orphan was deferred, so the next pass collects it without a new sweep
+        setLastUsed(blobs, fresh.hash(), Instant.now().minus(1, ChronoUnit.HOURS));
+        assertEquals(fresh.size(), retention.compact().reclaimedBytes());
+        assertFalse(blobs.contains(fresh.hash()));
+    }
+
+    private static void setLastUsed(BlobStore blobs, String hash, Instant time) throws Exception {
+        Files.setLastModifiedTime(blobs.path(hash), FileTime.from(time));
+    }
+}
@@ -0,0 +1,85 @@
+package backend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    void testConcurrentCallersShareOneComputation() throws Exception {
+        SingleFlight<String, byte[]> flight = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> flight.execute("hash:invert", () -> {
+                    computations.incrementAndGet();
+                    release.await();
+                    return new byte[]{1, 2, 3};
+                })));
+            }
+            // Wait until the other seven are parked on the leader's result
+            for (int i = 0; i < 500 && flight.sharedCount() < 7; i++) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            byte[] first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<byte[]> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, computations.get());
+            assertEquals(1, flight.executedCount());
+            assertEquals(7, flight.sharedCount());
+            assertEquals(0, flight.inFlightCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testFailureIsSharedAndNotRemembered() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> flight.execute("k", () -> {
+                release.await();
+                throw new IOException("Invalid image file");
+            }));
+            for (int i = 0; i < 500 && flight.inFlightCount() == 0; i++) {
+                Thread.sleep(10);
+            }
+            Future<String> follower = pool.submit(() -> flight.execute("k", () -> "unexpected"));
+            for (int i = 0; i < 500 && flight.sharedCount() == 0; i++) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+
+            ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, leaderError.getCause());
+            assertInstanceOf(IOException.class, followerError.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Nothing is cached: the next call computes again
+        assertEquals("ok", flight.execute("k", () -> "ok"));
+        assertEquals(2, flight.executedCount());
+    }
+}
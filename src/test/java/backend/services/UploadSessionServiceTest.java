@@ -0,0 +1,61 @@
+package backend.services;
+
+import backend.models.UploadSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UploadSessionServiceTest {
+
+    @TempDir
+    Path stagingDir;
+
+    @Test
+    void testIdleSessionsExpire() throws Exception {
+        UploadSessionService service = new UploadSessionService(null, stagingDir.toString(), 1_000_000, 1_000_000, 1000, 60);
+        UploadSession idle = service.create("idle.png", 500_000);
+        UploadSession active = service.create("active.png", 10);
+        service.writeChunk(active.getId(), "bytes 0-4/10", new ByteArrayInputStream(new byte[5]));
+
+        Instant longAgo = Instant.now().minus(2, ChronoUnit.HOURS);
+        try (Stream<Path> files = Files.list(stagingDir)) {
+            for (Path file : files.filter(f -> f.getFileName().toString().startsWith(idle.getId())).toList()) {
+                Files.setLastModifiedTime(file, FileTime.from(longAgo));
+            }
+        }
+
+        assertEquals(1, service.expireIdle());
+
+        assertThrows(NoSuchElementException.class, () -> service.get(idle.getId()));
+        assertEquals(5, service.get(active.getId()).getReceivedBytes());
+        try (Stream<Path> files = Files.list(stagingDir)) {
+            assertTrue(files.noneMatch(f -> f.getFileName().toString().startsWith(idle.getId())));
+        }
+    }
+
+    @Test
+    void testSessionsLeftByAnEarlierRunExpire() throws Exception {
+        UploadSessionService before = new UploadSessionService(null, stagingDir.toString(), 1000, 1_000_000, 1000, 60);
+        UploadSession session = before.create("old.png", 100);
+        Files.setLastModifiedTime(stagingDir.resolve(session.getId() + ".part"),
+                FileTime.from(Instant.now().minus(1, ChronoUnit.DAYS)));
+        Files.setLastModifiedTime(stagingDir.resolve(session.getId() + ".properties"),
+                FileTime.from(Instant.now().minus(1, ChronoUnit.DAYS)));
+
+        UploadSessionService restarted = new UploadSessionService(null, stagingDir.toString(), 1000, 1_000_000, 1000, 60);
+        assertEquals(1, restarted.expireIdle());
+        try (Stream<Path> files = Files.list(stagingDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.imageapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArchiveBatchProcessorTest {
+
+    private final BatchImageProcessor batchProcessor = new BatchImageProcessor(new ImageInversionService(), 2, 2, 10_000);
+    private final ArchiveBatchProcessor archiveProcessor = new ArchiveBatchProcessor(batchProcessor, 1_000_000);
+
+    @AfterEach
+    void tearDown() {
+        archiveProcessor.shutdown();
+        batchProcessor.shutdown();
+    }
+
+    private static byte[] png() throws IOException {
+        BufferedImage img = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", baos);
+        return baos.toByteArray();
+    }
+
+    private Map<String, byte[]> run(byte[] archive) throws Exception {
+        BatchImageProcessor.BatchRequest request = new BatchImageProcessor.BatchRequest();
+        request.operation = "invert";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        archiveProcessor.process(new ByteArrayInputStream(archive), request, "png", out);
+
+        Map<String, byte[]> entries = new TreeMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    public void testZipInZipOut() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            for (String name : new String[]{"photos/a.png", "b.png"}) {
+                zip.putNextEntry(new ZipEntry(name));
+                zip.write(png());
+            }
+            zip.putNextEntry(new ZipEntry("notes.txt"));
+            zip.write("not an image".getBytes(StandardCharsets.UTF_8));
+        }
+
+        Map<String, byte[]> result = run(archive.toByteArray());
+
+        assertEquals(3, result.size());
+        BufferedImage inverted = ImageIO.read(new ByteArrayInputStream(result.get("photos/a.png")));
+        assertEquals(0xFFFFFF, inverted.getRGB(0, 0) & 0xFFFFFF);
+        assertTrue(result.containsKey("b.png"));
+        assertTrue(new String(result.get("notes.txt.error.txt"), StandardCharsets.UTF_8).startsWith("ERROR"));
+    }
+
+    @Test
+    public void testTarInZipOut() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeTarEntry(archive, "dir/c.png", png());
+        writeTarEntry(archive, "d.png", png());
+        archive.write(new byte[1024]); // end-of-archive marker
+
+        Map<String, byte[]> result = run(archive.toByteArray());
+
+        assertEquals(2, result.size());
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(result.get("dir/c.png"))));
+        assertNotNull(ImageIO.read(new ByteArrayInputStream(result.get("d.png"))));
+    }
+
+    @Test
+    public void testAbortedRequestReleasesTheReader() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            for (int i = 0; i < 20; i++) {
+                zip.putNextEntry(new ZipEntry("img" + i + ".png"));
+                zip.write(png());
+            }
+        }
+        BatchImageProcessor.BatchRequest request = new BatchImageProcessor.BatchRequest();
+        request.operation = "invert";
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class, () ->
+                archiveProcessor.process(new ByteArrayInputStream(archive.toByteArray()), request, "png", disconnected));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (archiveProcessor.activeReaders() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, archiveProcessor.activeReaders());
+    }
+
+    @Test
+    public void testRepeatedResultNamesAreNumbered() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeTarEntry(archive, "a.jpg", png());
+        writeTarEntry(archive, "a.png", png());
+        writeTarEntry(archive, "a.png", png()); // tar allows repeated paths
+        writeTarEntry(archive, "A.png", png());
+        writeTarEntry(archive, "notes.txt", "x".getBytes(StandardCharsets.UTF_8));
+        writeTarEntry(archive, "notes.txt", "y".getBytes(StandardCharsets.UTF_8));
+        archive.write(new byte[1024]);
+
+        Map<String, byte[]> result = run(archive.toByteArray());
+
+        assertEquals(Set.of("a.png", "a-2.png", "a-3.png", "A.png", "notes.txt.error.txt", "notes.txt.error-2.txt"),
+                result.keySet());
+        for (String name : List.of("a.png", "a-2.png", "a-3.png", "A.png")) {
+            assertNotNull(ImageIO.read(new ByteArrayInputStream(result.get(name))), name);
+        }
+    }
+
+    @Test
+    public void testOversizedTarLongNameIsRejected() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeTarHeader(archive, "././@LongLink", 'L', 1L << 30);
+        archive.write(new byte[1024]);
+
+        Map<String, byte[]> result = run(archive.toByteArray());
+
+        assertEquals(Set.of("archive.error.txt"), result.keySet());
+        assertTrue(new String(result.get("archive.error.txt"), StandardCharsets.UTF_8).contains("long name"));
+    }
+
+    private static void writeTarEntry(ByteArrayOutputStream out, String name, byte[] data) throws IOException {
+        writeTarHeader(out, name, '0', data.length);
+        out.write(data);
+        out.write(new byte[(512 - data.length % 512) % 512]);
+    }
+
+    private static void writeTarHeader(ByteArrayOutputStream out, String name, char type, long size) throws IOException {
+        byte[] header = new byte[512];
+        put(header, 0, name);
+        put(header, 100, "0000644");
+        put(header, 124, String.format("%011o", size));
+        put(header, 136, String.format("%011o", 0));
+        header[156] = (byte) type;
+        put(header, 257, "ustar");
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        long sum = 0;
+        for (byte b : header) {
+            sum += b & 0xFF;
+        }
+        put(header, 148, String.format("%06o", sum));
+        out.write(header);
+    }
+
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+}
@@ -0,0 +1,99 @@
+package com.imageapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchImageProcessorTest {
+
+    /**
+     * Decodes any payload to a 1x1 image; "slow" sleeps, "bad" fails.
+     */
+    private static class FakeService extends ImageInversionService {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+
+        @Override
+        public BufferedImage readImage(byte[] imageBytes) throws IOException {
+            int now = active.incrementAndGet();
+            maxActive.accumulateAndGet(now, Math::max);
+            try {
+                String payload = new String(imageBytes);
+                if (payload.equals("bad")) {
+                    throw new IOException("Invalid image file");
+                }
+                if (payload.equals("slow")) {
+                    Thread.sleep(2000);
+                } else {
+                    Thread.sleep(20);
+                }
+                return new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+            } catch (InterruptedException e) {
+                throw new IOException("interrupted");
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    private BatchImageProcessor.BatchRequest request(String operation, String... payloads) {
+        BatchImageProcessor.BatchRequest request = new BatchImageProcessor.BatchRequest();
+        request.operation = operation;
+        for (int i = 0; i < payloads.length; i++) {
+            BatchImageProcessor.ImageData data = new BatchImageProcessor.ImageData();
+            data.id = payloads[i] + "-" + i;
+            data.format = "png";
+            data.imageBytes = payloads[i].getBytes();
+            request.images.add(data);
+        }
+        return request;
+    }
+
+    @Test
+    public void testParallelismIsBounded() throws InterruptedException {
+        FakeService service = new FakeService();
+        BatchImageProcessor processor = new BatchImageProcessor(service, 8, 2, 10_000);
+
+        BatchImageProcessor.BatchResponse response =
+                processor.processBatch(request("invert", "a", "b", "c", "d", "e", "f"));
+
+        assertEquals(6, response.results.size());
+        assertTrue(service.maxActive.get() <= 2, "at most 2 items of the batch may run at once");
+        processor.shutdown();
+    }
+
+    @Test
+    public void testFailuresAndTimeoutsAreIsolated() throws InterruptedException {
+        BatchImageProcessor processor = new BatchImageProcessor(new FakeService(), 4, 4, 10_000);
+        BatchImageProcessor.BatchRequest request = request("grayscale", "ok", "bad", "slow");
+        request.itemTimeoutMs = 300L;
+
+        List<BatchImageProcessor.ProcessedImage> results = new ArrayList<>();
+        processor.processBatch(request, results::add);
+
+        assertEquals(3, results.size());
+        assertEquals("SUCCESS", statusOf(results, "ok-0"));
+        assertTrue(statusOf(results, "bad-1").startsWith("ERROR"));
+        assertEquals("TIMEOUT", statusOf(results, "slow-2"));
+        // Results arrive in completion order: the slow item is last
+        assertEquals("slow-2", results.get(2).id);
+        processor.shutdown();
+    }
+
+    @Test
+    public void testUnknownOperationIsRejected() {
+        BatchImageProcessor.BatchRequest request = request("posterize", "a");
+
+        assertThrows(IllegalArgumentException.class, () -> BatchImageProcessor.validate(request));
+    }
+
+    private static String statusOf(List<BatchImageProcessor.ProcessedImage> results, String id) {
+        return results.stream().filter(r -> r.id.equals(id)).findFirst().orElseThrow().status;
+    }
+}
@@ -0,0 +1,94 @@
+package com.imageapp.service;
+
+import backend.entities.ImageInverter;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImagePipelineTest {
+
+    private BufferedImage createGradient(int width, int height) {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, (x * 13 % 256) << 16 | (y * 29 % 256) << 8 | ((x + y) * 7 % 256));
+            }
+        }
+        return img;
+    }
+
+    private void assertSamePixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    public void testFusedStagesMatchSequentialFilters() {
+        BufferedImage img = createGradient(32, 24);
+
+        BufferedImage expected = ImageInverter.invertImage(img);
+        expected = ImageFiltersService.adjustContrast(expected, 1.4f);
+        expected = ImageFiltersService.adjustBrightness(expected, 0.8f);
+
+        ImagePipeline pipeline = ImagePipeline.fromSpec(List.of(
+                Map.of("op", "invert"),
+                Map.of("op", "contrast", "factor", 1.4),
+                Map.of("op", "brightness", "factor", 0.8)));
+
+        assertEquals(1, pipeline.stageCount());
+        assertSamePixels(expected, pipeline.apply(img, new ArrayList<>()));
+    }
+
+    @Test
+    public void testNonPointwiseStepsBreakFusion() {
+        ImagePipeline pipeline = ImagePipeline.fromSpec(List.of(
+                Map.of("op", "invert"),
+                Map.of("op", "contrast", "factor", 1.2),
+                Map.of("op", "sharpen"),
+                Map.of("op", "brightness", "factor", 1.1)));
+
+        List<ImagePipeline.StageTiming> timings = new ArrayList<>();
+        BufferedImage result = pipeline.apply(createGradient(16, 16), timings);
+
+        assertEquals(3, pipeline.stageCount());
+        assertEquals(List.of("s1-invert+contrast", "s2-sharpen", "s3-brightness"),
+                timings.stream().map(ImagePipeline.StageTiming::name).toList());
+        assertEquals(16, result.getWidth());
+    }
+
+    @Test
+    public void testCanonicalFormIgnoresParameterOrder() {
+        ImagePipeline a = ImagePipeline.compile(List.of(
+                new ImagePipeline.Step(ImageOperation.BLUR, Map.of("radius", 3, "unused", 1))));
+        ImagePipeline b = ImagePipeline.compile(List.of(
+                new ImagePipeline.Step(ImageOperation.BLUR, Map.of("unused", 1, "radius", 3))));
+
+        assertEquals(a.canonicalForm(), b.canonicalForm());
+    }
+
+    @Test
+    public void testInvalidSpecsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ImagePipeline.fromSpec(List.of()));
+        assertThrows(IllegalArgumentException.class,
+                () -> ImagePipeline.fromSpec(List.of(Map.of("op", "posterize"))));
+    }
+
+    @Test
+    public void testServerTimingHeader() {
+        String header = ImagePipeline.serverTiming(List.of(
+                new ImagePipeline.StageTiming("decode", 1_500_000),
+                new ImagePipeline.StageTiming("s1-invert", 250_000)));
+
+        assertEquals("decode;dur=1.500, s1-invert;dur=0.250", header);
+    }
+}
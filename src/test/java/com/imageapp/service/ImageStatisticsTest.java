@@ -0,0 +1,55 @@
+package com.imageapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageStatisticsTest {
+
+    @Test
+    public void testHalfBlackHalfWhite() {
+        BufferedImage img = new BufferedImage(10, 4, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 4; y++) {
+            for (int x = 5; x < 10; x++) {
+                img.setRGB(x, y, Color.WHITE.getRGB());
+            }
+        }
+
+        ImageStatistics stats = ImageStatistics.of(img);
+
+        assertEquals(10, stats.width());
+        assertEquals(4, stats.height());
+        assertEquals(127.5, stats.meanRed());
+        assertEquals(0, stats.minLuminance());
+        assertEquals(255, stats.maxLuminance());
+        assertEquals(127.5, stats.meanLuminance());
+        assertEquals(127.5, stats.stddevLuminance());
+        assertEquals(20, stats.luminanceHistogram()[0]);
+        assertEquals(20, stats.luminanceHistogram()[ImageStatistics.HISTOGRAM_BINS - 1]);
+    }
+
+    @Test
+    public void testLuminanceWeightsChannels() {
+        BufferedImage img = new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 2; x++) {
+                img.setRGB(x, y, Color.GREEN.getRGB());
+            }
+        }
+
+        ImageStatistics stats = ImageStatistics.of(img);
+
+        assertEquals(255.0, stats.meanGreen());
+        assertEquals(0.0, stats.meanBlue());
+        assertEquals(150, stats.minLuminance());
+        assertEquals(0.0, stats.stddevLuminance());
+        long total = 0;
+        for (long count : stats.luminanceHistogram()) {
+            total += count;
+        }
+        assertEquals(4, total);
+    }
+}
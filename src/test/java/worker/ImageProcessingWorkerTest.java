@@ -0,0 +1,142 @@
+package worker;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageProcessingWorkerTest {
+
+    @Test
+    void testTilesCoverTheWholeImage() throws Exception {
+        // Not a multiple of the tile size, to exercise the edge tiles
+        BufferedImage source = new BufferedImage(600, 300, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < 600; x++) {
+            for (int y = 0; y < 300; y++) {
+                source.setRGB(x, y, 0x80000000 | (x * 31 + y) & 0xFFFFFF);
+            }
+        }
+        AtomicInteger updates = new AtomicInteger();
+        ImageProcessingWorker worker = new ImageProcessingWorker(source, image -> updates.incrementAndGet(), null);
+
+        worker.run();
+        BufferedImage result = worker.get();
+        // Let the EDT deliver the published tiles
+        SwingUtilities.invokeAndWait(() -> { });
+
+        assertEquals(utils.ImageProcessor.invert(source).getRGB(599, 299), result.getRGB(599, 299));
+        for (int x = 0; x < 600; x += 37) {
+            for (int y = 0; y < 300; y += 29) {
+                assertEquals(source.getRGB(x, y) ^ 0x00FFFFFF, result.getRGB(x, y));
+            }
+        }
+        assertEquals(100, worker.getProgress());
+        assertTrue(updates.get() >= 1);
+    }
+
+    @Test
+    void testChainMatchesTheWholeImageOperations() throws Exception {
+        BufferedImage source = new BufferedImage(257, 131, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 257; x++) {
+            for (int y = 0; y < 131; y++) {
+                source.setRGB(x, y, x * 7919 + y * 104729);
+            }
+        }
+        ImageProcessingWorker worker = new ImageProcessingWorker(source,
+                List.of(BandOperation.INVERT, BandOperation.MIRROR, BandOperation.THUMBLE), null, null, null);
+
+        worker.run();
+        BufferedImage result = worker.get();
+        BufferedImage expected = utils.ImageProcessor.thumble(utils.ImageProcessor.mirror(utils.ImageProcessor.invert(source)));
+
+        for (int x = 0; x < 257; x++) {
+            for (int y = 0; y < 131; y++) {
+                assertEquals(expected.getRGB(x, y), result.getRGB(x, y));
+            }
+        }
+        assertEquals(1.0, worker.getFraction());
+    }
+
+    @Test
+    void testProxyOnlyWorkerSkipsTheFullResolutionBands() throws Exception {
+        // 1-pixel checkerboard: the proxy averages it to grey, the full inversion would not
+        BufferedImage source = new BufferedImage(1024, 512, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 1024; x++) {
+            for (int y = 0; y < 512; y++) {
+                source.setRGB(x, y, (x + y) % 2 == 0 ? 0x000000 : 0xFFFFFF);
+            }
+        }
+        ImageProcessingWorker worker = ImageProcessingWorker.proxyOnly(source, null);
+
+        worker.run();
+        BufferedImage result = worker.get();
+
+        assertEquals(1024, result.getWidth());
+        assertEquals(512, result.getHeight());
+        int red = (result.getRGB(100, 100) >> 16) & 0xFF;
+        assertTrue(red > 64 && red < 192, "expected the upscaled grey proxy, got " + red);
+        assertEquals(100, worker.getProgress());
+    }
+
+    @Test
+    void testCancelSkipsTheRemainingBands() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Keep the only pool thread busy so every band is still queued
+            pool.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            AtomicInteger finished = new AtomicInteger();
+            ImageProcessingWorker worker = new ImageProcessingWorker(new BufferedImage(64, 512, BufferedImage.TYPE_INT_RGB),
+                    List.of(BandOperation.INVERT), null, image -> finished.incrementAndGet(), null, pool);
+            Thread runner = new Thread(worker);
+            runner.start();
+            while (pool.getQueuedSubmissionCount() == 0) {
+                Thread.sleep(1);
+            }
+
+            assertTrue(worker.cancel(false));
+            release.countDown();
+            runner.join(10_000);
+            SwingUtilities.invokeAndWait(() -> { });
+
+            assertFalse(runner.isAlive());
+            assertEquals(0.0, worker.getFraction());
+            assertEquals(0, finished.get());
+            assertThrows(CancellationException.class, worker::get);
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testFailureGoesToOnError() throws Exception {
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch reported = new CountDownLatch(1);
+        ImageProcessingWorker worker = new ImageProcessingWorker(null, List.of(BandOperation.INVERT), null,
+                image -> fail("no result expected"), e -> {
+                    error.set(e);
+                    reported.countDown();
+                });
+
+        worker.run();
+
+        assertTrue(reported.await(10, TimeUnit.SECONDS));
+        assertInstanceOf(NullPointerException.class, error.get());
+    }
+}